@@ -37,6 +37,7 @@ import org.drugis.mtc.MCMCResultsListener;
 import org.drugis.mtc.MCMCSettings;
 import org.drugis.mtc.Parameter;
 import org.drugis.mtc.convergence.GelmanRubinConvergence;
+import org.drugis.mtc.convergence.IterativeGelmanRubin;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -120,11 +121,16 @@ public class ConvergencePlotsDialog extends JDialog {
 				final int noResults = results.getNumberOfSamples();
 				final int resolution = noResults / DATA_SCALE;
 
-				for (int i = resolution; i <= noResults; i += resolution) {
-					final int iter = i * settings.getThinningInterval();
-					d_rHatSeries.add(iter, GelmanRubinConvergence.diagnose(results, p, i));
-					d_vHatSeries.add(iter, GelmanRubinConvergence.calculatePooledVariance(results, p, i));
-					d_wSeries.add(iter, GelmanRubinConvergence.calculateWithinChainVariance(results, p, i));
+				if (resolution == 0) {
+					return;
+				}
+
+				final GelmanRubinConvergence[] trajectory = IterativeGelmanRubin.trajectory(results, p, resolution);
+				for (int k = 0; k < trajectory.length; ++k) {
+					final int iter = (k + 1) * resolution * settings.getThinningInterval();
+					d_rHatSeries.add(iter, trajectory[k].getCorrPSRF());
+					d_vHatSeries.add(iter, trajectory[k].getVHat());
+					d_wSeries.add(iter, trajectory[k].getWithinChainVar());
 				}
 			}
 		};
@@ -32,6 +32,7 @@ import org.drugis.mtc.parameterization.BasicParameter;
 import org.drugis.mtc.parameterization.ParameterComparator;
 import org.drugis.mtc.parameterization.RandomEffectsStandardDeviation;
 import org.drugis.mtc.summary.ConvergenceSummary;
+import org.drugis.mtc.summary.EffectiveSampleSizeSummary;
 import org.drugis.mtc.summary.QuantileSummary;
 
 public abstract class AbstractMTCSavedWrapper<TreatmentType> extends AbstractObservable implements MTCModelWrapper<TreatmentType>  {
@@ -78,6 +79,14 @@ public abstract class AbstractMTCSavedWrapper<TreatmentType> extends AbstractObs
 	public ConvergenceSummary getConvergenceSummary(Parameter p) {
 		return d_convergenceSummaries.get(p);
 	}
+
+	/**
+	 * Saved results do not include the samples, so the effective sample size is not available.
+	 */
+	@Override
+	public EffectiveSampleSizeSummary getEffectiveSampleSizeSummary(Parameter p) {
+		return null;
+	}
 	
 	@Override
 	public Parameter getRandomEffectsStandardDeviation() {
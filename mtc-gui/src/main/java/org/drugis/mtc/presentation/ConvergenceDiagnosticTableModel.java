@@ -31,6 +31,7 @@ import javax.swing.table.AbstractTableModel;
 import org.drugis.mtc.Parameter;
 import org.drugis.mtc.presentation.MCMCModelWrapper;
 import org.drugis.mtc.summary.ConvergenceSummary;
+import org.drugis.mtc.summary.EffectiveSampleSizeSummary;
 
 import com.jgoodies.binding.value.ValueModel;
 
@@ -40,9 +41,12 @@ public class ConvergenceDiagnosticTableModel extends AbstractTableModel{
 	private static final String NA = "N/A";
 	private static final int COL_PARAM = 0;
 	private static final int COL_ESTIMATE = 1;
+	private static final int COL_ESS = 2;
 	private Map<Parameter, ConvergenceSummary> d_summaries = new HashMap<Parameter, ConvergenceSummary>();
+	private Map<Parameter, EffectiveSampleSizeSummary> d_essSummaries = new HashMap<Parameter, EffectiveSampleSizeSummary>();
 	private PropertyChangeListener d_listener;
 	private static final NumberFormat s_format = new DecimalFormat("#.00");
+	private static final NumberFormat s_essFormat = new DecimalFormat("#");
 	private final MCMCModelWrapper d_wrapper;
 
 	public ConvergenceDiagnosticTableModel(MCMCModelWrapper wrapper, ValueModel modelConstructed) {		
@@ -69,6 +73,11 @@ public class ConvergenceDiagnosticTableModel extends AbstractTableModel{
 				value.addPropertyChangeListener(d_listener);
 				d_summaries.put(p, value);
 			}
+			EffectiveSampleSizeSummary ess = d_wrapper.getEffectiveSampleSizeSummary(p);
+			if(ess != null) { 
+				ess.addPropertyChangeListener(d_listener);
+				d_essSummaries.put(p, ess);
+			}
 		}
 		fireTableDataChanged();
 	}
@@ -79,12 +88,14 @@ public class ConvergenceDiagnosticTableModel extends AbstractTableModel{
 			return "Parameter";
 		} else if(index == COL_ESTIMATE) {
 			return "PSRF";
+		} else if(index == COL_ESS) {
+			return "ESS";
 		}
 		return null;
 	}
 
 	public int getColumnCount() {
-		return 2;
+		return 3;
 	}
 
 	public int getRowCount() {
@@ -101,6 +112,8 @@ public class ConvergenceDiagnosticTableModel extends AbstractTableModel{
 			return getParameter(rowIndex);
 		} else if (columnIndex == COL_ESTIMATE) {
 			return getConvergence(rowIndex);
+		} else if (columnIndex == COL_ESS) {
+			return getEffectiveSampleSize(rowIndex);
 		}
 		return null;
 	}
@@ -120,6 +133,14 @@ public class ConvergenceDiagnosticTableModel extends AbstractTableModel{
 		return s_format.format(summary.getScaleReduction());
 	}
 
+	private String getEffectiveSampleSize(int rowIndex) {
+		EffectiveSampleSizeSummary summary = d_essSummaries.get(getParameter(rowIndex));
+		if(summary == null || !summary.getDefined() || Double.isNaN(summary.getEffectiveSampleSize())) {
+			return NA;
+		}
+		return s_essFormat.format(summary.getEffectiveSampleSize());
+	}
+
 	private Parameter getParameter(int rowIndex) {
 		return d_wrapper.getParameters()[rowIndex];
 	}
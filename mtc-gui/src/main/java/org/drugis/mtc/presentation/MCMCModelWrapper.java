@@ -23,6 +23,7 @@ import org.drugis.mtc.MCMCModel;
 import org.drugis.mtc.MCMCSettings;
 import org.drugis.mtc.Parameter;
 import org.drugis.mtc.summary.ConvergenceSummary;
+import org.drugis.mtc.summary.EffectiveSampleSizeSummary;
 import org.drugis.mtc.summary.QuantileSummary;
 
 import com.jgoodies.binding.beans.Observable;
@@ -73,6 +74,12 @@ public interface MCMCModelWrapper extends Observable {
 	 */
 	public abstract ConvergenceSummary getConvergenceSummary(Parameter p);
 
+	/**
+	 * Get an effective sample size summary for the given parameter, or null if the samples are not available.
+	 * The parameter must occur in the list returned by {@link #getParameters()}.
+	 */
+	public abstract EffectiveSampleSizeSummary getEffectiveSampleSizeSummary(Parameter p);
+
 	/**
 	 * Get a quantile summary for the given parameter.
 	 * The parameter must occur in the list returned by {@link #getParameters()}, 
@@ -27,12 +27,14 @@ import org.drugis.mtc.MCMCModel;
 import org.drugis.mtc.MCMCSettings;
 import org.drugis.mtc.Parameter;
 import org.drugis.mtc.summary.ConvergenceSummary;
+import org.drugis.mtc.summary.EffectiveSampleSizeSummary;
 import org.drugis.mtc.summary.QuantileSummary;
 
 public class MCMCSimulationWrapper<ModelType extends MCMCModel> extends AbstractObservable implements MCMCModelWrapper {
 	protected final ModelType d_nested;
 	private final Map<Parameter, QuantileSummary> d_quantileSummaryMap = new HashMap<Parameter, QuantileSummary>();
 	private final Map<Parameter, ConvergenceSummary> d_convergenceSummaryMap = new HashMap<Parameter, ConvergenceSummary>();
+	private final Map<Parameter, EffectiveSampleSizeSummary> d_effectiveSampleSizeSummaryMap = new HashMap<Parameter, EffectiveSampleSizeSummary>();
 	private boolean d_destroy = false;
 	private final String d_description;
 
@@ -77,6 +79,14 @@ public class MCMCSimulationWrapper<ModelType extends MCMCModel> extends Abstract
 		return d_convergenceSummaryMap.get(p);
 	}
 
+	@Override
+	public EffectiveSampleSizeSummary getEffectiveSampleSizeSummary(Parameter p) {
+		if(d_effectiveSampleSizeSummaryMap.get(p) == null) { 
+			d_effectiveSampleSizeSummaryMap.put(p, new EffectiveSampleSizeSummary(d_nested.getResults(), p));
+		}
+		return d_effectiveSampleSizeSummaryMap.get(p);
+	}
+
 	@Override
 	public Parameter[] getParameters() { 
 		return d_nested.getResults().getParameters();
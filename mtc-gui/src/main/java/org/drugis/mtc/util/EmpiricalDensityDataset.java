@@ -101,11 +101,11 @@ public class EmpiricalDensityDataset extends AbstractXYDataset {
 	}
 
 	private void calcBounds(List<Integer> paramIndex) {
-		double[] samples = getSamplesArray(paramIndex.get(0));
+		double[] samples = getSortedSamples(paramIndex.get(0));
 		d_bottom = s_p.evaluate(samples, 2.5);
 		d_top = s_p.evaluate(samples, 97.5);
 		for (int j : paramIndex.subList(1, paramIndex.size())) {
-			samples = getSamplesArray(j);
+			samples = getSortedSamples(j);
 			d_bottom = Math.min(s_p.evaluate(samples, 2.5), d_bottom);
 			d_top = Math.max(s_p.evaluate(samples, 97.5), d_top);
 		}
@@ -116,10 +116,10 @@ public class EmpiricalDensityDataset extends AbstractXYDataset {
 	private void calcDensities(List<Integer> paramIndex) {
 		d_counts = new int[d_nSeries][d_nBins];
 		for (int j : paramIndex) {
-			List<Double> samples = getSamples(j);
-			double factor = samples.size() * d_interval;
-			for (int i = 0; i < samples.size(); ++i) {
-				double sample = samples.get(i);
+			double[] samples = getSamples(j);
+			double factor = samples.length * d_interval;
+			for (int i = 0; i < samples.length; ++i) {
+				double sample = samples[i];
 				if (sample >= d_bottom && sample < d_top) {
 					int idx = (int) ((sample - d_bottom) / d_interval);
 					++d_counts[j][idx];
@@ -131,19 +131,14 @@ public class EmpiricalDensityDataset extends AbstractXYDataset {
 		}
 	}
 
-	@Deprecated
-	private double[] getSamplesArray(int j) { // FIXME: eliminate
-		List<Double> list = getSamples(j);
-		double[] arr = new double[list.size()];
-		for (int i = 0; i < list.size(); ++i) {
-			arr[i] = list.get(i);
-		}
-		Arrays.sort(arr);
-		return arr;
+	private double[] getSortedSamples(int j) {
+		double[] samples = getSamples(j);
+		Arrays.sort(samples);
+		return samples;
 	}
 
-	private List<Double> getSamples(int j) {
-		return SummaryUtil.getAllChainsLastHalfSamples(d_results[j], d_parameters[j]);
+	private double[] getSamples(int j) {
+		return SummaryUtil.getLastHalfSamples(d_results[j], d_parameters[j]);
 	}
 
 	@Override
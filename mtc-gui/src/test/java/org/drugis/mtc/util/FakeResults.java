@@ -19,7 +19,9 @@
 
 package org.drugis.mtc.util;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.drugis.mtc.MCMCResults;
@@ -58,6 +60,12 @@ public class FakeResults implements MCMCResults {
 	public Parameter[] getParameters() { return new Parameter[d_nParameters]; }
 	public double getSample(int p, int c, int i) { return 0; }
 	public double[] getSamples(int p, int c) { return null; }
+	public void getSamples(int p, int c, int from, int to, double[] dst, int offset) {
+		Arrays.fill(dst, offset, offset + to - from, 0.0);
+	}
+	public DoubleBuffer getSampleBuffer(int p, int c) {
+		return DoubleBuffer.wrap(new double[getNumberOfSamples()]).asReadOnlyBuffer();
+	}
 	public void clear() {
 		d_resultsAvailable = false;
 		fireResultsChanged();
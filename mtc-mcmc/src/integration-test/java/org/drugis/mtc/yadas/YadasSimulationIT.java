@@ -0,0 +1,189 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.drugis.common.threading.TaskUtil;
+import org.drugis.mtc.MCMCModel.ExtendSimulation;
+import org.drugis.mtc.MCMCResults;
+import org.drugis.mtc.MCMCResultsEvent;
+import org.drugis.mtc.MCMCResultsListener;
+import org.drugis.mtc.MCMCSettings;
+import org.drugis.mtc.convergence.ConvergencePolicy;
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs complete simulations to check how the phases of AbstractYadasModel
+ * work together: planning, monitoring and automatic extension or
+ * finishing by a ConvergencePolicy.
+ */
+public class YadasSimulationIT {
+	private Network d_network;
+	private YadasSettings d_settings;
+
+	@Before
+	public void setUp() {
+		Treatment ta = new Treatment("A");
+		Treatment tb = new Treatment("B");
+		Treatment tc = new Treatment("C");
+		Study s1 = new Study("1");
+		s1.getMeasurements().addAll(Arrays.asList(
+				new Measurement(ta, 9, 140),
+				new Measurement(tb, 23, 140),
+				new Measurement(tc, 10, 138)));
+		Study s2 = new Study("2");
+		s2.getMeasurements().addAll(Arrays.asList(
+				new Measurement(ta, 79, 702),
+				new Measurement(tb, 77, 694)));
+		Study s3 = new Study("3");
+		s3.getMeasurements().addAll(Arrays.asList(
+				new Measurement(ta, 18, 671),
+				new Measurement(tc, 21, 535)));
+		d_network = new Network();
+		d_network.getTreatments().addAll(Arrays.asList(ta, tb, tc));
+		d_network.getStudies().addAll(Arrays.asList(s1, s2, s3));
+
+		d_settings = new YadasSettings(2000, 1000, 1, 4, 2.5);
+		d_settings.setRandomSeed(42L);
+	}
+
+	private YadasConsistencyModel run(YadasSettings settings) throws InterruptedException {
+		return run(new YadasConsistencyModel(d_network, settings));
+	}
+
+	private YadasConsistencyModel run(YadasConsistencyModel model) throws InterruptedException {
+		model.setExtendSimulation(ExtendSimulation.FINISH); // unless the convergence policy decides
+		TaskUtil.run(model.getActivityTask());
+		assertTrue(model.getActivityTask().isFinished());
+		return model;
+	}
+
+	/**
+	 * Every chain should have stored exactly iterations / thinning samples.
+	 */
+	private void assertSamplesComplete(YadasConsistencyModel model) {
+		final MCMCSettings settings = model.getSettings();
+		final int thinning = settings.getThinningInterval();
+		final int iterations = settings.getSimulationIterations();
+		assertEquals(0, iterations % IterationPlanner.getIterationStep(thinning));
+		MCMCResults results = model.getResults();
+		assertEquals(iterations / thinning, results.getNumberOfSamples());
+		for (int c = 0; c < results.getNumberOfChains(); ++c) {
+			for (int p = 0; p < results.getParameters().length; ++p) {
+				assertTrue(results.getSample(p, c, results.getNumberOfSamples() - 1) != 0.0);
+			}
+		}
+	}
+
+	/**
+	 * Two runs with the same seed should produce bit-identical samples.
+	 */
+	private void assertSameSamples(MCMCResults expected, MCMCResults actual) {
+		assertEquals(expected.getNumberOfSamples(), actual.getNumberOfSamples());
+		final int nParams = expected.getParameters().length;
+		for (int p = 0; p < nParams; ++p) {
+			for (int c = 0; c < expected.getNumberOfChains(); ++c) {
+				for (int i = 0; i < expected.getNumberOfSamples(); ++i) {
+					assertEquals(Double.doubleToLongBits(expected.getSample(p, c, i)),
+							Double.doubleToLongBits(actual.getSample(p, c, i)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSameSeedSameSamples() throws InterruptedException {
+		YadasConsistencyModel first = run(d_settings);
+		YadasConsistencyModel second = run(d_settings);
+		assertSameSamples(first.getResults(), second.getResults());
+	}
+
+	@Test
+	public void testStudyBatchesSameSamples() throws InterruptedException {
+		YadasConsistencyModel sequential = run(d_settings);
+		YadasSettings settings = new YadasSettings(d_settings);
+		settings.setStudyBatches(2);
+		YadasConsistencyModel parallel = run(settings);
+		assertSameSamples(sequential.getResults(), parallel.getResults());
+	}
+
+	/**
+	 * Run with the given convergence policy, and return the number of samples at each results event.
+	 */
+	private List<Integer> runSegments(ConvergencePolicy policy) throws InterruptedException {
+		d_settings.setConvergencePolicy(policy);
+		final YadasConsistencyModel model = new YadasConsistencyModel(d_network, d_settings);
+		final List<Integer> segments = Collections.synchronizedList(new ArrayList<Integer>());
+		model.getResults().addResultsListener(new MCMCResultsListener() {
+			public void resultsEvent(MCMCResultsEvent event) {
+				segments.add(model.getResults().getNumberOfSamples());
+			}
+		});
+		run(model);
+		assertSamplesComplete(model);
+		assertEquals(segments.get(segments.size() - 1).intValue(), model.getSettings().getSimulationIterations());
+		return segments;
+	}
+
+	@Test
+	public void testExtendedBySegmentsUntilIterationCap() throws InterruptedException {
+		// an infinite effective sample size is never reached; the last segment is cut short by the cap
+		List<Integer> segments = runSegments(new ConvergencePolicy(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 3000, 0, 700));
+		assertEquals(Arrays.asList(1000, 1700, 2400, 3000), segments);
+	}
+
+	@Test
+	public void testFinishedAtTimeCap() throws InterruptedException {
+		// tuning alone takes longer than the time budget
+		List<Integer> segments = runSegments(new ConvergencePolicy(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 0, 1, 700));
+		assertEquals(Arrays.asList(1000), segments);
+	}
+
+	@Test
+	public void testFinishedWhenConverged() throws InterruptedException {
+		List<Integer> segments = runSegments(new ConvergencePolicy(Double.POSITIVE_INFINITY, 0, 0, 0, 700));
+		assertEquals(Arrays.asList(1000), segments);
+	}
+
+	@Test
+	public void testPlannedSimulationExtended() throws InterruptedException {
+		d_settings.setTargetEffectiveSampleSize(200);
+		d_settings.setMonitorInterval(500);
+		// a PSRF of 1.0 is never reached: the simulation is extended until the iteration budget is spent
+		d_settings.setConvergencePolicy(new ConvergencePolicy(1.0, 200, 20000, 0, 1000));
+		YadasConsistencyModel model = run(d_settings);
+
+		assertTrue(model.getSettings().getSimulationIterations() >= 20000);
+		assertSamplesComplete(model);
+		assertEquals(Math.max(1, 500 / model.getSettings().getThinningInterval()), model.getMonitor().getInterval());
+	}
+}
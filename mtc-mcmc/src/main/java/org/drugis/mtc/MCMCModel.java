@@ -26,6 +26,7 @@ public interface MCMCModel {
 	public static final String ASSESS_CONVERGENCE_PHASE = "Assess convergence";
 	public static final String CALCULATING_SUMMARIES_PHASE = "Calculating summaries";
 	public static final String EXTENDING_SIMULATION_PHASE = "Extending simulation";
+	public static final String PLANNING_SIMULATION_PHASE = "Planning simulation";
 	public static final String STARTING_SIMULATION_PHASE = "Building model";
 	public static final String SIMULATION_CHAIN_PREFIX = "Simulation: ";
 	public static final String TUNING_CHAIN_PREFIX = "Tuning: ";
@@ -19,6 +19,8 @@
 
 package org.drugis.mtc;
 
+import java.nio.DoubleBuffer;
+
 /**
  * Results-container for MCMC simulation. 
  */
@@ -58,6 +60,27 @@ public interface MCMCResults {
 	 */
 	public double getSample(int p, int c, int i);
 
+	/**
+	 * Copy a range of MCMC samples into an array.
+	 * @param p The parameter index.
+	 * @param c The chain index.
+	 * @param from The first sample index (inclusive).
+	 * @param to The last sample index (exclusive).
+	 * @param dst The array to copy the samples into.
+	 * @param offset The index in dst where the first sample is written.
+	 */
+	public void getSamples(int p, int c, int from, int to, double[] dst, int offset);
+
+	/**
+	 * Get a read-only view of the samples of one (parameter, chain).
+	 * The view starts at position 0, and its limit is the number of samples
+	 * available. Where the underlying storage allows, no samples are copied;
+	 * the view is only valid until the results are cleared or extended.
+	 * @param p The parameter index.
+	 * @param c The chain index.
+	 */
+	public DoubleBuffer getSampleBuffer(int p, int c);
+
 	/**
 	 * Register a listener for changes to the results.
 	 */
@@ -29,6 +29,7 @@ public interface MCMCSettings extends Observable {
 	public static final String PROPERTY_SIMULATION_ITERATIONS = "simulationIterations";
 	public static final String PROPERTY_INFERENCE_SAMPLES = "inferenceSamples";
 	public static final String PROPERTY_NUMBER_OF_CHAINS = "numberOfChains";
+	public static final String PROPERTY_RANDOM_SEED = "randomSeed";
 
 	public double getVarianceScalingFactor();
 
@@ -42,4 +43,10 @@ public interface MCMCSettings extends Observable {
 
 	public int getNumberOfChains();
 
+	/**
+	 * The master seed from which the per-chain random streams are derived.
+	 * @return The seed, or null if the simulation need not be reproducible.
+	 */
+	public Long getRandomSeed();
+
 }
\ No newline at end of file
@@ -29,15 +29,22 @@ public final class MCMCSettingsCache extends AbstractObservable implements MCMCS
 	private final int d_tuningIterations;
 	private final double d_varianceScalingFactor;
 	private final int d_numberOfChains ;
+	private final Long d_randomSeed;
 	
 	public MCMCSettingsCache(int inferenceIterations, int simulationIterations, 
 			int thinningInterval, int tuningIterations, double varianceScalingFactor, int numberOfChains) {
+		this(inferenceIterations, simulationIterations, thinningInterval, tuningIterations, varianceScalingFactor, numberOfChains, null);
+	}
+
+	public MCMCSettingsCache(int inferenceIterations, int simulationIterations, 
+			int thinningInterval, int tuningIterations, double varianceScalingFactor, int numberOfChains, Long randomSeed) {
 		d_inferenceIterations = inferenceIterations;
 		d_simulationIterations = simulationIterations;
 		d_thinningInterval = thinningInterval;
 		d_tuningIterations = tuningIterations;
 		d_varianceScalingFactor = varianceScalingFactor;
 		d_numberOfChains = numberOfChains;
+		d_randomSeed = randomSeed;
 	}
 
 	public double getVarianceScalingFactor() {
@@ -63,4 +70,8 @@ public final class MCMCSettingsCache extends AbstractObservable implements MCMCS
 	public int getNumberOfChains() {
 		return d_numberOfChains;
 	}
+
+	public Long getRandomSeed() {
+		return d_randomSeed;
+	}
 }
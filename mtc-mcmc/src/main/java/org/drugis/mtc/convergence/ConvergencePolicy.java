@@ -0,0 +1,132 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.convergence;
+
+import org.drugis.mtc.MCMCModel.ExtendSimulation;
+import org.drugis.mtc.MCMCResults;
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.summary.SampleStatistics;
+import org.drugis.mtc.summary.SummaryEngine;
+
+/**
+ * Decides automatically whether a simulation should be extended or finished.
+ * The simulation is finished once, for every direct parameter, the corrected
+ * potential scale reduction factor is at most the target and the effective
+ * sample size is at least the minimum, or once the iteration or time budget
+ * is exhausted. Otherwise it is extended by a fixed segment of iterations.
+ * Both diagnostics are computed from the SampleStatistics of the
+ * SummaryEngine (the effective sample size is its autocorrelation-based
+ * estimate), so each parameter's samples are read once per decision and the
+ * statistics are shared with the summaries that are calculated when the
+ * simulation finishes.
+ * @see EffectiveSampleSize
+ */
+public class ConvergencePolicy {
+	private final double d_targetPSRF;
+	private final double d_minEffectiveSampleSize;
+	private final int d_maxIterations;
+	private final long d_maxTime;
+	private final int d_segmentIterations;
+
+	/**
+	 * @param targetPSRF The maximum acceptable \hat{R}.
+	 * @param minEffectiveSampleSize The minimum effective sample size of each parameter.
+	 * @param maxIterations The maximum number of simulation iterations (a multiple of 100), or 0 for no limit.
+	 * @param maxTime The maximum running time in milliseconds, or 0 for no limit.
+	 * @param segmentIterations The number of iterations to extend by (a positive multiple of 100).
+	 */
+	public ConvergencePolicy(double targetPSRF, double minEffectiveSampleSize, int maxIterations, long maxTime, int segmentIterations) {
+		if (segmentIterations <= 0 || segmentIterations % 100 != 0) {
+			throw new IllegalArgumentException("Specified # iterations should be a positive multiple of 100");
+		}
+		if (maxIterations < 0 || maxIterations % 100 != 0) {
+			throw new IllegalArgumentException("Specified maximum # iterations should be a non-negative multiple of 100");
+		}
+		d_targetPSRF = targetPSRF;
+		d_minEffectiveSampleSize = minEffectiveSampleSize;
+		d_maxIterations = maxIterations;
+		d_maxTime = maxTime;
+		d_segmentIterations = segmentIterations;
+	}
+
+	public double getTargetPSRF() {
+		return d_targetPSRF;
+	}
+
+	public double getMinEffectiveSampleSize() {
+		return d_minEffectiveSampleSize;
+	}
+
+	public int getMaxIterations() {
+		return d_maxIterations;
+	}
+
+	public long getMaxTime() {
+		return d_maxTime;
+	}
+
+	public int getSegmentIterations() {
+		return d_segmentIterations;
+	}
+
+	/**
+	 * Decide how to continue a simulation.
+	 * @param results The results so far.
+	 * @param iterations The number of simulation iterations so far.
+	 * @param elapsedTime The running time so far, in milliseconds.
+	 * @return FINISH or EXTEND.
+	 */
+	public ExtendSimulation decide(MCMCResults results, int iterations, long elapsedTime) {
+		if (d_maxIterations > 0 && iterations >= d_maxIterations) {
+			return ExtendSimulation.FINISH;
+		}
+		if (d_maxTime > 0 && elapsedTime >= d_maxTime) {
+			return ExtendSimulation.FINISH;
+		}
+		return isConverged(results) ? ExtendSimulation.FINISH : ExtendSimulation.EXTEND;
+	}
+
+	/**
+	 * @return true if all direct parameters meet the targets; undefined diagnostics never do.
+	 */
+	public boolean isConverged(MCMCResults results) {
+		final SummaryEngine engine = SummaryEngine.getInstance(results);
+		for (Parameter p : results.getParameters()) {
+			SampleStatistics stats = engine.getStatistics(p);
+			GelmanRubinConvergence diagnostic = new GelmanRubinConvergence(stats.getNumberOfSamples(),
+					stats.getChainMeans(), stats.getChainVariances());
+			if (!(diagnostic.getCorrPSRF() <= d_targetPSRF) ||
+					!(stats.getEffectiveSampleSize() >= d_minEffectiveSampleSize)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The number of iterations to extend by, so that the maximum is not exceeded.
+	 */
+	public int getExtension(int iterations) {
+		if (d_maxIterations > 0) {
+			return Math.max(0, Math.min(d_segmentIterations, d_maxIterations - iterations));
+		}
+		return d_segmentIterations;
+	}
+}
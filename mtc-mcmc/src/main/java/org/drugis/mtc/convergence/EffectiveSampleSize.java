@@ -0,0 +1,163 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.convergence;
+
+/**
+ * Multi-chain effective sample size, based on the autocorrelation of the
+ * chains (Gelman et al., Bayesian Data Analysis, 3rd ed., section 11.5).
+ * The autocovariances are computed with a radix-2 FFT on primitive arrays,
+ * in O(n log n) per chain, and summed using Geyer's initial monotone
+ * positive sequence.
+ */
+public class EffectiveSampleSize {
+	private EffectiveSampleSize() {
+	}
+
+	/**
+	 * @param samples The samples of nChains equally long chains, concatenated.
+	 * @param nChains The number of chains.
+	 * @return The effective sample size, or NaN if there are fewer than 4 samples per chain.
+	 */
+	public static double calculate(double[] samples, int nChains) {
+		final int n = samples.length / nChains;
+		if (n < 4) {
+			return Double.NaN;
+		}
+
+		// Average autocovariance over chains, and the chain means
+		final double[] acov = new double[n];
+		final double[] means = new double[nChains];
+		final int size = Integer.highestOneBit(2 * n - 1) << 1;
+		final double[] re = new double[size];
+		final double[] im = new double[size];
+		for (int c = 0; c < nChains; ++c) {
+			means[c] = autocovariance(samples, c * n, n, re, im);
+			for (int t = 0; t < n; ++t) {
+				acov[t] += re[t] / nChains;
+			}
+		}
+
+		final double w = acov[0] * n / (n - 1);
+		double varPlus = w * (n - 1) / n;
+		if (nChains > 1) {
+			varPlus += variance(means);
+		}
+		if (!(varPlus > 0.0)) {
+			return Double.NaN;
+		}
+
+		// Geyer's initial monotone sequence of pairwise sums
+		double sum = 0.0;
+		double previous = Double.POSITIVE_INFINITY;
+		for (int t = 0; t + 1 < n; t += 2) {
+			double pair = 2.0 - (2 * w - acov[t] - acov[t + 1]) / varPlus;
+			if (pair <= 0.0) {
+				break;
+			}
+			pair = Math.min(pair, previous);
+			sum += pair;
+			previous = pair;
+		}
+		final double tau = Math.max(2 * sum - 1, 1.0 / Math.log10(nChains * n));
+		return nChains * n / tau;
+	}
+
+	/**
+	 * Compute the (biased) autocovariances of x[offset, offset + n) into re[0, n).
+	 * @param re Work array of length a power of two, at least 2n.
+	 * @param im Work array of the same length.
+	 * @return The mean of the samples.
+	 */
+	private static double autocovariance(double[] x, int offset, int n, double[] re, double[] im) {
+		double mean = 0.0;
+		for (int i = 0; i < n; ++i) {
+			mean += x[offset + i];
+		}
+		mean /= n;
+		for (int i = 0; i < re.length; ++i) {
+			re[i] = i < n ? x[offset + i] - mean : 0.0;
+			im[i] = 0.0;
+		}
+		fft(re, im, false);
+		for (int i = 0; i < re.length; ++i) {
+			re[i] = re[i] * re[i] + im[i] * im[i];
+			im[i] = 0.0;
+		}
+		fft(re, im, true);
+		final double scale = 1.0 / ((double) re.length * n);
+		for (int t = 0; t < n; ++t) {
+			re[t] *= scale;
+		}
+		return mean;
+	}
+
+	/**
+	 * In-place iterative radix-2 FFT; the inverse is not normalized.
+	 */
+	static void fft(double[] re, double[] im, boolean inverse) {
+		final int n = re.length;
+		for (int i = 1, j = 0; i < n; ++i) {
+			int bit = n >> 1;
+			for (; (j & bit) != 0; bit >>= 1) {
+				j ^= bit;
+			}
+			j ^= bit;
+			if (i < j) {
+				double tmp = re[i]; re[i] = re[j]; re[j] = tmp;
+				tmp = im[i]; im[i] = im[j]; im[j] = tmp;
+			}
+		}
+		for (int len = 2; len <= n; len <<= 1) {
+			final double angle = (inverse ? 2 : -2) * Math.PI / len;
+			final double wRe = Math.cos(angle);
+			final double wIm = Math.sin(angle);
+			for (int i = 0; i < n; i += len) {
+				double uRe = 1.0;
+				double uIm = 0.0;
+				for (int k = 0; k < len / 2; ++k) {
+					final int a = i + k;
+					final int b = a + len / 2;
+					final double vRe = re[b] * uRe - im[b] * uIm;
+					final double vIm = re[b] * uIm + im[b] * uRe;
+					re[b] = re[a] - vRe;
+					im[b] = im[a] - vIm;
+					re[a] += vRe;
+					im[a] += vIm;
+					final double nextRe = uRe * wRe - uIm * wIm;
+					uIm = uRe * wIm + uIm * wRe;
+					uRe = nextRe;
+				}
+			}
+		}
+	}
+
+	private static double variance(double[] x) {
+		double mean = 0.0;
+		for (double v : x) {
+			mean += v;
+		}
+		mean /= x.length;
+		double sum = 0.0;
+		for (double v : x) {
+			sum += (v - mean) * (v - mean);
+		}
+		return sum / (x.length - 1);
+	}
+}
@@ -19,25 +19,74 @@
 
 package org.drugis.mtc.convergence;
 
-import org.apache.commons.math3.stat.correlation.Covariance;
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
-import org.apache.commons.math3.stat.descriptive.moment.Variance;
 import org.drugis.mtc.MCMCResults;
 import org.drugis.mtc.Parameter;
-import org.drugis.mtc.summary.SummaryUtil;
 import org.drugis.mtc.util.WindowResults;
 
+/**
+ * The Gelman-Rubin convergence diagnostic, based on the last half of the
+ * samples of each chain. All quantities are computed from the per-chain
+ * sufficient statistics (count, mean and sum of squared deviations), which
+ * are gathered in a single pass over the samples.
+ */
 public class GelmanRubinConvergence {
-	
-	private MCMCResults d_results;
-	private Parameter d_parameter;
-	private static Mean s_mean = new Mean();
-	private static Variance s_var = new Variance();
+	private static final int BLOCK_SIZE = 4096;
+
+	private final int d_nTotal;
+	private final double[] d_means;
+	private final double[] d_variances;
 
 	public GelmanRubinConvergence(MCMCResults results, Parameter parameter) {
+		this(results, results.findParameter(parameter), new double[Math.min(BLOCK_SIZE, results.getNumberOfSamples() / 2)]);
+	}
+
+	/**
+	 * Create the diagnostic from previously computed per-chain statistics.
+	 * @param nSamples The total number of samples per chain, of which the last half were summarized.
+	 * @param chainMeans The mean of the last half of each chain.
+	 * @param chainVariances The (bias-corrected) variance of the last half of each chain.
+	 */
+	public GelmanRubinConvergence(int nSamples, double[] chainMeans, double[] chainVariances) {
+		d_nTotal = nSamples;
+		d_means = chainMeans.clone();
+		d_variances = chainVariances.clone();
+	}
+
+	private GelmanRubinConvergence(MCMCResults results, int p, double[] buffer) {
 		assert(results.getNumberOfSamples() % 2 == 0);
-		d_results = results;
-		d_parameter = parameter;
+		d_nTotal = results.getNumberOfSamples();
+		final int nChains = results.getNumberOfChains();
+		final int half = d_nTotal / 2;
+		d_means = new double[nChains];
+		d_variances = new double[nChains];
+		for (int c = 0; c < nChains; ++c) {
+			double mean = 0.0;
+			double m2 = 0.0;
+			int n = 0;
+			for (int from = half; from < 2 * half; from += buffer.length) {
+				final int to = Math.min(from + buffer.length, 2 * half);
+				results.getSamples(p, c, from, to, buffer, 0);
+				for (int i = 0; i < to - from; ++i) {
+					final double dev = buffer[i] - mean;
+					mean += dev / ++n;
+					m2 += dev * (buffer[i] - mean);
+				}
+			}
+			d_means[c] = n > 0 ? mean : Double.NaN;
+			d_variances[c] = n > 1 ? m2 / (n - 1) : Double.NaN;
+		}
+	}
+
+	/**
+	 * Compute the diagnostic for several parameters at once, sharing one sample buffer.
+	 */
+	public static GelmanRubinConvergence[] diagnoseAll(MCMCResults results, Parameter[] parameters) {
+		GelmanRubinConvergence[] diagnostics = new GelmanRubinConvergence[parameters.length];
+		double[] buffer = new double[Math.min(BLOCK_SIZE, results.getNumberOfSamples() / 2)];
+		for (int i = 0; i < parameters.length; ++i) {
+			diagnostics[i] = new GelmanRubinConvergence(results, results.findParameter(parameters[i]), buffer);
+		}
+		return diagnostics;
 	}
 	
 	/**
@@ -69,52 +118,44 @@ public class GelmanRubinConvergence {
 	}
 	
 	public double oneChainMean(int c){
-		return SummaryUtil.evaluate(s_mean, SummaryUtil.getOneChainLastHalfSamples(d_results, d_parameter, c));
+		return d_means[c];
 	}
 
 	public double oneChainVar(int c) {
-		return SummaryUtil.evaluate(s_var, SummaryUtil.getOneChainLastHalfSamples(d_results, d_parameter, c));
+		return d_variances[c];
 	}
 	
 	public double allChainMean() {
-		return SummaryUtil.evaluate(s_mean, SummaryUtil.getAllChainsLastHalfSamples(d_results, d_parameter));
+		return mean(d_means);
 	}
 
 	public double getBetweenChainVar() {
 		double var = 0;
 		double mean = allChainMean();
-		for(int i=0; i< d_results.getNumberOfChains(); ++i) {
-			var += java.lang.Math.pow(oneChainMean(i) - mean, 2);
+		for(int i=0; i< getNChains(); ++i) {
+			var += (d_means[i] - mean) * (d_means[i] - mean);
 		}
-		return (d_results.getNumberOfSamples() * var / 2) / (d_results.getNumberOfChains() - 1);
+		return (d_nTotal * var / 2) / (getNChains() - 1);
 	}
 	
 	public int getNSamples() {
-		return d_results.getNumberOfSamples() / 2;
+		return d_nTotal / 2;
 	}
 
 	public int getNChains() {
-		return d_results.getNumberOfChains();
+		return d_means.length;
 	}
 
 	public double getWithinChainVar() {
-		return s_mean.evaluate(getVariances());
+		return mean(d_variances);
 	}
 
 	public double[] getVariances() {
-		double [] tmp = new double[getNChains()];
-		for(int i=0; i<getNChains(); ++i) {
-			tmp[i] = oneChainVar(i);
-		}
-		return tmp;
+		return d_variances.clone();
 	}
 
 	public double[] getMeans() {
-		double [] tmp = new double[getNChains()];
-		for(int i=0; i<getNChains(); ++i) {
-			tmp[i] = oneChainMean(i);
-		}
-		return tmp;
+		return d_means.clone();
 	}
 	
 	public double getSigmaSquaredHat() {
@@ -123,7 +164,7 @@ public class GelmanRubinConvergence {
 	}
 	
 	public double getVHat() {
-		return getSigmaSquaredHat() + getBetweenChainVar() / (d_results.getNumberOfChains() * getNSamples());
+		return getSigmaSquaredHat() + getBetweenChainVar() / (getNChains() * getNSamples());
 	}
 
 	public double getCorrPSRF() {
@@ -132,22 +173,53 @@ public class GelmanRubinConvergence {
 		return Math.sqrt(dfactor * getVHat() / getWithinChainVar());
 	}
 
+	/**
+	 * Crude estimate of the effective number of samples m * n * \hat{\sigma}^2 / B,
+	 * bounded by m * n (Gelman et al., Bayesian Data Analysis, 2nd ed.).
+	 */
+	public double getEffectiveSampleSize() {
+		double mn = getNChains() * getNSamples();
+		return Math.min(mn, mn * getSigmaSquaredHat() / getBetweenChainVar());
+	}
+
 	public double getDegreesOfFreedom() {
 		double m = getNChains();
 		double n = getNSamples();
-		Covariance cov = new Covariance();
- 
+		double b = getBetweenChainVar();
+		double vHat = getVHat();
+		double mean = allChainMean();
+
 		double [] squaredMeans = getMeans();
 		for (int i = 0; i < getNChains(); ++i) squaredMeans[i] *= squaredMeans[i]; 
 		
-		double varW = s_var.evaluate(getVariances()) / m;
-		double varB = 2 * getBetweenChainVar() * getBetweenChainVar() / (m - 1);
+		double varW = covariance(d_variances, d_variances) / m;
+		double varB = 2 * b * b / (m - 1);
 		
-		double covWB = (n / m) * (cov.covariance(getVariances(), squaredMeans) - 2 
-						* allChainMean() * cov.covariance(getVariances(), getMeans()));
+		double covWB = (n / m) * (covariance(d_variances, squaredMeans) - 2 
+						* mean * covariance(d_variances, d_means));
 		double varV = ( Math.pow(n - 1, 2) * varW + Math.pow(1 + 1 / m, 2) 
 						* varB + 2 * (n - 1) * (1 + 1 / m) * covWB) / (n * n); 
-		return 2 * getVHat() * getVHat() / varV;
+		return 2 * vHat * vHat / varV;
+	}
+
+	private static double mean(double[] x) {
+		double sum = 0.0;
+		for (double v : x) {
+			sum += v;
+		}
+		return sum / x.length;
+	}
+
+	/**
+	 * Bias-corrected covariance of two equally long arrays.
+	 */
+	private static double covariance(double[] x, double[] y) {
+		double mx = mean(x);
+		double my = mean(y);
+		double sum = 0.0;
+		for (int i = 0; i < x.length; ++i) {
+			sum += (x[i] - mx) * (y[i] - my);
+		}
+		return sum / (x.length - 1);
 	}
-	
 }
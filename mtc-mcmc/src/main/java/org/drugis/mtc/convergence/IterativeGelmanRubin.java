@@ -0,0 +1,144 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.convergence;
+
+import java.util.Arrays;
+
+import org.drugis.mtc.MCMCResults;
+import org.drugis.mtc.Parameter;
+
+/**
+ * Incremental Gelman-Rubin diagnostic over growing prefixes of the samples.
+ * For the first n samples, the diagnostic uses the window [h, 2h) of each
+ * chain, where h = n / 2. When n grows, the per-chain Welford statistics are
+ * updated by adding the samples that enter the window and removing those that
+ * leave it, so a whole trajectory of diagnostics costs a single linear pass,
+ * rather than a pass per prefix.
+ */
+public class IterativeGelmanRubin {
+	private static final int BLOCK_SIZE = 4096;
+
+	private final MCMCResults d_results;
+	private final int d_p;
+	private final double[] d_mean;
+	private final double[] d_m2;
+	private final double[] d_buffer;
+	private int d_lo = 0;
+	private int d_hi = 0;
+	private int d_nSamples = 0;
+
+	public IterativeGelmanRubin(MCMCResults results, Parameter parameter) {
+		d_results = results;
+		d_p = results.findParameter(parameter);
+		d_mean = new double[results.getNumberOfChains()];
+		d_m2 = new double[results.getNumberOfChains()];
+		d_buffer = new double[BLOCK_SIZE];
+	}
+
+	/**
+	 * Compute the diagnostic for the first resolution, 2 * resolution, ...
+	 * samples, up to the number of samples available.
+	 */
+	public static GelmanRubinConvergence[] trajectory(MCMCResults results, Parameter parameter, int resolution) {
+		if (resolution <= 0) {
+			throw new IllegalArgumentException("The resolution should be positive");
+		}
+		IterativeGelmanRubin iterative = new IterativeGelmanRubin(results, parameter);
+		GelmanRubinConvergence[] trajectory = new GelmanRubinConvergence[results.getNumberOfSamples() / resolution];
+		for (int k = 0; k < trajectory.length; ++k) {
+			trajectory[k] = iterative.advance((k + 1) * resolution);
+		}
+		return trajectory;
+	}
+
+	/**
+	 * Advance the window to the first nSamples samples.
+	 * @param nSamples The number of samples; may not be less than in the previous call.
+	 * @return The diagnostic based on the last half of the first nSamples samples.
+	 */
+	public GelmanRubinConvergence advance(int nSamples) {
+		if (nSamples < d_nSamples) {
+			throw new IllegalArgumentException("The number of samples may not decrease");
+		}
+		if (nSamples > d_results.getNumberOfSamples()) {
+			throw new IndexOutOfBoundsException(nSamples + " samples requested, " + d_results.getNumberOfSamples() + " available");
+		}
+		d_nSamples = nSamples;
+		final int half = nSamples / 2;
+		if (half >= d_hi) { // disjoint windows: start over
+			Arrays.fill(d_mean, 0.0);
+			Arrays.fill(d_m2, 0.0);
+			d_lo = d_hi = half;
+		}
+		for (int c = 0; c < d_mean.length; ++c) {
+			add(c, d_hi, 2 * half, d_hi - d_lo);
+			remove(c, d_lo, half, 2 * half - d_lo);
+		}
+		d_lo = half;
+		d_hi = 2 * half;
+
+		double[] variances = new double[d_mean.length];
+		for (int c = 0; c < d_mean.length; ++c) {
+			variances[c] = half > 1 ? d_m2[c] / (half - 1) : Double.NaN;
+		}
+		return new GelmanRubinConvergence(nSamples, d_mean, variances);
+	}
+
+	/**
+	 * Add samples [from, to) of chain c, which currently summarizes n samples.
+	 */
+	private void add(int c, int from, int to, int n) {
+		double mean = d_mean[c];
+		double m2 = d_m2[c];
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			final int end = Math.min(start + BLOCK_SIZE, to);
+			d_results.getSamples(d_p, c, start, end, d_buffer, 0);
+			for (int i = 0; i < end - start; ++i) {
+				final double x = d_buffer[i];
+				final double dev = x - mean;
+				mean += dev / ++n;
+				m2 += dev * (x - mean);
+			}
+		}
+		d_mean[c] = mean;
+		d_m2[c] = m2;
+	}
+
+	/**
+	 * Remove samples [from, to) of chain c, which currently summarizes n samples.
+	 */
+	private void remove(int c, int from, int to, int n) {
+		double mean = d_mean[c];
+		double m2 = d_m2[c];
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			final int end = Math.min(start + BLOCK_SIZE, to);
+			d_results.getSamples(d_p, c, start, end, d_buffer, 0);
+			for (int i = 0; i < end - start; ++i) {
+				final double x = d_buffer[i];
+				--n;
+				final double newMean = n > 0 ? mean - (x - mean) / n : 0.0;
+				m2 = n > 0 ? m2 - (x - mean) * (x - newMean) : 0.0;
+				mean = newMean;
+			}
+		}
+		d_mean[c] = mean;
+		d_m2[c] = m2;
+	}
+}
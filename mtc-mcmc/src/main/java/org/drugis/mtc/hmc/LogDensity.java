@@ -0,0 +1,37 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.hmc;
+
+/**
+ * A log-density on R^n, known up to a constant, with its gradient.
+ */
+public interface LogDensity {
+	/**
+	 * @return The dimension n.
+	 */
+	public int getDimension();
+
+	/**
+	 * @param x The point to evaluate at; not modified.
+	 * @param gradient Array of length n, overwritten with the gradient at x.
+	 * @return The log-density at x; -Infinity or NaN outside the support.
+	 */
+	public double evaluate(double[] x, double[] gradient);
+}
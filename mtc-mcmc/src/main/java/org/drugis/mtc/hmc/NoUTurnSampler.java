@@ -0,0 +1,330 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.hmc;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * The No-U-Turn Sampler (Hoffman and Gelman, 2014, algorithms 3 and 6), with
+ * a diagonal mass matrix. During the first nAdapt transitions the step size is
+ * adapted by dual averaging to reach the target acceptance statistic, and the
+ * mass matrix is estimated from the states in the middle half of that period,
+ * after which the step size adaptation is restarted.
+ */
+public class NoUTurnSampler {
+	private static final double TARGET_ACCEPTANCE = 0.8;
+	private static final double GAMMA = 0.05;
+	private static final double T0 = 10.0;
+	private static final double KAPPA = 0.75;
+	private static final double MAX_ENERGY_ERROR = 1000.0;
+	private static final int DEFAULT_MAX_DEPTH = 10;
+
+	private final LogDensity d_density;
+	private final RandomGenerator d_rng;
+	private final int d_dim;
+	private final int d_nAdapt;
+	private int d_maxDepth = DEFAULT_MAX_DEPTH;
+	private final double[] d_invMetric;
+	private int d_iteration = 0;
+
+	// dual averaging state
+	private double d_stepSize = Double.NaN;
+	private double d_mu;
+	private double d_hBar;
+	private double d_logStepSizeBar;
+	private int d_adaptCount;
+
+	// metric estimation state
+	private final double[] d_mean;
+	private final double[] d_m2;
+	private int d_metricCount = 0;
+
+	private int d_divergences = 0;
+	private int d_depth = 0;
+
+	/**
+	 * Subtree built by the recursion, with its leftmost and rightmost states and a proposal.
+	 */
+	private class Tree {
+		double[] thetaMinus, rMinus, gradMinus;
+		double[] thetaPlus, rPlus, gradPlus;
+		double[] thetaProposal;
+		int n;
+		boolean valid;
+		double alpha;
+		int nAlpha;
+	}
+
+	/**
+	 * @param density The target density.
+	 * @param rng The random source.
+	 * @param nAdapt The number of transitions during which the step size and mass matrix are adapted.
+	 */
+	public NoUTurnSampler(LogDensity density, RandomGenerator rng, int nAdapt) {
+		d_density = density;
+		d_rng = rng;
+		d_dim = density.getDimension();
+		d_nAdapt = nAdapt;
+		d_invMetric = new double[d_dim];
+		Arrays.fill(d_invMetric, 1.0);
+		d_mean = new double[d_dim];
+		d_m2 = new double[d_dim];
+	}
+
+	/**
+	 * Perform one transition.
+	 * @param theta The current state, replaced by the next state.
+	 */
+	public void transition(double[] theta) {
+		if (Double.isNaN(d_stepSize)) {
+			restartAdaptation(theta);
+		}
+
+		final double[] grad0 = new double[d_dim];
+		final double logp0 = d_density.evaluate(theta, grad0);
+		final double[] r0 = new double[d_dim];
+		for (int i = 0; i < d_dim; ++i) {
+			r0[i] = d_rng.nextGaussian() / Math.sqrt(d_invMetric[i]);
+		}
+		final double joint0 = logp0 - kinetic(r0);
+		final double logU = joint0 + Math.log(d_rng.nextDouble());
+
+		Tree tree = new Tree();
+		tree.thetaMinus = theta.clone();
+		tree.thetaPlus = tree.thetaMinus;
+		tree.rMinus = r0;
+		tree.rPlus = r0;
+		tree.gradMinus = grad0;
+		tree.gradPlus = grad0;
+		double[] proposal = theta;
+		int n = 1;
+		boolean valid = true;
+		double alpha = 0.0;
+		int nAlpha = 0;
+		int depth = 0;
+		while (valid && depth < d_maxDepth) {
+			final int direction = d_rng.nextBoolean() ? 1 : -1;
+			final Tree subtree;
+			if (direction == -1) {
+				subtree = buildTree(tree.thetaMinus, tree.rMinus, tree.gradMinus, logU, direction, depth, joint0);
+				tree.thetaMinus = subtree.thetaMinus;
+				tree.rMinus = subtree.rMinus;
+				tree.gradMinus = subtree.gradMinus;
+			} else {
+				subtree = buildTree(tree.thetaPlus, tree.rPlus, tree.gradPlus, logU, direction, depth, joint0);
+				tree.thetaPlus = subtree.thetaPlus;
+				tree.rPlus = subtree.rPlus;
+				tree.gradPlus = subtree.gradPlus;
+			}
+			if (subtree.valid && d_rng.nextDouble() < (double) subtree.n / n) {
+				proposal = subtree.thetaProposal;
+			}
+			n += subtree.n;
+			alpha += subtree.alpha;
+			nAlpha += subtree.nAlpha;
+			valid = subtree.valid && noUTurn(tree.thetaMinus, tree.thetaPlus, tree.rMinus, tree.rPlus);
+			++depth;
+		}
+		d_depth = depth;
+		if (proposal != theta) {
+			System.arraycopy(proposal, 0, theta, 0, d_dim);
+		}
+
+		if (d_iteration < d_nAdapt) {
+			adapt(theta, nAlpha > 0 ? alpha / nAlpha : 0.0);
+		}
+		++d_iteration;
+	}
+
+	private Tree buildTree(double[] theta, double[] r, double[] grad, double logU, int direction, int depth, double joint0) {
+		if (depth == 0) {
+			final double[] theta1 = theta.clone();
+			final double[] r1 = r.clone();
+			final double[] grad1 = grad.clone();
+			final double logp = leapfrog(theta1, r1, grad1, direction * d_stepSize);
+			double joint = logp - kinetic(r1);
+			if (Double.isNaN(joint)) {
+				joint = Double.NEGATIVE_INFINITY;
+			}
+			Tree tree = new Tree();
+			tree.thetaMinus = tree.thetaPlus = tree.thetaProposal = theta1;
+			tree.rMinus = tree.rPlus = r1;
+			tree.gradMinus = tree.gradPlus = grad1;
+			tree.n = logU <= joint ? 1 : 0;
+			tree.valid = logU < joint + MAX_ENERGY_ERROR;
+			if (!tree.valid) {
+				++d_divergences;
+			}
+			tree.alpha = Math.min(1.0, Math.exp(joint - joint0));
+			tree.nAlpha = 1;
+			return tree;
+		}
+
+		final Tree tree = buildTree(theta, r, grad, logU, direction, depth - 1, joint0);
+		if (!tree.valid) {
+			return tree;
+		}
+		final Tree other;
+		if (direction == -1) {
+			other = buildTree(tree.thetaMinus, tree.rMinus, tree.gradMinus, logU, direction, depth - 1, joint0);
+			tree.thetaMinus = other.thetaMinus;
+			tree.rMinus = other.rMinus;
+			tree.gradMinus = other.gradMinus;
+		} else {
+			other = buildTree(tree.thetaPlus, tree.rPlus, tree.gradPlus, logU, direction, depth - 1, joint0);
+			tree.thetaPlus = other.thetaPlus;
+			tree.rPlus = other.rPlus;
+			tree.gradPlus = other.gradPlus;
+		}
+		final int n = tree.n + other.n;
+		if (n > 0 && d_rng.nextDouble() < (double) other.n / n) {
+			tree.thetaProposal = other.thetaProposal;
+		}
+		tree.n = n;
+		tree.alpha += other.alpha;
+		tree.nAlpha += other.nAlpha;
+		tree.valid = other.valid && noUTurn(tree.thetaMinus, tree.thetaPlus, tree.rMinus, tree.rPlus);
+		return tree;
+	}
+
+	/**
+	 * One leapfrog step of size eps, updating theta, r and grad in place.
+	 * @return The log-density at the new position.
+	 */
+	private double leapfrog(double[] theta, double[] r, double[] grad, double eps) {
+		for (int i = 0; i < d_dim; ++i) {
+			r[i] += 0.5 * eps * grad[i];
+			theta[i] += eps * d_invMetric[i] * r[i];
+		}
+		final double logp = d_density.evaluate(theta, grad);
+		for (int i = 0; i < d_dim; ++i) {
+			r[i] += 0.5 * eps * grad[i];
+		}
+		return logp;
+	}
+
+	private double kinetic(double[] r) {
+		double k = 0.0;
+		for (int i = 0; i < d_dim; ++i) {
+			k += d_invMetric[i] * r[i] * r[i];
+		}
+		return 0.5 * k;
+	}
+
+	private boolean noUTurn(double[] thetaMinus, double[] thetaPlus, double[] rMinus, double[] rPlus) {
+		double dotMinus = 0.0;
+		double dotPlus = 0.0;
+		for (int i = 0; i < d_dim; ++i) {
+			final double dTheta = thetaPlus[i] - thetaMinus[i];
+			dotMinus += dTheta * d_invMetric[i] * rMinus[i];
+			dotPlus += dTheta * d_invMetric[i] * rPlus[i];
+		}
+		return dotMinus >= 0 && dotPlus >= 0;
+	}
+
+	private void adapt(double[] theta, double acceptance) {
+		++d_adaptCount;
+		final double w = 1.0 / (d_adaptCount + T0);
+		d_hBar = (1 - w) * d_hBar + w * (TARGET_ACCEPTANCE - acceptance);
+		final double logStepSize = d_mu - Math.sqrt(d_adaptCount) / GAMMA * d_hBar;
+		final double eta = Math.pow(d_adaptCount, -KAPPA);
+		d_logStepSizeBar = eta * logStepSize + (1 - eta) * d_logStepSizeBar;
+		d_stepSize = Math.exp(logStepSize);
+
+		final int windowStart = d_nAdapt / 4;
+		final int windowEnd = 3 * d_nAdapt / 4;
+		if (d_iteration >= windowStart && d_iteration < windowEnd) {
+			++d_metricCount;
+			for (int i = 0; i < d_dim; ++i) {
+				final double delta = theta[i] - d_mean[i];
+				d_mean[i] += delta / d_metricCount;
+				d_m2[i] += delta * (theta[i] - d_mean[i]);
+			}
+		}
+		if (d_iteration == windowEnd - 1 && d_metricCount > 2) {
+			final double n = d_metricCount;
+			for (int i = 0; i < d_dim; ++i) {
+				// regularized towards the unit metric, as in Stan
+				d_invMetric[i] = n / (n + 5.0) * d_m2[i] / (n - 1) + 1E-3 * 5.0 / (n + 5.0);
+			}
+			restartAdaptation(theta);
+		}
+		if (d_iteration == d_nAdapt - 1) {
+			d_stepSize = Math.exp(d_logStepSizeBar);
+		}
+	}
+
+	/**
+	 * Find a reasonable initial step size (algorithm 4) and reset the dual averaging.
+	 */
+	private void restartAdaptation(double[] theta) {
+		double eps = Double.isNaN(d_stepSize) ? 1.0 : d_stepSize;
+		final double[] grad = new double[d_dim];
+		final double logp0 = d_density.evaluate(theta, grad);
+		final double[] r0 = new double[d_dim];
+		for (int i = 0; i < d_dim; ++i) {
+			r0[i] = d_rng.nextGaussian() / Math.sqrt(d_invMetric[i]);
+		}
+		final double joint0 = logp0 - kinetic(r0);
+		int direction = 0;
+		for (int k = 0; k < 100; ++k) {
+			final double[] theta1 = theta.clone();
+			final double[] r1 = r0.clone();
+			final double[] grad1 = grad.clone();
+			final double delta = leapfrog(theta1, r1, grad1, eps) - kinetic(r1) - joint0;
+			final int sign = delta > Math.log(0.5) ? 1 : -1;
+			if (direction == 0) {
+				direction = sign;
+			} else if (sign != direction) {
+				break;
+			}
+			eps = direction > 0 ? eps * 2 : eps / 2;
+		}
+		d_stepSize = eps;
+		d_mu = Math.log(10 * eps);
+		d_hBar = 0.0;
+		d_logStepSizeBar = 0.0;
+		d_adaptCount = 0;
+	}
+
+	public void setMaxDepth(int maxDepth) {
+		d_maxDepth = maxDepth;
+	}
+
+	public double getStepSize() {
+		return d_stepSize;
+	}
+
+	/**
+	 * @return The depth of the trajectory tree in the last transition.
+	 */
+	public int getDepth() {
+		return d_depth;
+	}
+
+	/**
+	 * @return The number of divergent trajectories so far.
+	 */
+	public int getDivergences() {
+		return d_divergences;
+	}
+}
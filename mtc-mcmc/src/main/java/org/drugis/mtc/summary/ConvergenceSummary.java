@@ -36,11 +36,11 @@ public class ConvergenceSummary extends AbstractObservable implements Summary {
 	public ConvergenceSummary(MCMCResults results, Parameter parameter) {
 		d_results = results;
 		d_parameter = parameter;
-		d_results.addResultsListener(new MCMCResultsListener() {
+		SummaryEngine.getInstance(d_results).addListener(new MCMCResultsListener() {
 			public void resultsEvent(MCMCResultsEvent event) {
 				calc();
 			}
-		});
+		}, d_parameter);
 		if (d_results.getNumberOfSamples() > 0) {
 			calc();
 		}
@@ -54,7 +54,9 @@ public class ConvergenceSummary extends AbstractObservable implements Summary {
 	}
 	
 	private void calc() {
-		d_convergence = GelmanRubinConvergence.diagnose(d_results, d_parameter);
+		SampleStatistics stats = SummaryEngine.getInstance(d_results).getStatistics(d_parameter);
+		d_convergence = new GelmanRubinConvergence(stats.getNumberOfSamples(),
+				stats.getChainMeans(), stats.getChainVariances()).getCorrPSRF();
 		d_defined = true;
 		firePropertyChange(PROPERTY_PSRF, null, d_convergence);
 		firePropertyChange(PROPERTY_DEFINED, false, true);
@@ -0,0 +1,138 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.summary;
+
+import org.apache.commons.math3.stat.ranking.NaturalRanking;
+import org.apache.commons.math3.stat.ranking.TiesStrategy;
+
+/**
+ * Statistics of the joint samples of a group of parameters: the last half
+ * of the samples of each chain, over all chains. The cross-products and the
+ * pairwise comparisons are accumulated in a single pass over the samples,
+ * using Welford's updates for the co-moments.
+ *
+ * Optionally, the ranks of the values (0, x_1, ..., x_n) are counted as
+ * well, which gives the rank probabilities of n + 1 treatments when the x_i
+ * are the relative effects of treatments 1..n against treatment 0. Ties are
+ * broken at random, as by RankCounter.
+ */
+public class JointStatistics {
+	private final int d_nSamples;
+	private final int d_n;
+	private final double[][] d_covariance;
+	private final int[][] d_greater; // [i][j]: the number of samples in which x_i > x_j
+	private final int[][] d_rankCount; // [i][r]: the number of samples in which value i has rank r + 1
+
+	/**
+	 * @param nSamples The number of samples available in the results.
+	 * @param samples The (equally long) joint samples of each parameter; they are not modified.
+	 * @param ranks Whether to count the ranks.
+	 */
+	public JointStatistics(int nSamples, double[][] samples, boolean ranks) {
+		d_nSamples = nSamples;
+		final int dim = samples.length;
+		d_n = dim > 0 ? samples[0].length : 0;
+		d_greater = new int[dim][dim];
+		d_rankCount = ranks ? new int[dim + 1][dim + 1] : null;
+		final NaturalRanking ranker = ranks ? new NaturalRanking(TiesStrategy.RANDOM) : null;
+
+		final double[] mean = new double[dim];
+		final double[] dev = new double[dim];
+		final double[][] comoment = new double[dim][dim];
+		final double[] values = new double[dim + 1];
+		for (int k = 0; k < d_n; ++k) {
+			for (int i = 0; i < dim; ++i) {
+				final double x = samples[i][k];
+				values[i + 1] = x;
+				dev[i] = x - mean[i];
+				mean[i] += dev[i] / (k + 1);
+			}
+			for (int i = 0; i < dim; ++i) {
+				final double x = values[i + 1];
+				final double[] comomentRow = comoment[i];
+				final int[] greaterRow = d_greater[i];
+				for (int j = 0; j <= i; ++j) {
+					comomentRow[j] += dev[j] * (x - mean[i]);
+				}
+				for (int j = 0; j < dim; ++j) {
+					if (x > values[j + 1]) {
+						++greaterRow[j];
+					}
+				}
+			}
+			if (ranker != null) {
+				final double[] rank = ranker.rank(values);
+				for (int i = 0; i <= dim; ++i) {
+					++d_rankCount[i][(int) Math.round(rank[i]) - 1];
+				}
+			}
+		}
+
+		d_covariance = new double[dim][dim];
+		for (int i = 0; i < dim; ++i) {
+			for (int j = 0; j <= i; ++j) {
+				d_covariance[i][j] = d_covariance[j][i] = d_n > 1 ? comoment[i][j] / (d_n - 1) : Double.NaN;
+			}
+		}
+	}
+
+	/**
+	 * @return The number of samples available in the results (of which the last half are summarized).
+	 */
+	public int getNumberOfSamples() {
+		return d_nSamples;
+	}
+
+	/**
+	 * The sample covariance matrix.
+	 */
+	public double[][] getCovariance() {
+		final double[][] cov = new double[d_covariance.length][];
+		for (int i = 0; i < cov.length; ++i) {
+			cov[i] = d_covariance[i].clone();
+		}
+		return cov;
+	}
+
+	/**
+	 * The proportion of samples in which parameter i is larger than parameter j.
+	 */
+	public double getProbabilityGreater(int i, int j) {
+		return (double) d_greater[i][j] / (double) d_n;
+	}
+
+	/**
+	 * The probability that value i of (0, x_1, ..., x_n) has rank r, with rank 1 being the smallest.
+	 * @throws IllegalStateException If the ranks were not counted.
+	 */
+	public double getRankProbability(int i, int r) {
+		if (d_rankCount == null) {
+			throw new IllegalStateException("The ranks were not counted");
+		}
+		return (double) d_rankCount[i][r - 1] / (double) d_n;
+	}
+
+	/**
+	 * Whether the ranks were counted.
+	 */
+	public boolean hasRanks() {
+		return d_rankCount != null;
+	}
+}
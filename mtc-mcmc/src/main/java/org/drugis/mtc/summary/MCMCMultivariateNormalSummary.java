@@ -19,11 +19,6 @@
 
 package org.drugis.mtc.summary;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import org.apache.commons.math3.stat.correlation.StorelessCovariance;
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.drugis.common.beans.AbstractObservable;
 import org.drugis.mtc.MCMCResults;
 import org.drugis.mtc.MCMCResultsEvent;
@@ -44,7 +39,7 @@ public class MCMCMultivariateNormalSummary extends AbstractObservable implements
 		d_means = new double[getParameters().length];
 		d_covMatrix = new double[getParameters().length][getParameters().length]; 
 		calculateResults();
-		d_results.addResultsListener(this);
+		SummaryEngine.getInstance(d_results).addJointListener(this, false, d_parameters);
 	}
 
 
@@ -85,21 +80,11 @@ public class MCMCMultivariateNormalSummary extends AbstractObservable implements
 		if (!isReady()) {
 			return;
 		}
-		List<List<Double>> sampleCache = new ArrayList<List<Double>>();
+		SummaryEngine engine = SummaryEngine.getInstance(d_results);
 		for (int i = 0; i < getParameters().length; ++i) {
-			List<Double> samples = SummaryUtil.getAllChainsLastHalfSamples(d_results, getParameters()[i]);
-			sampleCache.add(samples);
-			d_means[i] = SummaryUtil.evaluate(new Mean(), samples);
-		}
-		StorelessCovariance cov = new StorelessCovariance(getParameters().length);
-		double[] rowData = new double[getParameters().length];
-		for (int row = 0; row < sampleCache.get(0).size(); ++row) {
-			for (int col = 0; col < getParameters().length; ++col) {
-				rowData[col] = sampleCache.get(col).get(row);
-			}
-			cov.increment(rowData);
+			d_means[i] = engine.getStatistics(getParameters()[i]).getMean();
 		}
-		d_covMatrix = cov.getData();
+		d_covMatrix = engine.getJointStatistics(getParameters()).getCovariance();
 		boolean wasDefined = d_isDefined;
 		d_isDefined = true;
 		firePropertyChange(PROPERTY_DEFINED, wasDefined, d_isDefined);
@@ -0,0 +1,67 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.summary;
+
+import org.drugis.common.beans.AbstractObservable;
+import org.drugis.mtc.MCMCResults;
+import org.drugis.mtc.MCMCResultsEvent;
+import org.drugis.mtc.MCMCResultsListener;
+import org.drugis.mtc.Parameter;
+
+/**
+ * The Monte Carlo standard error of the posterior mean of a parameter: the
+ * posterior standard deviation divided by the root of the effective sample size.
+ * @see SampleStatistics#getMonteCarloStandardError()
+ */
+public class MonteCarloStandardErrorSummary extends AbstractObservable implements Summary {
+	public static final String PROPERTY_STANDARD_ERROR = "standardError";
+	private final MCMCResults d_results;
+	private final Parameter d_parameter;
+	private double d_value;
+	private boolean d_defined = false;
+
+	public MonteCarloStandardErrorSummary(MCMCResults results, Parameter parameter) {
+		d_results = results;
+		d_parameter = parameter;
+		SummaryEngine.getInstance(d_results).addListener(new MCMCResultsListener() {
+			public void resultsEvent(MCMCResultsEvent event) {
+				calc();
+			}
+		}, d_parameter);
+		if (d_results.getNumberOfSamples() > 0) {
+			calc();
+		}
+	}
+
+	private void calc() {
+		d_value = SummaryEngine.getInstance(d_results).getStatistics(d_parameter).getMonteCarloStandardError();
+		d_defined = true;
+		firePropertyChange(PROPERTY_STANDARD_ERROR, null, d_value);
+		firePropertyChange(PROPERTY_DEFINED, false, true);
+	}
+
+	public boolean getDefined() {
+		return d_defined;
+	}
+
+	public double getStandardError() {
+		return d_value;
+	}
+}
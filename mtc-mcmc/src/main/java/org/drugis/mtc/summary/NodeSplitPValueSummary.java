@@ -19,8 +19,6 @@
 
 package org.drugis.mtc.summary;
 
-import java.util.List;
-
 import org.drugis.common.beans.AbstractObservable;
 import org.drugis.mtc.MCMCResults;
 import org.drugis.mtc.MCMCResultsEvent;
@@ -48,11 +46,11 @@ public class NodeSplitPValueSummary extends AbstractObservable implements
 		d_indirect = indir;
 		d_defined = false;
 		
-		d_results.addResultsListener(new MCMCResultsListener() {
+		SummaryEngine.getInstance(d_results).addJointListener(new MCMCResultsListener() {
 			public void resultsEvent(MCMCResultsEvent event) {
 				calc();
 			}
-		});		
+		}, false, d_direct, d_indirect);		
 		if (d_results.getNumberOfSamples() > 0) {
 			calc();
 		}
@@ -66,13 +64,7 @@ public class NodeSplitPValueSummary extends AbstractObservable implements
 	}
 
 	private void calculatePValue() {
-		int nDirLargerThanIndir = 0;
-		List<Double> directSamples = SummaryUtil.getAllChainsLastHalfSamples(d_results, d_direct);
-		List<Double> indirectSamples = SummaryUtil.getAllChainsLastHalfSamples(d_results, d_indirect);
-		for (int i = 0; i < directSamples.size(); ++i) {
-			if (directSamples.get(i) > indirectSamples.get(i)) ++nDirLargerThanIndir;
-		}
-		double prop = (double) nDirLargerThanIndir / (double) directSamples.size();
+		double prop = SummaryEngine.getInstance(d_results).getJointStatistics(d_direct, d_indirect).getProbabilityGreater(0, 1);
 		d_pvalue = 2.0 * Math.min(prop, 1.0 - prop);
 	}
 
@@ -19,10 +19,6 @@
 
 package org.drugis.mtc.summary;
 
-import java.util.List;
-
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
-import org.apache.commons.math3.stat.descriptive.moment.StandardDeviation;
 import org.drugis.common.beans.AbstractObservable;
 import org.drugis.mtc.MCMCResults;
 import org.drugis.mtc.MCMCResultsEvent;
@@ -46,7 +42,7 @@ public class NormalSummary extends AbstractObservable implements MCMCResultsList
 		d_results = results;
 		d_parameter = parameter;
 		calculateResults();
-		results.addResultsListener(this);
+		SummaryEngine.getInstance(results).addListener(this, parameter);
 	}
 
 	public void resultsEvent(MCMCResultsEvent event) {
@@ -74,9 +70,9 @@ public class NormalSummary extends AbstractObservable implements MCMCResultsList
 	
 	private synchronized void calculateResults() {
 		if (!isReady()) return;
-		List<Double> samples = SummaryUtil.getAllChainsLastHalfSamples(d_results, d_parameter);
-		d_mean = SummaryUtil.evaluate(new Mean(), samples);
-		d_stdev = SummaryUtil.evaluate(new StandardDeviation(), samples);	
+		SampleStatistics stats = SummaryEngine.getInstance(d_results).getStatistics(d_parameter);
+		d_mean = stats.getMean();
+		d_stdev = stats.getStandardDeviation();
 		d_defined = true;
 		firePropertyChange(PROPERTY_DEFINED, null, d_defined);
 		firePropertyChange(PROPERTY_MEAN, null, d_mean);
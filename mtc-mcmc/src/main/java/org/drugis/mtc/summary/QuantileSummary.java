@@ -19,9 +19,6 @@
 
 package org.drugis.mtc.summary;
 
-import java.util.List;
-
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
 import org.drugis.common.beans.AbstractObservable;
 import org.drugis.mtc.MCMCResults;
 import org.drugis.mtc.MCMCResultsEvent;
@@ -46,7 +43,8 @@ public class QuantileSummary extends AbstractObservable implements MCMCResultsLi
 		d_probabilities = probabilities;
 		d_results = results;
 		d_parameter = parameter;
-		d_results.addResultsListener(this);
+		SummaryEngine.getInstance(d_results).addQuantiles(d_parameter, d_probabilities);
+		SummaryEngine.getInstance(d_results).addListener(this, d_parameter);
 		calculateResults();
 	}
 	
@@ -101,29 +99,12 @@ public class QuantileSummary extends AbstractObservable implements MCMCResultsLi
 		return (d_quantiles == null) ? 0 : d_quantiles.length;
 	}
 	
-	private double calculateQuantile(int i, Percentile q) {
-		double p = getProbability(i);
-		return q.evaluate(p * 100);
-	}
-
-	private Percentile getSamples() {
-		List<Double> list = SummaryUtil.getAllChainsLastHalfSamples(d_results, d_parameter);
-		double[] arr = new double[list.size()];
-		for (int i = 0; i < list.size(); ++i) {
-			arr[i] = list.get(i);
-		}
-
-		Percentile percentile = new Percentile();
-		percentile.setData(arr);
-		return percentile;
-	}
-
 	private synchronized void calculateResults() {
 		if (!isReady()) return;
-		Percentile samples = getSamples();
+		SampleStatistics stats = SummaryEngine.getInstance(d_results).getStatistics(d_parameter);
 		d_quantiles = new double[d_probabilities.length];
 		for(int i = 0; i < d_quantiles.length; i++) {
-			d_quantiles[i] = calculateQuantile(i, samples);
+			d_quantiles[i] = stats.getQuantile(getProbability(i));
 		}
 		 
 		d_defined = true;
@@ -19,7 +19,6 @@
 
 package org.drugis.mtc.summary;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -40,9 +39,9 @@ public class RankProbabilitySummary extends AbstractObservable implements MCMCRe
 
 	public RankProbabilitySummary(MCMCResults results, List<Treatment> treatments) {
 		d_results = results;
-		d_results.addResultsListener(this);
 		d_treatments = treatments;
 		d_n = treatments.size();
+		SummaryEngine.getInstance(d_results).addJointListener(this, true, getParameters());
 		calculate();
 	}	
 	
@@ -77,33 +76,27 @@ public class RankProbabilitySummary extends AbstractObservable implements MCMCRe
 		if (!d_ready) {
 			return;
 		}
-		Treatment base = d_treatments.get(0);
-		List<List<Double>> samples = new ArrayList<List<Double>>();
-		for (int i = 1; i < d_n; ++i ) {
-			samples.add(SummaryUtil.getAllChainsLastHalfSamples(d_results, new BasicParameter(base, d_treatments.get(i))));
-		}
-
-		int[][] rankCount = new int[d_n][d_n];
-		final int nSamples = samples.get(0).size();
-		for (int i = 0; i < nSamples; ++i) {
-			double[] data = new double[d_n];
-			for (int j = 1; j < d_n; ++j) {
-				data[j] = samples.get(j - 1).get(i);
-			}
-			int[] ranks = RankCounter.rank(data);
-			for (int j = 0; j < d_n; ++j) {
-				rankCount[j][ranks[j] - 1] += 1;
-			}
-		}
-		
+		JointStatistics stats = SummaryEngine.getInstance(d_results).getJointStatistics(getParameters());
 		d_rankProbability = new double[d_n][d_n];
 		for (int i = 0; i < d_n; ++i) {
 			for (int j = 0; j < d_n; ++j) {
-				d_rankProbability[i][j] = ((double)rankCount[i][j]) / ((double)nSamples);
+				d_rankProbability[i][j] = stats.getRankProbability(i, j + 1);
 			}
 		}
 	}
 
+	/**
+	 * The relative effects of each treatment against the first.
+	 */
+	private BasicParameter[] getParameters() {
+		Treatment base = d_treatments.get(0);
+		BasicParameter[] parameters = new BasicParameter[d_n - 1];
+		for (int i = 1; i < d_n; ++i) {
+			parameters[i - 1] = new BasicParameter(base, d_treatments.get(i));
+		}
+		return parameters;
+	}
+
 	public boolean getDefined() {
 		return d_ready; 
 	}
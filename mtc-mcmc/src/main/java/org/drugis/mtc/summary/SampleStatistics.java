@@ -0,0 +1,195 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.summary;
+
+import java.util.Arrays;
+
+import org.drugis.mtc.MCMCResults;
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.convergence.EffectiveSampleSize;
+
+/**
+ * Statistics of the last half of the samples of one parameter, over all
+ * chains. The samples are read from the results once (or given by the
+ * caller); the moments (overall and per chain) are accumulated in the same
+ * pass using Welford's updates.
+ *
+ * Only the statistics are kept: the moments, the effective sample size, and
+ * the quantiles for the probabilities given at construction. The samples
+ * themselves are discarded, so that keeping the statistics of many (derived)
+ * parameters does not duplicate the sample store on the heap.
+ */
+public class SampleStatistics {
+	private final int d_nSamples;
+	private final double d_mean;
+	private final double d_variance;
+	private final double[] d_chainMeans;
+	private final double[] d_chainVariances;
+	private final double d_effectiveSampleSize;
+	private final double[] d_probabilities;
+	private final double[] d_quantiles;
+
+	/**
+	 * @param probabilities The probabilities, in [0, 1], to compute the quantiles of.
+	 */
+	public SampleStatistics(MCMCResults results, Parameter parameter, double[] probabilities) {
+		this(results.getNumberOfSamples(), SummaryUtil.getLastHalfSamples(results, parameter),
+				results.getNumberOfChains(), probabilities, false);
+	}
+
+	/**
+	 * Compute the statistics from samples that were already read, so that they
+	 * can be shared with other computations (e.g. JointStatistics).
+	 * @param nSamples The number of samples available in the results.
+	 * @param samples The last half of the samples of each chain, concatenated; they are not modified.
+	 * @param nChains The number of chains.
+	 * @param probabilities The probabilities, in [0, 1], to compute the quantiles of.
+	 * @see SummaryUtil#getLastHalfSamples(MCMCResults, Parameter)
+	 */
+	public SampleStatistics(int nSamples, double[] samples, int nChains, double[] probabilities) {
+		this(nSamples, samples, nChains, probabilities, true);
+	}
+
+	private SampleStatistics(int nSamples, double[] samples, int nChains, double[] probabilities, boolean shared) {
+		d_nSamples = nSamples;
+		final int half = samples.length / nChains;
+		d_chainMeans = new double[nChains];
+		d_chainVariances = new double[nChains];
+
+		double mean = 0.0;
+		double m2 = 0.0;
+		int n = 0;
+		for (int c = 0; c < nChains; ++c) {
+			final int offset = c * half;
+			double chainMean = 0.0;
+			double chainM2 = 0.0;
+			for (int i = 0; i < half; ++i) {
+				final double x = samples[offset + i];
+				final double chainDev = x - chainMean;
+				chainMean += chainDev / (i + 1);
+				chainM2 += chainDev * (x - chainMean);
+				++n;
+				final double dev = x - mean;
+				mean += dev / n;
+				m2 += dev * (x - mean);
+			}
+			d_chainMeans[c] = half > 0 ? chainMean : Double.NaN;
+			d_chainVariances[c] = half > 1 ? chainM2 / (half - 1) : Double.NaN;
+		}
+		d_mean = n > 0 ? mean : Double.NaN;
+		d_variance = n > 1 ? m2 / (n - 1) : Double.NaN;
+		d_effectiveSampleSize = EffectiveSampleSize.calculate(samples, nChains);
+
+		d_probabilities = probabilities.clone();
+		Arrays.sort(d_probabilities);
+		d_quantiles = new double[d_probabilities.length];
+		if (d_probabilities.length > 0) {
+			// shared samples must stay in chain order; otherwise they are no longer needed
+			final double[] sorted = shared ? samples.clone() : samples;
+			Arrays.sort(sorted);
+			for (int i = 0; i < d_quantiles.length; ++i) {
+				d_quantiles[i] = quantile(sorted, d_probabilities[i]);
+			}
+		}
+	}
+
+	/**
+	 * @return The number of samples available in the results (of which the last half are summarized).
+	 */
+	public int getNumberOfSamples() {
+		return d_nSamples;
+	}
+
+	public double getMean() {
+		return d_mean;
+	}
+
+	public double getVariance() {
+		return d_variance;
+	}
+
+	public double getStandardDeviation() {
+		return Math.sqrt(d_variance);
+	}
+
+	public double[] getChainMeans() {
+		return d_chainMeans.clone();
+	}
+
+	public double[] getChainVariances() {
+		return d_chainVariances.clone();
+	}
+
+	/**
+	 * The multi-chain effective sample size.
+	 * @see EffectiveSampleSize
+	 */
+	public double getEffectiveSampleSize() {
+		return d_effectiveSampleSize;
+	}
+
+	/**
+	 * The Monte Carlo standard error of the mean, based on the effective sample size.
+	 */
+	public double getMonteCarloStandardError() {
+		return getStandardDeviation() / Math.sqrt(getEffectiveSampleSize());
+	}
+
+	/**
+	 * The probabilities for which the quantiles were computed, in increasing order.
+	 */
+	public double[] getProbabilities() {
+		return d_probabilities.clone();
+	}
+
+	/**
+	 * Get the quantile with probability p ("type 6" quantiles in R).
+	 * @param p One of the probabilities given at construction.
+	 * @throws IllegalArgumentException If the quantile for p was not computed.
+	 */
+	public double getQuantile(double p) {
+		final int idx = Arrays.binarySearch(d_probabilities, p);
+		if (idx < 0) {
+			throw new IllegalArgumentException("The quantile for probability " + p + " was not computed");
+		}
+		return d_quantiles[idx];
+	}
+
+	/**
+	 * Estimate the quantile with probability p of the sorted samples.
+	 */
+	private static double quantile(double[] sorted, double p) {
+		final int n = sorted.length;
+		if (n == 0) {
+			return Double.NaN;
+		}
+		final double pos = p * (n + 1);
+		if (pos < 1) {
+			return sorted[0];
+		}
+		if (pos >= n) {
+			return sorted[n - 1];
+		}
+		final int intPos = (int) Math.floor(pos);
+		final double lower = sorted[intPos - 1];
+		final double upper = sorted[intPos];
+		return lower + (pos - intPos) * (upper - lower);
+	}
+}
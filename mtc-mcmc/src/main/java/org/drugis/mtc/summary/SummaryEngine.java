@@ -0,0 +1,398 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.summary;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.drugis.mtc.MCMCResults;
+import org.drugis.mtc.MCMCResultsEvent;
+import org.drugis.mtc.MCMCResultsListener;
+import org.drugis.mtc.Parameter;
+
+/**
+ * Shared summary computation for one MCMCResults. Summaries register with
+ * the engine rather than with the results, stating the parameters they use
+ * and, if they need their joint samples, the groups of parameters they use
+ * jointly. On a results event, the engine reads the last half of the samples
+ * of every registered parameter once, one parameter per task on a shared
+ * thread pool, and computes its SampleStatistics. The samples of parameters
+ * that are part of a group are kept until the JointStatistics of the groups
+ * (covariances, pairwise comparisons, rank counts) have been computed from
+ * them, again one group per task. The engine then forwards the event to the
+ * summaries, which read the statistics from the engine. Each sample is
+ * therefore read once per event, however many summaries use it.
+ */
+public class SummaryEngine implements MCMCResultsListener {
+	private static final Map<MCMCResults, SummaryEngine> s_engines = new WeakHashMap<MCMCResults, SummaryEngine>();
+	private static ExecutorService s_executor;
+
+	private final WeakReference<MCMCResults> d_results;
+	private final Map<MCMCResultsListener, Registration> d_registrations = new LinkedHashMap<MCMCResultsListener, Registration>();
+	private final Map<Parameter, SampleStatistics> d_statistics = new HashMap<Parameter, SampleStatistics>();
+	private final Map<List<Parameter>, JointStatistics> d_jointStatistics = new HashMap<List<Parameter>, JointStatistics>();
+	private final Map<Parameter, SortedSet<Double>> d_probabilities = new HashMap<Parameter, SortedSet<Double>>();
+
+	/**
+	 * The parameters and groups of parameters used by one listener.
+	 */
+	private static class Registration {
+		public final Set<Parameter> parameters = new LinkedHashSet<Parameter>();
+		public final Map<List<Parameter>, Boolean> groups = new LinkedHashMap<List<Parameter>, Boolean>(); // group -> ranks
+	}
+
+	/**
+	 * Get the engine for the given results, creating it if necessary.
+	 */
+	public static SummaryEngine getInstance(MCMCResults results) {
+		synchronized (s_engines) {
+			SummaryEngine engine = s_engines.get(results);
+			if (engine == null) {
+				engine = new SummaryEngine(results);
+				s_engines.put(results, engine);
+			}
+			return engine;
+		}
+	}
+
+	/**
+	 * Set the thread pool on which statistics are computed. By default, a
+	 * pool with one daemon thread per available processor is used.
+	 */
+	public static synchronized void setExecutorService(ExecutorService executor) {
+		s_executor = executor;
+	}
+
+	private static synchronized ExecutorService getExecutorService() {
+		if (s_executor == null) {
+			s_executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "SummaryEngine");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return s_executor;
+	}
+
+	private SummaryEngine(MCMCResults results) {
+		// Weak, because the engine is the value in a WeakHashMap keyed on the results.
+		d_results = new WeakReference<MCMCResults>(results);
+		results.addResultsListener(this);
+	}
+
+	/**
+	 * Register a summary that uses the statistics of the given parameters.
+	 * The listener is notified of results events after the statistics have been updated.
+	 */
+	public synchronized void addListener(MCMCResultsListener l, Parameter ... parameters) {
+		Collections.addAll(getRegistration(l).parameters, parameters);
+	}
+
+	/**
+	 * Register a summary that uses the joint statistics of the given group of
+	 * parameters, as well as the statistics of each of them.
+	 * The listener is notified of results events after the statistics have been updated.
+	 * @param ranks Whether the summary needs the rank counts.
+	 * @see #getJointStatistics(Parameter...)
+	 */
+	public synchronized void addJointListener(MCMCResultsListener l, boolean ranks, Parameter ... group) {
+		Registration registration = getRegistration(l);
+		Collections.addAll(registration.parameters, group);
+		List<Parameter> key = Arrays.asList(group.clone());
+		registration.groups.put(key, ranks || Boolean.TRUE.equals(registration.groups.get(key)));
+	}
+
+	/**
+	 * Unregister the listener. The statistics of parameters and groups that
+	 * are no longer used by any listener are no longer computed on results
+	 * events, and their registered quantiles are discarded.
+	 */
+	public synchronized void removeListener(MCMCResultsListener l) {
+		if (d_registrations.remove(l) == null) {
+			return;
+		}
+		Set<Parameter> parameters = getParameters();
+		d_statistics.keySet().retainAll(parameters);
+		d_probabilities.keySet().retainAll(parameters);
+		d_jointStatistics.keySet().retainAll(getGroups().keySet());
+	}
+
+	private Registration getRegistration(MCMCResultsListener l) {
+		Registration registration = d_registrations.get(l);
+		if (registration == null) {
+			registration = new Registration();
+			d_registrations.put(l, registration);
+		}
+		return registration;
+	}
+
+	/**
+	 * The parameters used by any listener.
+	 */
+	private Set<Parameter> getParameters() {
+		Set<Parameter> parameters = new LinkedHashSet<Parameter>();
+		for (Registration registration : d_registrations.values()) {
+			parameters.addAll(registration.parameters);
+		}
+		return parameters;
+	}
+
+	/**
+	 * The groups used by any listener, and whether any of them needs the rank counts.
+	 */
+	private Map<List<Parameter>, Boolean> getGroups() {
+		Map<List<Parameter>, Boolean> groups = new LinkedHashMap<List<Parameter>, Boolean>();
+		for (Registration registration : d_registrations.values()) {
+			for (Map.Entry<List<Parameter>, Boolean> entry : registration.groups.entrySet()) {
+				groups.put(entry.getKey(), entry.getValue() || Boolean.TRUE.equals(groups.get(entry.getKey())));
+			}
+		}
+		return groups;
+	}
+
+	private boolean isRanked(List<Parameter> group) {
+		return Boolean.TRUE.equals(getGroups().get(group));
+	}
+
+	/**
+	 * Register the probabilities for which the quantiles of the given parameter are needed.
+	 * @see SampleStatistics#getQuantile(double)
+	 */
+	public synchronized void addQuantiles(Parameter parameter, double ... probabilities) {
+		SortedSet<Double> set = d_probabilities.get(parameter);
+		if (set == null) {
+			set = new TreeSet<Double>();
+			d_probabilities.put(parameter, set);
+		}
+		boolean changed = false;
+		for (double p : probabilities) {
+			changed |= set.add(p);
+		}
+		if (changed) {
+			d_statistics.remove(parameter);
+		}
+	}
+
+	private synchronized double[] getProbabilities(Parameter parameter) {
+		SortedSet<Double> set = d_probabilities.get(parameter);
+		if (set == null) {
+			return new double[0];
+		}
+		double[] probabilities = new double[set.size()];
+		int i = 0;
+		for (double p : set) {
+			probabilities[i++] = p;
+		}
+		return probabilities;
+	}
+
+	/**
+	 * Get the statistics of the given parameter, computing them if they are not yet available.
+	 * The statistics are computed without holding the engine's lock.
+	 */
+	public SampleStatistics getStatistics(Parameter parameter) {
+		final MCMCResults results = d_results.get();
+		while (true) {
+			final double[] probabilities;
+			synchronized (this) {
+				SampleStatistics stats = d_statistics.get(parameter);
+				if (stats != null && stats.getNumberOfSamples() == results.getNumberOfSamples()) {
+					return stats;
+				}
+				probabilities = getProbabilities(parameter);
+			}
+			SampleStatistics stats = new SampleStatistics(results, parameter, probabilities);
+			synchronized (this) {
+				// unless quantiles were registered in the meantime
+				if (Arrays.equals(probabilities, getProbabilities(parameter))) {
+					d_statistics.put(parameter, stats);
+					return stats;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the joint statistics of the given group of parameters, computing
+	 * them if they are not yet available. The rank counts are available if
+	 * the group was registered for them.
+	 * The statistics are computed without holding the engine's lock.
+	 * @see #addJointListener(MCMCResultsListener, boolean, Parameter...)
+	 */
+	public JointStatistics getJointStatistics(Parameter ... group) {
+		final MCMCResults results = d_results.get();
+		final List<Parameter> key = Arrays.asList(group.clone());
+		while (true) {
+			final boolean ranks;
+			final int nSamples;
+			synchronized (this) {
+				JointStatistics stats = d_jointStatistics.get(key);
+				nSamples = results.getNumberOfSamples();
+				if (stats != null && stats.getNumberOfSamples() == nSamples) {
+					return stats;
+				}
+				ranks = isRanked(key);
+			}
+			double[][] samples = new double[group.length][];
+			for (int i = 0; i < group.length; ++i) {
+				samples[i] = readSamples(results, group[i], nSamples);
+			}
+			JointStatistics stats = new JointStatistics(nSamples, samples, ranks);
+			synchronized (this) {
+				// unless the ranks were requested in the meantime
+				if (ranks == isRanked(key)) {
+					d_jointStatistics.put(key, stats);
+					return stats;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The last half of the given number of samples of each chain, concatenated.
+	 */
+	private static double[] readSamples(MCMCResults results, Parameter parameter, int nSamples) {
+		final int p = results.findParameter(parameter);
+		final int nChains = results.getNumberOfChains();
+		final int half = nSamples / 2;
+		final double[] samples = new double[nChains * half];
+		for (int c = 0; c < nChains; ++c) {
+			results.getSamples(p, c, half, 2 * half, samples, c * half);
+		}
+		return samples;
+	}
+
+	public void resultsEvent(MCMCResultsEvent event) {
+		final List<MCMCResultsListener> listeners;
+		synchronized (this) {
+			d_statistics.clear();
+			d_jointStatistics.clear();
+			listeners = new ArrayList<MCMCResultsListener>(d_registrations.keySet());
+		}
+		if (d_results.get().getNumberOfSamples() > 0) {
+			update();
+		}
+		for (MCMCResultsListener l : listeners) {
+			l.resultsEvent(event);
+		}
+	}
+
+	/**
+	 * Compute the statistics of all registered parameters and groups on the
+	 * thread pool. The samples of each parameter are read once, and shared
+	 * by its SampleStatistics and the JointStatistics of its groups.
+	 */
+	private void update() {
+		final MCMCResults results = d_results.get();
+		final int nSamples = results.getNumberOfSamples();
+		final int nChains = results.getNumberOfChains();
+		final List<Parameter> parameters;
+		final List<double[]> probabilities = new ArrayList<double[]>();
+		final List<List<Parameter>> groups;
+		final List<Boolean> ranks;
+		synchronized (this) {
+			parameters = new ArrayList<Parameter>(getParameters());
+			for (Parameter p : parameters) {
+				probabilities.add(getProbabilities(p));
+			}
+			Map<List<Parameter>, Boolean> groupMap = getGroups();
+			groups = new ArrayList<List<Parameter>>(groupMap.keySet());
+			ranks = new ArrayList<Boolean>(groupMap.values());
+		}
+
+		final Set<Parameter> grouped = new HashSet<Parameter>();
+		for (List<Parameter> group : groups) {
+			grouped.addAll(group);
+		}
+		final Map<Parameter, double[]> samples = new ConcurrentHashMap<Parameter, double[]>();
+		List<Callable<SampleStatistics>> tasks = new ArrayList<Callable<SampleStatistics>>();
+		for (int i = 0; i < parameters.size(); ++i) {
+			final Parameter p = parameters.get(i);
+			final double[] probs = probabilities.get(i);
+			tasks.add(new Callable<SampleStatistics>() {
+				public SampleStatistics call() {
+					double[] x = readSamples(results, p, nSamples);
+					if (grouped.contains(p)) {
+						samples.put(p, x);
+					}
+					return new SampleStatistics(nSamples, x, nChains, probs);
+				}
+			});
+		}
+		List<Callable<JointStatistics>> jointTasks = new ArrayList<Callable<JointStatistics>>();
+		for (int i = 0; i < groups.size(); ++i) {
+			final List<Parameter> group = groups.get(i);
+			final boolean ranked = ranks.get(i);
+			jointTasks.add(new Callable<JointStatistics>() {
+				public JointStatistics call() {
+					double[][] x = new double[group.size()][];
+					for (int j = 0; j < x.length; ++j) {
+						x[j] = samples.get(group.get(j));
+					}
+					return new JointStatistics(nSamples, x, ranked);
+				}
+			});
+		}
+
+		try {
+			List<Future<SampleStatistics>> futures = getExecutorService().invokeAll(tasks);
+			List<Future<JointStatistics>> jointFutures = getExecutorService().invokeAll(jointTasks);
+			synchronized (this) {
+				for (int i = 0; i < parameters.size(); ++i) {
+					// unless quantiles were registered in the meantime
+					if (Arrays.equals(probabilities.get(i), getProbabilities(parameters.get(i)))) {
+						d_statistics.put(parameters.get(i), futures.get(i).get());
+					}
+				}
+				for (int i = 0; i < groups.size(); ++i) {
+					// unless the ranks were requested in the meantime
+					if (ranks.get(i) == isRanked(groups.get(i))) {
+						d_jointStatistics.put(groups.get(i), jointFutures.get(i).get());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); // the statistics will be computed on demand
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Failed to compute summary statistics", e.getCause());
+		}
+	}
+}
@@ -99,6 +99,12 @@ public class SummaryUtil {
 	}
 
 
+	public static double evaluate(StorelessUnivariateStatistic stat, double[] vals) {
+		stat.clear();
+		stat.incrementAll(vals);
+		return stat.getResult();
+	}
+
 	public static double evaluate(StorelessUnivariateStatistic stat, List<Double> vals) {
 		stat.clear();
 		for (Double d : vals) {
@@ -125,4 +131,30 @@ public class SummaryUtil {
 		int p = results.findParameter(parameter);
 		return new LastHalfView(new ResultsView(results, p, c));
 	}
+
+	/**
+	 * Get the last 1/2 of the samples from each chain in results, for parameter, concatenated into one array.
+	 * Unlike getAllChainsLastHalfSamples, this does not box the samples.
+	 */
+	public static double[] getLastHalfSamples(MCMCResults results, Parameter parameter) {
+		int p = results.findParameter(parameter);
+		int half = results.getNumberOfSamples() / 2;
+		double[] samples = new double[results.getNumberOfChains() * half];
+		for (int c = 0; c < results.getNumberOfChains(); ++c) {
+			results.getSamples(p, c, half, 2 * half, samples, c * half);
+		}
+		return samples;
+	}
+
+	/**
+	 * Get the last 1/2 of the samples from one chain in results, for parameter.
+	 * Unlike getOneChainLastHalfSamples, this does not box the samples.
+	 */
+	public static double[] getLastHalfSamples(MCMCResults results, Parameter parameter, int c) {
+		int p = results.findParameter(parameter);
+		int half = results.getNumberOfSamples() / 2;
+		double[] samples = new double[half];
+		results.getSamples(p, c, half, 2 * half, samples, 0);
+		return samples;
+	}
 }
@@ -23,6 +23,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -88,6 +89,16 @@ public class FileResults implements MCMCResults {
 		return d_samples[c][p][i];
 	}
 
+	public void getSamples(int p, int c, int from, int to, double[] dst, int offset) {
+		if (!d_available) throw new IndexOutOfBoundsException("No samples available");
+		System.arraycopy(d_samples[c][p], from, dst, offset, to - from);
+	}
+
+	public DoubleBuffer getSampleBuffer(int p, int c) {
+		if (!d_available) throw new IndexOutOfBoundsException("No samples available");
+		return DoubleBuffer.wrap(d_samples[c][p]).asReadOnlyBuffer();
+	}
+
 	public double[] getSamples(int p, int c) {
 		if (!d_available) throw new IndexOutOfBoundsException("No samples available");
 		return d_samples[c][p];
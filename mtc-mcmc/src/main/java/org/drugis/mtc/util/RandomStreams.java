@@ -0,0 +1,90 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.util;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
+
+/**
+ * Factory for independent, reproducible random number streams. Each stream
+ * is a separate generator that is seeded from the master seed and the
+ * stream's coordinates (e.g. the chain index) through the SplitMix64 mixing
+ * function, so streams do not share any state and can be used from different
+ * threads without contention. The same master seed always yields the same
+ * streams.
+ */
+public class RandomStreams {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final int SEED_LENGTH = 8;
+
+	private final long d_seed;
+
+	/**
+	 * @param seed The master seed.
+	 */
+	public RandomStreams(long seed) {
+		d_seed = seed;
+	}
+
+	/**
+	 * Create streams from the given seed, or from a time-based seed if it is null.
+	 */
+	public static RandomStreams create(Long seed) {
+		return new RandomStreams(seed != null ? seed : mix(System.nanoTime() ^ System.currentTimeMillis()));
+	}
+
+	public long getSeed() {
+		return d_seed;
+	}
+
+	/**
+	 * Create the random stream for the given chain.
+	 */
+	public RandomGenerator createStream(int chain) {
+		return createStream(chain, -1);
+	}
+
+	/**
+	 * Create a sub-stream of the given chain, e.g. for a per-study update.
+	 * @param chain The chain index.
+	 * @param index The index of the sub-stream within the chain.
+	 */
+	public RandomGenerator createStream(int chain, int index) {
+		long state = mix(d_seed + GOLDEN_GAMMA * (chain + 1));
+		state = mix(state + GOLDEN_GAMMA * (index + 2));
+		int[] seed = new int[SEED_LENGTH];
+		for (int i = 0; i < SEED_LENGTH; i += 2) {
+			state += GOLDEN_GAMMA;
+			long z = mix(state);
+			seed[i] = (int) (z >>> 32);
+			seed[i + 1] = (int) z;
+		}
+		return new Well19937c(seed);
+	}
+
+	/**
+	 * The SplitMix64 finalizer: a bijective mixing function on longs.
+	 */
+	static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
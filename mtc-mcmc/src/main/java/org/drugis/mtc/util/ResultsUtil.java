@@ -25,9 +25,7 @@ import org.drugis.mtc.Parameter;
 public class ResultsUtil {
 	public static double[] getSamples(MCMCResults r, int p, int c) {
 		double[] samples = new double[r.getNumberOfSamples()];
-		for (int i = 0; i < r.getNumberOfSamples(); ++i) {
-			samples[i] = r.getSample(p, c, i);
-		}
+		r.getSamples(p, c, 0, samples.length, samples, 0);
 		return samples;
 	}
 
@@ -19,6 +19,7 @@
 
 package org.drugis.mtc.util;
 
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -69,6 +70,20 @@ public class WindowResults implements MCMCResults {
 		return d_nested.getSample(p, c, i + d_start);
 	}
 
+	public void getSamples(int p, int c, int from, int to, double[] dst, int offset) {
+		if (from < 0 || to > getNumberOfSamples() || from > to) {
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds: " + getNumberOfSamples());
+		}
+		d_nested.getSamples(p, c, from + d_start, to + d_start, dst, offset);
+	}
+
+	public DoubleBuffer getSampleBuffer(int p, int c) {
+		DoubleBuffer buffer = d_nested.getSampleBuffer(p, c);
+		buffer.limit(d_end);
+		buffer.position(d_start);
+		return buffer.slice();
+	}
+
 	public void removeResultsListener(MCMCResultsListener l) {
 		d_listeners.remove(l);
 	}
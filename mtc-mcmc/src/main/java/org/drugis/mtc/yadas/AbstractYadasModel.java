@@ -19,15 +19,16 @@
 
 package org.drugis.mtc.yadas;
 
+import gov.lanl.yadas.MCMCBond;
 import gov.lanl.yadas.MCMCParameter;
 import gov.lanl.yadas.MCMCUpdate;
-import gov.lanl.yadas.UpdateTuner;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.math3.random.RandomGenerator;
 import org.drugis.common.threading.AbstractExtendableIterativeComputation;
 import org.drugis.common.threading.AbstractIterativeComputation;
 import org.drugis.common.threading.ExtendableIterativeTask;
@@ -49,6 +50,8 @@ import org.drugis.mtc.MCMCResults;
 import org.drugis.mtc.MCMCSettings;
 import org.drugis.mtc.MixedTreatmentComparison;
 import org.drugis.mtc.Parameter;
+import org.drugis.mtc.convergence.ConvergencePolicy;
+import org.drugis.mtc.util.RandomStreams;
 
 public abstract class AbstractYadasModel implements MCMCModel {
 	final class ExtendDecisionTask extends WaitingTask {
@@ -83,12 +86,15 @@ public abstract class AbstractYadasModel implements MCMCModel {
 		private final int d_chain;
 
 		public TuningChain(int chain) {
-			super(getTuningIterations());
+			super(getTuningIterations() + getPilotIterations());
 			d_chain = chain;
 		}
 
 		public void doStep() {
 			update(d_chain);
+			if (d_planner != null && d_iteration >= getTuningIterations()) {
+				d_planner.record(d_chain, d_writeList.get(d_chain));
+			}
 		}
 	}
 
@@ -96,7 +102,7 @@ public abstract class AbstractYadasModel implements MCMCModel {
 		private final int d_chain;
 
 		public SimulationChain(int chain) {
-			super(getSimulationIterations());
+			super(isPlanning() ? PLANNING_ITERATIONS : getSimulationIterations());
 			d_chain = chain;
 		}
 
@@ -136,10 +142,17 @@ public abstract class AbstractYadasModel implements MCMCModel {
 
 	protected abstract void createChain(int chain);
 
+	/**
+	 * Initial length of the simulation chains when the iterations are planned; they are extended once the plan is known.
+	 */
+	private static final int PLANNING_ITERATIONS = 100;
+
 	private List<List<ParameterWriter>> d_writeList = new ArrayList<List<ParameterWriter>>();
 	private List<List<MCMCUpdate>> d_updateList = new ArrayList<List<MCMCUpdate>>();
+	private List<RandomGenerator> d_randomList = new ArrayList<RandomGenerator>();
+	private RandomStreams d_randomStreams;
 	private int d_reportingInterval = 100;
-	protected YadasResults d_results = new YadasResults();
+	protected YadasResults d_results;
 	private YadasSettings d_settings;
 	private ActivityTask d_activityTask;
 	private SimpleSuspendableTask d_finalPhase;
@@ -147,9 +160,14 @@ public abstract class AbstractYadasModel implements MCMCModel {
 	private ExtendDecisionTask d_extendDecisionPhase;
 	protected Task d_extendSimulationPhase;
 	private SimpleRestartableSuspendableTask d_notifyResults;
+	private SimulationMonitor d_monitor;
+	private long d_startTime;
+	private IterationPlanner d_planner;
 
 	public AbstractYadasModel(MCMCSettings settings) {
 		d_settings = new YadasSettings(settings);
+		d_results = d_settings.getResultsDirectory() == null ? new YadasResults() : new MappedYadasResults(d_settings.getResultsDirectory());
+		d_results.setDerivedCacheSize(d_settings.getDerivedCacheSize());
 		buildActivityModel();
 	}
 
@@ -172,11 +190,18 @@ public abstract class AbstractYadasModel implements MCMCModel {
 		d_extendSimulationPhase = new SimpleRestartableSuspendableTask(new Runnable() {
 			public void run() {
 				// Extend the simulations. This is safe because they won't be started before this task is finished.
+				final ConvergencePolicy policy = d_settings.getConvergencePolicy();
+				// planned thinning intervals need not divide the segment: keep the samples per chain whole
+				final int extension = IterationPlanner.roundIterations(
+						policy == null ? getSimulationIterations() : policy.getExtension(getSimulationIterations()), getThinning());
 				for(ExtendableIterativeTask t : simulationPhase) {
-					t.extend(getSimulationIterations());
+					t.extend(extension);
+				}
+				d_results.setNumberOfIterations((getSimulationIterations() + extension) / getThinning());
+				d_settings.setSimulationIterations(getSimulationIterations() + extension);
+				if (d_monitor != null) {
+					d_monitor.start();
 				}
-				d_results.setNumberOfIterations((getSimulationIterations() * 2) / getThinning());
-				d_settings.setSimulationIterations(getSimulationIterations() * 2);
 
 				// Finally, reset the decision phase. Must be done after the simulations are extended, otherwise it becomes a next state.
 				d_notifyResults.reset();
@@ -188,15 +213,32 @@ public abstract class AbstractYadasModel implements MCMCModel {
 
 		d_notifyResults = new SimpleRestartableSuspendableTask(new Runnable() {
 			public void run() {
+				if (d_monitor != null) {
+					d_monitor.stop();
+				}
 				d_results.simulationFinished();
+				final ConvergencePolicy policy = d_settings.getConvergencePolicy();
+				if (policy != null) {
+					d_extendSimulation = policy.decide(d_results, getSimulationIterations(), System.currentTimeMillis() - d_startTime);
+				}
 			}
 		}, MixedTreatmentComparison.CALCULATING_SUMMARIES_PHASE);
 
 		// Build transition graph between phases of the MCMC simulation
 		List<Transition> transitions = new ArrayList<Transition>();
 		transitions.add(new ForkTransition(buildModelPhase, tuningPhase));
-		for (int i = 0; i < getNumberOfChains(); ++i) {
-			transitions.add(new DirectTransition(tuningPhase.get(i), simulationPhase.get(i)));
+		if (isPlanning()) {
+			Task planningPhase = new SimpleSuspendableTask(new Runnable() {
+				public void run() {
+					planSimulation(simulationPhase);
+				}
+			}, MixedTreatmentComparison.PLANNING_SIMULATION_PHASE);
+			transitions.add(new JoinTransition(tuningPhase, planningPhase));
+			transitions.add(new ForkTransition(planningPhase, simulationPhase));
+		} else {
+			for (int i = 0; i < getNumberOfChains(); ++i) {
+				transitions.add(new DirectTransition(tuningPhase.get(i), simulationPhase.get(i)));
+			}
 		}
 		transitions.add(new JoinTransition(simulationPhase, d_notifyResults));
 		transitions.add(new DirectTransition(d_notifyResults, d_extendDecisionPhase));
@@ -211,6 +253,84 @@ public abstract class AbstractYadasModel implements MCMCModel {
 		d_activityTask = new ActivityTask(activityModel, "MCMC model");
 	}
 
+	private boolean isPlanning() {
+		return d_settings.getTargetEffectiveSampleSize() > 0;
+	}
+
+	/**
+	 * The number of iterations the tuning chains run after the step sizes
+	 * have stopped adapting, to measure the autocorrelation for planning.
+	 * Measured while the step sizes still change, the autocorrelation would
+	 * not be that of the simulation. Half the tuning length when planning,
+	 * 0 otherwise.
+	 */
+	private int getPilotIterations() {
+		return isPlanning() ? getTuningIterations() - getTuningIterations() / 2 : 0;
+	}
+
+	/**
+	 * Choose the thinning interval and number of iterations from the
+	 * autocorrelation measured during the pilot, and extend the simulation
+	 * chains to the planned length.
+	 */
+	private void planSimulation(List<ExtendableIterativeTask> simulationPhase) {
+		final double tau = d_planner.getAutocorrelationTime();
+		final int thinning = IterationPlanner.planThinning(tau);
+		final int iterations = IterationPlanner.planIterations(tau, d_settings.getTargetEffectiveSampleSize(), getNumberOfChains(), thinning);
+		d_planner = null;
+
+		d_settings.setThinningInterval(thinning);
+		d_settings.setSimulationIterations(iterations);
+		if (iterations > PLANNING_ITERATIONS) {
+			for (ExtendableIterativeTask t : simulationPhase) {
+				t.extend(iterations - PLANNING_ITERATIONS);
+			}
+		}
+		d_results.setNumberOfIterations(iterations / thinning);
+		if (d_monitor != null) {
+			d_monitor.setInterval(getMonitorInterval());
+		}
+	}
+
+	/**
+	 * The monitor interval of the settings, in stored samples per chain.
+	 */
+	private int getMonitorInterval() {
+		return Math.max(1, d_settings.getMonitorInterval() / getThinning());
+	}
+
+	protected BasicParameterSampler getBasicParameterSampler() {
+		return d_settings.getBasicParameterSampler();
+	}
+
+	protected boolean isNoUTurnSampler() {
+		return d_settings.isNoUTurnSampler();
+	}
+
+	protected boolean isMarginalizeRandomEffects() {
+		return d_settings.isMarginalizeRandomEffects();
+	}
+
+	protected RandomEffectsParameterization getRandomEffectsParameterization() {
+		return d_settings.getRandomEffectsParameterization();
+	}
+
+	protected boolean isGibbsUpdates() {
+		return d_settings.isGibbsUpdates();
+	}
+
+	protected StandardDeviationSampler getStandardDeviationSampler() {
+		return d_settings.getStandardDeviationSampler();
+	}
+
+	protected int getStudyBatches() {
+		return d_settings.getStudyBatches();
+	}
+
+	protected boolean isPackedDataLikelihood() {
+		return d_settings.isPackedDataLikelihood();
+	}
+
 	protected int getThinning() {
 		return getSettings().getThinningInterval();
 	}
@@ -252,6 +372,11 @@ public abstract class AbstractYadasModel implements MCMCModel {
 	}
 
 	private void buildModel() {
+		d_startTime = System.currentTimeMillis();
+		d_randomStreams = RandomStreams.create(d_settings.getRandomSeed());
+		for (int i = 0; i < getNumberOfChains(); ++i) {
+			d_randomList.add(d_randomStreams.createStream(i));
+		}
 		prepareModel();
 		d_results.setNumberOfChains(getNumberOfChains());
 		d_results.setNumberOfIterations(getSimulationIterations() / getThinning());
@@ -261,10 +386,45 @@ public abstract class AbstractYadasModel implements MCMCModel {
 		for (int i = 0 ; i < getNumberOfChains(); ++i) {
 			createChain(i);
 		}
+		if (isPlanning()) {
+			d_planner = new IterationPlanner(getNumberOfChains(), d_writeList.get(0).size(), getPilotIterations());
+		}
+
+		if (d_settings.getMonitorInterval() > 0) {
+			d_monitor = new SimulationMonitor(d_results, getMonitorInterval());
+			d_monitor.start();
+		}
+	}
+
+	/**
+	 * The live convergence monitor, or null if it is disabled or the model has not been built yet.
+	 * @see YadasSettings#getMonitorInterval()
+	 */
+	public SimulationMonitor getMonitor() {
+		return d_monitor;
 	}
 
 	abstract protected List<Parameter> getParameters();
 
+	/**
+	 * The random stream of the given chain. Each chain has its own generator,
+	 * so chains never contend on shared state, and for a fixed seed the
+	 * streams are reproducible. The starting values and all updates of the
+	 * chain draw from this stream (or from sub-streams of the chain), never
+	 * from the YADAS global generator. Available from prepareModel() onwards.
+	 */
+	protected RandomGenerator getRandomGenerator(int chain) {
+		return d_randomList.get(chain);
+	}
+
+	/**
+	 * The streams from which the chain generators were derived, for creating
+	 * further independent sub-streams.
+	 */
+	protected RandomStreams getRandomStreams() {
+		return d_randomStreams;
+	}
+
 	protected Map<? extends Parameter, Derivation> getDerivedParameters() {
 		return Collections.emptyMap();
 	}
@@ -288,6 +448,7 @@ public abstract class AbstractYadasModel implements MCMCModel {
 		for (ParameterWriter p : d_writeList.get(chain)) {
 			p.output();
 		}
+		d_results.sampleWritten(chain);
 	}
 
 	public void setExtendSimulation(ExtendSimulation s) {
@@ -302,11 +463,25 @@ public abstract class AbstractYadasModel implements MCMCModel {
 		d_writeList.add(writers);
 	}
 
-	protected void addTuners(List<MCMCParameter> params) {
-		List<MCMCUpdate> tuners = new ArrayList<MCMCUpdate>(params.size());
-		for (MCMCParameter param : params) {
-			tuners.add(new UpdateTuner(param, getTuningIterations() / 50, 50, 1, Math.exp(-1)));
+	/**
+	 * Add the updates for the next chain: a step-size tuned random walk update
+	 * for each of the params, followed by the given updates. These replace the
+	 * YADAS UpdateTuner, which draws from the YADAS global generator and
+	 * therefore cannot give reproducible, independent chains. They keep its
+	 * scheme: a component-wise Gaussian random walk from the initial step size
+	 * of 0.1, tuned in batches of 50 updates towards an acceptance rate of
+	 * exp(-1) during the tuning iterations. Their proposals, however, draw from
+	 * the chain's random stream, so for a fixed seed the chain is reproducible.
+	 * @param params The parameters, each with all the bonds built on it.
+	 * @see ComponentMetropolisUpdate
+	 */
+	protected void addTuners(int chain, Map<MCMCParameter, ? extends List<? extends MCMCBond>> params, List<? extends MCMCUpdate> updates) {
+		List<MCMCUpdate> tuners = new ArrayList<MCMCUpdate>(params.size() + updates.size());
+		for (Map.Entry<MCMCParameter, ? extends List<? extends MCMCBond>> entry : params.entrySet()) {
+			tuners.add(new ComponentMetropolisUpdate(entry.getKey(), entry.getValue(), 0.1,
+					getTuningIterations(), getRandomGenerator(chain)));
 		}
+		tuners.addAll(updates);
 		d_updateList.add(tuners);
 	}
 
@@ -0,0 +1,175 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+import gov.lanl.yadas.MCMCUpdate;
+
+import java.util.List;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Adaptive Metropolis block update of all components of an MCMCParameter
+ * (Haario et al., 2001; Roberts and Rosenthal, 2009). With probability 1 - beta
+ * the proposal is N(x, 2.38^2 / d * S), where S is the covariance of the
+ * states visited so far; otherwise, or while too few states have been seen,
+ * it is N(x, 0.1^2 / d * I). The running mean and covariance are updated with
+ * weight 1 / n, so the adaptation diminishes over time.
+ *
+ * The bonds should be all bonds that involve the parameter: their summed
+ * change in log-density is the Metropolis log-ratio.
+ */
+public class AdaptiveMetropolisUpdate implements MCMCUpdate {
+	private static final double BETA = 0.05;
+	private static final double FIXED_SCALE = 0.1;
+	private static final double JITTER = 1E-8;
+	private static final int DECOMPOSE_INTERVAL = 100;
+
+	private final MCMCParameter d_param;
+	private final MCMCBond[] d_bonds;
+	private final RandomGenerator d_rng;
+	private final int d_dim;
+	private final double[] d_mean;
+	private final double[][] d_m2;
+	private int d_n = 0;
+	private double[][] d_chol;
+	private final double[] d_z;
+	private int d_proposed = 0;
+	private int d_accepted = 0;
+
+	public AdaptiveMetropolisUpdate(MCMCParameter param, List<? extends MCMCBond> bonds, RandomGenerator rng) {
+		d_param = param;
+		d_bonds = bonds.toArray(new MCMCBond[bonds.size()]);
+		d_rng = rng;
+		d_dim = param.getValue().length;
+		d_mean = new double[d_dim];
+		d_m2 = new double[d_dim][d_dim];
+		d_z = new double[d_dim];
+	}
+
+	public void update() {
+		final double[] current = d_param.getValue().clone();
+		adapt(current);
+
+		for (int i = 0; i < d_dim; ++i) {
+			d_z[i] = d_rng.nextGaussian();
+		}
+		final double[] proposal = current.clone();
+		if (d_chol == null || d_rng.nextDouble() < BETA) {
+			final double scale = FIXED_SCALE / Math.sqrt(d_dim);
+			for (int i = 0; i < d_dim; ++i) {
+				proposal[i] += scale * d_z[i];
+			}
+		} else {
+			for (int i = 0; i < d_dim; ++i) {
+				double sum = 0.0;
+				for (int j = 0; j <= i; ++j) {
+					sum += d_chol[i][j] * d_z[j];
+				}
+				proposal[i] += sum;
+			}
+		}
+
+		++d_proposed;
+		d_param.setValue(proposal);
+		double logRatio = 0.0;
+		for (MCMCBond bond : d_bonds) {
+			logRatio += bond.compute();
+		}
+		if (Math.log(d_rng.nextDouble()) < logRatio) {
+			++d_accepted;
+			for (MCMCBond bond : d_bonds) {
+				bond.revise();
+			}
+		} else {
+			d_param.setValue(current);
+			for (MCMCBond bond : d_bonds) {
+				bond.reject();
+			}
+		}
+	}
+
+	/**
+	 * Add the state x to the running mean and covariance, periodically refreshing the proposal.
+	 */
+	private void adapt(double[] x) {
+		++d_n;
+		final double[] delta = new double[d_dim];
+		for (int i = 0; i < d_dim; ++i) {
+			delta[i] = x[i] - d_mean[i];
+			d_mean[i] += delta[i] / d_n;
+		}
+		for (int i = 0; i < d_dim; ++i) {
+			for (int j = 0; j <= i; ++j) {
+				d_m2[i][j] += delta[i] * (x[j] - d_mean[j]);
+			}
+		}
+		if (d_n % DECOMPOSE_INTERVAL == 0 && d_n > 2 * d_dim) {
+			d_chol = decompose();
+		}
+	}
+
+	/**
+	 * Cholesky factor of 2.38^2 / d * (S + jitter * I), or the previous factor if S is not positive definite.
+	 */
+	private double[][] decompose() {
+		final double scale = 2.38 * 2.38 / d_dim;
+		final double[][] l = new double[d_dim][d_dim];
+		for (int i = 0; i < d_dim; ++i) {
+			for (int j = 0; j <= i; ++j) {
+				double sum = scale * d_m2[i][j] / (d_n - 1);
+				if (i == j) {
+					sum += scale * JITTER;
+				}
+				for (int k = 0; k < j; ++k) {
+					sum -= l[i][k] * l[j][k];
+				}
+				if (i == j) {
+					if (!(sum > 0.0)) {
+						return d_chol;
+					}
+					l[i][i] = Math.sqrt(sum);
+				} else {
+					l[i][j] = sum / l[j][j];
+				}
+			}
+		}
+		return l;
+	}
+
+	public String accepted() {
+		return d_accepted + " of " + d_proposed + " block proposals accepted";
+	}
+
+	/**
+	 * The fraction of proposals that were accepted.
+	 */
+	public double getAcceptanceRate() {
+		return d_proposed == 0 ? Double.NaN : (double) d_accepted / d_proposed;
+	}
+
+	public void updateoutput() {
+	}
+
+	public void finish() {
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.ArgumentMaker;
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+import gov.lanl.yadas.MCMCUpdate;
+
+import java.util.List;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Gibbs update of the baseline mu of a study with normally distributed
+ * observations m_k ~ N(theta_k, se_k^2), theta_k = mu + o_k, and the prior
+ * mu ~ N(0, v^2). The full conditional is normal, with precision
+ * P = 1 / v^2 + sum_k 1 / se_k^2 and mean sum_k (m_k - o_k) / se_k^2 / P,
+ * so the update samples it exactly.
+ *
+ * The offsets o_k are obtained from the ArgumentMaker that generates theta
+ * for the data bond. Afterwards the bonds that involve mu are revised, so
+ * that the Metropolis updates of the other parameters remain correct.
+ */
+public class BaselineGibbsUpdate implements MCMCUpdate {
+	private final MCMCParameter d_mu;
+	private final MCMCParameter[] d_params;
+	private final ArgumentMaker d_theta;
+	private final double[] d_obsMean;
+	private final double[] d_precision;
+	private final double d_priorPrecision;
+	private final MCMCBond[] d_bonds;
+	private final RandomGenerator d_rng;
+	private final double[][] d_data;
+	private int d_updates = 0;
+
+	/**
+	 * @param mu The baseline parameter, of length 1.
+	 * @param params The parameters that the theta ArgumentMaker expects, including mu.
+	 * @param theta ArgumentMaker for the expected arm means.
+	 * @param obsMean The observed arm means.
+	 * @param stdErr The standard errors of the observed arm means.
+	 * @param priorSigma The prior standard deviation v of mu.
+	 * @param bonds The bonds that involve mu.
+	 * @param rng The random source.
+	 */
+	public BaselineGibbsUpdate(MCMCParameter mu, MCMCParameter[] params, ArgumentMaker theta, double[] obsMean,
+			double[] stdErr, double priorSigma, List<? extends MCMCBond> bonds, RandomGenerator rng) {
+		d_mu = mu;
+		d_params = params;
+		d_theta = theta;
+		d_obsMean = obsMean;
+		d_precision = new double[stdErr.length];
+		for (int i = 0; i < stdErr.length; ++i) {
+			d_precision[i] = 1 / (stdErr[i] * stdErr[i]);
+		}
+		d_priorPrecision = 1 / (priorSigma * priorSigma);
+		d_bonds = bonds.toArray(new MCMCBond[bonds.size()]);
+		d_rng = rng;
+		d_data = new double[params.length][];
+	}
+
+	public void update() {
+		for (int i = 0; i < d_params.length; ++i) {
+			d_data[i] = d_params[i].getValue();
+		}
+		final double current = d_mu.getValue(0);
+		final double[] theta = d_theta.getArgument(d_data);
+
+		double precision = d_priorPrecision;
+		double sum = 0.0;
+		for (int k = 0; k < theta.length; ++k) {
+			precision += d_precision[k];
+			sum += d_precision[k] * (d_obsMean[k] - (theta[k] - current));
+		}
+		final double mean = sum / precision;
+		d_mu.setValue(new double[] { mean + d_rng.nextGaussian() / Math.sqrt(precision) });
+
+		for (MCMCBond bond : d_bonds) {
+			bond.compute();
+			bond.revise();
+		}
+		++d_updates;
+	}
+
+	public String accepted() {
+		return "Gibbs: " + d_updates + " of " + d_updates + " accepted";
+	}
+
+	public void updateoutput() {
+	}
+
+	public void finish() {
+	}
+}
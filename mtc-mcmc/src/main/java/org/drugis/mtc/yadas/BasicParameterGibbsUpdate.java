@@ -0,0 +1,222 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import edu.uci.ics.jung.graph.util.Pair;
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+import gov.lanl.yadas.MCMCUpdate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.Parameterization;
+
+/**
+ * Gibbs update of the basic and inconsistency parameters B given the
+ * relative effects. With delta_s ~ N(X_s B, sigma^2 S_s), where X_s is the
+ * linear map of RelativeEffectArgumentMaker, and the priors N(0, v^2) for
+ * the basic parameters and N(0, sigma_w^2) for the inconsistency factors,
+ * the full conditional of B is multivariate normal with precision
+ * Q = D + sum_s X_s' inv(S_s) X_s / sigma^2, D the prior precisions, and mean
+ * inv(Q) sum_s X_s' inv(S_s) delta_s / sigma^2.
+ *
+ * The sum in Q does not depend on any parameter, so it is computed once;
+ * each update then costs a Cholesky decomposition of the P x P matrix Q.
+ * Afterwards the bonds that involve B are revised, so that the Metropolis
+ * updates of the other parameters remain correct.
+ */
+public class BasicParameterGibbsUpdate implements MCMCUpdate {
+	private final MCMCParameter d_basic;
+	private final MCMCParameter[] d_delta;
+	private final MCMCParameter d_sigma;
+	private final MCMCParameter d_sigmaw;
+	private final int d_nBasic;
+	private final double d_priorPrecision;
+	private final MCMCBond[] d_bonds;
+	private final RandomGenerator d_rng;
+	private final int d_dim;
+	private final double[][] d_information; // sum_s X_s' inv(S_s) X_s
+	private final double[][][] d_projection; // X_s' inv(S_s), for each study
+	private final double[][] d_chol;
+	private final double[] d_b;
+	private int d_updates = 0;
+
+	/**
+	 * @param pmtz Parameterization of the network.
+	 * @param studies The studies, in the order of delta.
+	 * @param nBasic The number of basic parameters: the remaining parameters are inconsistency factors.
+	 * @param priorSigma The prior standard deviation v of the basic parameters.
+	 * @param basic The basic and inconsistency parameters.
+	 * @param delta The relative effects of each study.
+	 * @param sigma The random effects standard deviation.
+	 * @param sigmaw The inconsistency standard deviation, or null if there are no inconsistency factors.
+	 * @param bonds The bonds that involve the basic parameters.
+	 * @param rng The random source.
+	 */
+	public BasicParameterGibbsUpdate(Parameterization pmtz, List<Study> studies, int nBasic, double priorSigma,
+			MCMCParameter basic, List<MCMCParameter> delta, MCMCParameter sigma, MCMCParameter sigmaw,
+			List<? extends MCMCBond> bonds, RandomGenerator rng) {
+		d_basic = basic;
+		d_delta = delta.toArray(new MCMCParameter[delta.size()]);
+		d_sigma = sigma;
+		d_sigmaw = sigmaw;
+		d_nBasic = nBasic;
+		d_priorPrecision = 1 / (priorSigma * priorSigma);
+		d_bonds = bonds.toArray(new MCMCBond[bonds.size()]);
+		d_rng = rng;
+		d_dim = basic.getValue().length;
+		d_information = new double[d_dim][d_dim];
+		d_projection = new double[studies.size()][][];
+		for (int s = 0; s < studies.size(); ++s) {
+			d_projection[s] = project(pmtz, studies.get(s));
+		}
+		d_chol = new double[d_dim][d_dim];
+		d_b = new double[d_dim];
+	}
+
+	/**
+	 * Calculate X_s' inv(S_s) for the study, and add X_s' inv(S_s) X_s to the information.
+	 */
+	private double[][] project(Parameterization pmtz, Study study) {
+		// X_s, column by column
+		final RelativeEffectArgumentMaker maker = new RelativeEffectArgumentMaker(pmtz, study, 0, -1);
+		final int k = study.getTreatments().size() - 1;
+		final double[][] x = new double[k][d_dim];
+		final double[][] data = { new double[d_dim] };
+		for (int j = 0; j < d_dim; ++j) {
+			data[0][j] = 1.0;
+			final double[] column = maker.getArgument(data);
+			for (int i = 0; i < k; ++i) {
+				x[i][j] = column[i];
+			}
+			data[0][j] = 0.0;
+		}
+
+		// inv(S_s) is block diagonal, with blocks 2 (I - J / (n + 1)) of size n
+		final double[][] sInv = new double[k][k];
+		int offset = 0;
+		for (List<Pair<Treatment>> block : pmtz.parameterizeStudy(study)) {
+			final int n = block.size();
+			for (int i = offset; i < offset + n; ++i) {
+				for (int j = offset; j < offset + n; ++j) {
+					sInv[i][j] = 2 * ((i == j ? 1.0 : 0.0) - 1.0 / (n + 1));
+				}
+			}
+			offset += n;
+		}
+
+		final double[][] projection = new double[d_dim][k];
+		for (int p = 0; p < d_dim; ++p) {
+			for (int j = 0; j < k; ++j) {
+				double sum = 0.0;
+				for (int i = 0; i < k; ++i) {
+					sum += x[i][p] * sInv[i][j];
+				}
+				projection[p][j] = sum;
+			}
+		}
+		for (int p = 0; p < d_dim; ++p) {
+			for (int q = 0; q < d_dim; ++q) {
+				double sum = 0.0;
+				for (int j = 0; j < k; ++j) {
+					sum += projection[p][j] * x[j][q];
+				}
+				d_information[p][q] += sum;
+			}
+		}
+		return projection;
+	}
+
+	public void update() {
+		final double sd = d_sigma.getValue(0);
+		final double var = sd * sd;
+		final double inconsPrecision = d_sigmaw == null ? 0.0 : 1 / (d_sigmaw.getValue(0) * d_sigmaw.getValue(0));
+
+		// b = sum_s X_s' inv(S_s) delta_s / sigma^2
+		Arrays.fill(d_b, 0.0);
+		for (int s = 0; s < d_delta.length; ++s) {
+			final double[] delta = d_delta[s].getValue();
+			final double[][] projection = d_projection[s];
+			for (int p = 0; p < d_dim; ++p) {
+				double sum = 0.0;
+				for (int j = 0; j < delta.length; ++j) {
+					sum += projection[p][j] * delta[j];
+				}
+				d_b[p] += sum / var;
+			}
+		}
+
+		// Q = L L'
+		for (int i = 0; i < d_dim; ++i) {
+			for (int j = 0; j <= i; ++j) {
+				double sum = d_information[i][j] / var;
+				if (i == j) {
+					sum += i < d_nBasic ? d_priorPrecision : inconsPrecision;
+				}
+				for (int k = 0; k < j; ++k) {
+					sum -= d_chol[i][k] * d_chol[j][k];
+				}
+				d_chol[i][j] = i == j ? Math.sqrt(sum) : sum / d_chol[j][j];
+			}
+		}
+
+		// mean = inv(L') inv(L) b ; sample = mean + inv(L') z
+		final double[] y = new double[d_dim];
+		for (int i = 0; i < d_dim; ++i) {
+			double sum = d_b[i];
+			for (int k = 0; k < i; ++k) {
+				sum -= d_chol[i][k] * y[k];
+			}
+			y[i] = sum / d_chol[i][i];
+		}
+		for (int i = 0; i < d_dim; ++i) {
+			y[i] += d_rng.nextGaussian();
+		}
+		final double[] value = new double[d_dim];
+		for (int i = d_dim - 1; i >= 0; --i) {
+			double sum = y[i];
+			for (int k = i + 1; k < d_dim; ++k) {
+				sum -= d_chol[k][i] * value[k];
+			}
+			value[i] = sum / d_chol[i][i];
+		}
+		d_basic.setValue(value);
+
+		for (MCMCBond bond : d_bonds) {
+			bond.compute();
+			bond.revise();
+		}
+		++d_updates;
+	}
+
+	public String accepted() {
+		return "Gibbs: " + d_updates + " of " + d_updates + " accepted";
+	}
+
+	public void updateoutput() {
+	}
+
+	public void finish() {
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCBond;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * For each component of a vector MCMCParameter, the bonds whose value
+ * depends on that component. When a single component changes, only those
+ * bonds need to be computed: the other bonds keep their last accepted
+ * log-likelihood, because their arguments did not change.
+ */
+public class BondDependencies {
+	private final List<List<MCMCBond>> d_bonds;
+
+	/**
+	 * @param dim The number of components of the parameter.
+	 */
+	public BondDependencies(int dim) {
+		d_bonds = new ArrayList<List<MCMCBond>>(dim);
+		for (int i = 0; i < dim; ++i) {
+			d_bonds.add(new ArrayList<MCMCBond>());
+		}
+	}
+
+	/**
+	 * Add a bond that depends on the given components.
+	 */
+	public void add(MCMCBond bond, Collection<Integer> components) {
+		for (int i : components) {
+			d_bonds.get(i).add(bond);
+		}
+	}
+
+	/**
+	 * Add a bond that depends on the components [from, to).
+	 */
+	public void add(MCMCBond bond, int from, int to) {
+		for (int i = from; i < to; ++i) {
+			d_bonds.get(i).add(bond);
+		}
+	}
+
+	/**
+	 * The number of components of the parameter.
+	 */
+	public int getDimension() {
+		return d_bonds.size();
+	}
+
+	/**
+	 * The bonds that depend on component i, in the order in which they were added.
+	 */
+	public List<MCMCBond> getBonds(int i) {
+		return d_bonds.get(i);
+	}
+}
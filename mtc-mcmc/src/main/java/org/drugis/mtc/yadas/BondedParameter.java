@@ -0,0 +1,55 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A MCMCParameter that keeps track of the bonds built on it. Bonds register
+ * themselves with each of their parameters when they are constructed, so
+ * the list is complete without any bookkeeping by the model. It is the
+ * single source for the bonds that an update of the parameter computes:
+ * a bond missing there would silently drop a term from the acceptance ratio.
+ */
+public class BondedParameter extends MCMCParameter {
+	private final List<MCMCBond> d_bonds = new ArrayList<MCMCBond>();
+
+	public BondedParameter(double[] value, double[] step, String name) {
+		super(value, step, name);
+	}
+
+	@Override
+	public void addBond(MCMCBond bond) {
+		super.addBond(bond);
+		d_bonds.add(bond);
+	}
+
+	/**
+	 * The bonds built on this parameter, in the order in which they were built.
+	 */
+	public List<MCMCBond> getBonds() {
+		return Collections.unmodifiableList(d_bonds);
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+import gov.lanl.yadas.MCMCUpdate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Component-wise random walk Metropolis update of a MCMCParameter, drawing
+ * from its own random source. Unlike the YADAS update of the parameter,
+ * which uses a single global generator, it can therefore run concurrently
+ * with updates of other parameters that share no bonds with it, and its
+ * results do not depend on the order in which those are run.
+ *
+ * During the first nAdapt updates, the step size of each component is
+ * scaled after every batch of 50 updates towards an acceptance rate of
+ * exp(-1), the target of the YADAS UpdateTuner.
+ *
+ * The bonds should be all bonds that involve the parameter. Alternatively,
+ * the bonds can be given per component, in which case a proposal only
+ * computes the bonds that depend on the changed component.
+ */
+public class ComponentMetropolisUpdate implements MCMCUpdate {
+	private static final int BATCH_SIZE = 50;
+	private static final double TARGET_ACCEPTANCE = Math.exp(-1);
+
+	private final MCMCParameter d_param;
+	private final MCMCBond[][] d_bonds; // for each component, the bonds that depend on it
+	private final double[] d_step;
+	private final int d_nAdapt;
+	private final RandomGenerator d_rng;
+	private final int[] d_batchAccepted;
+	private final long[] d_accepted;
+	private int d_updates = 0;
+
+	/**
+	 * @param param The parameter.
+	 * @param bonds The bonds that involve the parameter.
+	 * @param step The initial step size, for all components.
+	 * @param nAdapt The number of updates during which the step sizes are adapted.
+	 * @param rng The random source.
+	 */
+	public ComponentMetropolisUpdate(MCMCParameter param, List<? extends MCMCBond> bonds, double step, int nAdapt, RandomGenerator rng) {
+		this(param, dependOnAll(param, bonds), step, nAdapt, rng);
+	}
+
+	/**
+	 * @param param The parameter.
+	 * @param dependencies For each component of the parameter, the bonds that depend on it.
+	 * @param step The initial step size, for all components.
+	 * @param nAdapt The number of updates during which the step sizes are adapted.
+	 * @param rng The random source.
+	 */
+	public ComponentMetropolisUpdate(MCMCParameter param, BondDependencies dependencies, double step, int nAdapt, RandomGenerator rng) {
+		final int n = param.getValue().length;
+		if (dependencies.getDimension() != n) {
+			throw new IllegalArgumentException("The dependencies should be given for each of the " + n + " components");
+		}
+		d_param = param;
+		d_bonds = new MCMCBond[n][];
+		for (int i = 0; i < n; ++i) {
+			d_bonds[i] = dependencies.getBonds(i).toArray(new MCMCBond[0]);
+		}
+		d_step = new double[n];
+		Arrays.fill(d_step, step);
+		d_nAdapt = nAdapt;
+		d_rng = rng;
+		d_batchAccepted = new int[n];
+		d_accepted = new long[n];
+	}
+
+	private static BondDependencies dependOnAll(MCMCParameter param, List<? extends MCMCBond> bonds) {
+		final int n = param.getValue().length;
+		BondDependencies dependencies = new BondDependencies(n);
+		for (MCMCBond bond : bonds) {
+			dependencies.add(bond, 0, n);
+		}
+		return dependencies;
+	}
+
+	public void update() {
+		for (int i = 0; i < d_step.length; ++i) {
+			final double[] current = d_param.getValue();
+			final double[] proposal = current.clone();
+			proposal[i] += d_step[i] * d_rng.nextGaussian();
+			d_param.setValue(proposal);
+			double logRatio = 0.0;
+			for (MCMCBond bond : d_bonds[i]) {
+				logRatio += bond.compute();
+			}
+			if (!Double.isNaN(logRatio) && Math.log(d_rng.nextDouble()) < logRatio) {
+				for (MCMCBond bond : d_bonds[i]) {
+					bond.revise();
+				}
+				++d_batchAccepted[i];
+				++d_accepted[i];
+			} else {
+				d_param.setValue(current);
+				for (MCMCBond bond : d_bonds[i]) {
+					bond.reject();
+				}
+			}
+		}
+
+		++d_updates;
+		if (d_updates % BATCH_SIZE == 0) {
+			for (int i = 0; i < d_step.length; ++i) {
+				if (d_updates <= d_nAdapt) {
+					final double rate = (double) d_batchAccepted[i] / BATCH_SIZE;
+					d_step[i] *= Math.exp(2 * (rate - TARGET_ACCEPTANCE));
+				}
+				d_batchAccepted[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * The current step size of the given component.
+	 */
+	public double getStep(int i) {
+		return d_step[i];
+	}
+
+	/**
+	 * The overall acceptance rate of the given component.
+	 */
+	public double getAcceptanceRate(int i) {
+		return d_updates == 0 ? Double.NaN : (double) d_accepted[i] / d_updates;
+	}
+
+	public String accepted() {
+		StringBuilder str = new StringBuilder();
+		for (int i = 0; i < d_step.length; ++i) {
+			str.append(i == 0 ? "" : " ").append(getAcceptanceRate(i));
+		}
+		return str.toString();
+	}
+
+	public void updateoutput() {
+	}
+
+	public void finish() {
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import edu.uci.ics.jung.graph.util.Pair;
+import gov.lanl.yadas.Likelihood;
+
+import java.util.List;
+
+import org.drugis.mtc.model.Treatment;
+
+/**
+ * Computes the log of the probability density for a multivariate Gaussian
+ * with the block-structured covariance matrix generated by
+ * SigmaRowArgumentMaker: within each block the variances are sd^2 and the
+ * covariances sd^2/2, between blocks the covariances are 0.
+ *
+ * Such a block of size k is sd^2/2 (I + J), so its inverse is
+ * 2/sd^2 (I - J/(k + 1)) and its determinant (sd^2/2)^k (k + 1). This allows
+ * the density to be evaluated in O(k), without allocating any matrices.
+ *
+ * The arguments are expected to be: data[0] the values, data[1] the means,
+ * data[2][0] the standard deviation sd.
+ * @see SigmaRowArgumentMaker
+ */
+public class CompoundSymmetricGaussian implements Likelihood {
+	private static final double LOG_2PI = Math.log(2 * Math.PI);
+	private static final double LOG_2 = Math.log(2);
+
+	private final int[] d_blockSizes;
+	private final int d_dim;
+	private final double d_constant;
+
+	/**
+	 * @param blockSizes The sizes of the independent blocks, in order of occurrence.
+	 */
+	public CompoundSymmetricGaussian(int[] blockSizes) {
+		d_blockSizes = blockSizes.clone();
+		int dim = 0;
+		double logDetConstant = 0.0;
+		for (int k : d_blockSizes) {
+			if (k < 1) {
+				throw new IllegalArgumentException("Block sizes should be positive");
+			}
+			dim += k;
+			logDetConstant += Math.log(k + 1);
+		}
+		d_dim = dim;
+		d_constant = dim * (LOG_2PI - LOG_2) + logDetConstant;
+	}
+
+	/**
+	 * Create the likelihood for the given study parameterization.
+	 * @param studyPmtz The study parameterization: (baseline, subject) pairs, forming a tree.
+	 */
+	public static CompoundSymmetricGaussian create(List<List<Pair<Treatment>>> studyPmtz) {
+		int[] blockSizes = new int[studyPmtz.size()];
+		for (int i = 0; i < blockSizes.length; ++i) {
+			blockSizes[i] = studyPmtz.get(i).size();
+		}
+		return new CompoundSymmetricGaussian(blockSizes);
+	}
+
+	public double compute(double[][] data) {
+		return compute(data[0], data[1], data[2][0]);
+	}
+
+	public double compute(double[] x, double[] mu, double sd) {
+		return compute(x, mu, sd, null, null);
+	}
+
+	/**
+	 * Compute the log-density and, optionally, its gradient.
+	 * @param xGradient If not null, the gradient with respect to x is added to it;
+	 * the gradient with respect to mu is its negation.
+	 * @param sdGradient If not null, the derivative with respect to sd is added to element 0.
+	 */
+	public double compute(double[] x, double[] mu, double sd, double[] xGradient, double[] sdGradient) {
+		if (x.length != d_dim || mu.length != d_dim) {
+			throw new IllegalArgumentException("All arguments need to be of length " + d_dim);
+		}
+
+		final double var = sd * sd;
+
+		// (x - mu)' inv(sigma) (x - mu), summed over the blocks
+		double quad = 0.0;
+		int offset = 0;
+		for (int b = 0; b < d_blockSizes.length; ++b) {
+			final int k = d_blockSizes[b];
+			double sum = 0.0;
+			double sumSq = 0.0;
+			for (int i = offset; i < offset + k; ++i) {
+				final double e = x[i] - mu[i];
+				sum += e;
+				sumSq += e * e;
+			}
+			quad += sumSq - sum * sum / (k + 1);
+			if (xGradient != null) {
+				final double mean = sum / (k + 1);
+				for (int i = offset; i < offset + k; ++i) {
+					xGradient[i] -= 2 * (x[i] - mu[i] - mean) / var;
+				}
+			}
+			offset += k;
+		}
+
+		if (sdGradient != null) {
+			sdGradient[0] += -d_dim / sd + 2 * quad / (var * sd);
+		}
+		return -0.5 * (d_constant + d_dim * Math.log(var) + 2 * quad / var);
+	}
+}
@@ -34,14 +34,23 @@ public class Derivation {
 	}
 	
 
+	/**
+	 * @return The coefficient of each parameter in the derivation.
+	 */
+	public Map<? extends Parameter, Integer> getParameterization() {
+		return d_pmtz;
+	}
+
 	public double[] calculate(MCMCResults results, int c) {
 		double[] result = new double[results.getNumberOfSamples()];
-		for (int i = 0; i < result.length; ++i) {
-			result[i] = calculate(results, c, i);
-		}
+		new DerivationMatrix(new Derivation[] { this }, results).calculate(0, results, c, 0, result.length, result, 0);
 		return result;
 	}
 	
+	/**
+	 * Calculate a single sample. This looks up each parameter in the results;
+	 * to derive many samples, use a DerivationMatrix instead.
+	 */
 	public double calculate(MCMCResults results, int c, int i) {
 		double val = 0.0;
 		for (Entry<? extends Parameter, Integer> e : d_pmtz.entrySet()) {
@@ -0,0 +1,154 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+
+import org.drugis.mtc.MCMCResults;
+import org.drugis.mtc.Parameter;
+
+/**
+ * A set of Derivations compiled against the parameter indices of an
+ * MCMCResults: row j holds the (column, coefficient) terms of derivation j in
+ * compressed sparse row form. Derived samples are then a sparse matrix
+ * product over the basic parameter columns, evaluated without any map
+ * iteration or parameter lookup.
+ */
+public class DerivationMatrix {
+	private static final int BLOCK_SIZE = 1024;
+
+	private final int[] d_rowStart;
+	private final int[] d_column;
+	private final double[] d_coefficient;
+	private final int[] d_usedColumns;
+	private final int[] d_slot; // d_slot[k]: index of d_column[k] in d_usedColumns
+
+	/**
+	 * @param derivations The derivations, one per row.
+	 * @param results The results that provide the basic parameters.
+	 */
+	public DerivationMatrix(Derivation[] derivations, MCMCResults results) {
+		int nTerms = 0;
+		for (Derivation d : derivations) {
+			nTerms += d.getParameterization().size();
+		}
+		d_rowStart = new int[derivations.length + 1];
+		d_column = new int[nTerms];
+		d_coefficient = new double[nTerms];
+		d_slot = new int[nTerms];
+
+		int[] used = new int[nTerms];
+		int nUsed = 0;
+		int k = 0;
+		for (int j = 0; j < derivations.length; ++j) {
+			d_rowStart[j] = k;
+			for (Entry<? extends Parameter, Integer> e : derivations[j].getParameterization().entrySet()) {
+				final int col = results.findParameter(e.getKey());
+				if (col < 0) {
+					throw new IllegalArgumentException("Parameter " + e.getKey() + " not found in the results");
+				}
+				d_column[k] = col;
+				d_coefficient[k] = e.getValue();
+				int slot = indexOf(used, nUsed, col);
+				if (slot < 0) {
+					slot = nUsed;
+					used[nUsed++] = col;
+				}
+				d_slot[k] = slot;
+				++k;
+			}
+		}
+		d_rowStart[derivations.length] = k;
+		d_usedColumns = new int[nUsed];
+		System.arraycopy(used, 0, d_usedColumns, 0, nUsed);
+	}
+
+	private static int indexOf(int[] arr, int n, int x) {
+		for (int i = 0; i < n; ++i) {
+			if (arr[i] == x) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public int getRowCount() {
+		return d_rowStart.length - 1;
+	}
+
+	/**
+	 * Calculate a single derived sample.
+	 */
+	public double calculate(int row, MCMCResults results, int c, int i) {
+		double val = 0.0;
+		for (int k = d_rowStart[row]; k < d_rowStart[row + 1]; ++k) {
+			val += d_coefficient[k] * results.getSample(d_column[k], c, i);
+		}
+		return val;
+	}
+
+	/**
+	 * Calculate the derived samples [from, to) of one row into dst, starting at offset.
+	 */
+	public void calculate(int row, MCMCResults results, int c, int from, int to, double[] dst, int offset) {
+		final double[] column = new double[Math.min(BLOCK_SIZE, to - from)];
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			final int n = Math.min(BLOCK_SIZE, to - start);
+			final int dstStart = offset + start - from;
+			Arrays.fill(dst, dstStart, dstStart + n, 0.0);
+			for (int k = d_rowStart[row]; k < d_rowStart[row + 1]; ++k) {
+				results.getSamples(d_column[k], c, start, start + n, column, 0);
+				final double coef = d_coefficient[k];
+				for (int i = 0; i < n; ++i) {
+					dst[dstStart + i] += coef * column[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculate the derived samples [from, to) of all rows: dst[row][i - from]
+	 * is derived sample i of the row. Each basic column is read once per block
+	 * of samples, however many rows use it.
+	 */
+	public void calculate(MCMCResults results, int c, int from, int to, double[][] dst) {
+		final int blockSize = Math.min(BLOCK_SIZE, to - from);
+		final double[][] columns = new double[d_usedColumns.length][blockSize];
+		for (int start = from; start < to; start += BLOCK_SIZE) {
+			final int n = Math.min(BLOCK_SIZE, to - start);
+			final int dstStart = start - from;
+			for (int s = 0; s < d_usedColumns.length; ++s) {
+				results.getSamples(d_usedColumns[s], c, start, start + n, columns[s], 0);
+			}
+			for (int row = 0; row < getRowCount(); ++row) {
+				final double[] out = dst[row];
+				Arrays.fill(out, dstStart, dstStart + n, 0.0);
+				for (int k = d_rowStart[row]; k < d_rowStart[row + 1]; ++k) {
+					final double[] column = columns[d_slot[k]];
+					final double coef = d_coefficient[k];
+					for (int i = 0; i < n; ++i) {
+						out[dstStart + i] += coef * column[i];
+					}
+				}
+			}
+		}
+	}
+}
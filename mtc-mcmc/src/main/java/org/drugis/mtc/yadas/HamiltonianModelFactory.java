@@ -0,0 +1,52 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import org.drugis.mtc.MCMCSettings;
+
+/**
+ * ModelFactory for models that are sampled by the No-U-Turn Sampler, a
+ * self-tuning variant of Hamiltonian Monte Carlo that uses the analytic
+ * gradient of the posterior. The models and their results are those of the
+ * YadasModelFactory, but each iteration is a joint update of all parameters,
+ * so far fewer (and unthinned) iterations are needed.
+ * @see NetworkLogDensity
+ */
+public class HamiltonianModelFactory extends YadasModelFactory {
+	public static final int DEFAULT_TUNING_ITERATIONS = 1000;
+	public static final int DEFAULT_SIMULATION_ITERATIONS = 2000;
+	public static final int DEFAULT_THINNING_FACTOR = 1;
+
+	public HamiltonianModelFactory() {
+		setDefaults(new YadasSettings(
+				DEFAULT_TUNING_ITERATIONS, DEFAULT_SIMULATION_ITERATIONS, DEFAULT_THINNING_FACTOR,
+				DEFAULT_NUMBER_OF_CHAINS, DEFAULT_VARIANCE_SCALING));
+	}
+
+	/**
+	 * Set the default settings; the No-U-Turn Sampler is always enabled.
+	 */
+	@Override
+	public void setDefaults(MCMCSettings settings) {
+		YadasSettings defaults = new YadasSettings(settings);
+		defaults.setNoUTurnSampler(true);
+		super.setDefaults(defaults);
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import java.util.List;
+
+import org.drugis.mtc.convergence.EffectiveSampleSize;
+
+/**
+ * Plans the thinning interval and number of simulation iterations from the
+ * autocorrelation measured during a pilot run after the tuning phase, once
+ * the step sizes no longer adapt. The
+ * thinning interval is the integrated autocorrelation time of the slowest
+ * mixing parameter, so that the stored samples are nearly independent, and
+ * the number of iterations is chosen so that the last half of the chains
+ * holds the target effective sample size.
+ */
+class IterationPlanner {
+	private final double[][][] d_samples; // [parameter][chain][sample]
+	private final int[] d_recorded;
+
+	/**
+	 * @param nChains The number of chains.
+	 * @param nParameters The number of monitored parameters.
+	 * @param nSamples The number of pilot iterations to record per chain.
+	 */
+	public IterationPlanner(int nChains, int nParameters, int nSamples) {
+		d_samples = new double[nParameters][nChains][nSamples];
+		d_recorded = new int[nChains];
+	}
+
+	/**
+	 * Record the current values of the given chain; called by that chain's thread only.
+	 * Values beyond the number of samples to record are ignored.
+	 */
+	public void record(int chain, List<ParameterWriter> writers) {
+		final int i = d_recorded[chain];
+		if (i >= d_samples[0][chain].length) {
+			return;
+		}
+		for (int p = 0; p < d_samples.length; ++p) {
+			d_samples[p][chain][i] = writers.get(p).getValue();
+		}
+		d_recorded[chain] = i + 1;
+	}
+
+	/**
+	 * The largest integrated autocorrelation time over the parameters, measured in iterations.
+	 */
+	public double getAutocorrelationTime() {
+		double tau = 1.0;
+		for (double[][] chains : d_samples) {
+			final int nChains = chains.length;
+			final int n = chains[0].length;
+			double[] samples = new double[nChains * n];
+			for (int c = 0; c < nChains; ++c) {
+				System.arraycopy(chains[c], 0, samples, c * n, n);
+			}
+			final double ess = EffectiveSampleSize.calculate(samples, nChains);
+			if (ess > 0.0) {
+				tau = Math.max(tau, samples.length / ess);
+			}
+		}
+		return tau;
+	}
+
+	/**
+	 * @param tau The integrated autocorrelation time.
+	 * @return The thinning interval.
+	 */
+	public static int planThinning(double tau) {
+		return Math.max(1, (int) Math.ceil(tau));
+	}
+
+	/**
+	 * @param tau The integrated autocorrelation time.
+	 * @param targetEffectiveSampleSize The effective sample size to reach over the last half of all chains.
+	 * @param nChains The number of chains.
+	 * @param thinning The thinning interval.
+	 * @return The number of simulation iterations: a multiple of both 100 and the thinning interval.
+	 */
+	public static int planIterations(double tau, double targetEffectiveSampleSize, int nChains, int thinning) {
+		final int step = getIterationStep(thinning);
+		final double needed = 2 * targetEffectiveSampleSize * tau / nChains;
+		return Math.max(1, (int) Math.ceil(needed / step)) * step;
+	}
+
+	/**
+	 * The simulation length, and any extension of it, should be a multiple of
+	 * this: a multiple of 100 that is also a multiple of the thinning interval,
+	 * so that each chain stores exactly iterations / thinning samples.
+	 */
+	public static int getIterationStep(int thinning) {
+		return lcm(100, thinning);
+	}
+
+	/**
+	 * Round the number of iterations up to a multiple of getIterationStep(thinning).
+	 */
+	public static int roundIterations(int iterations, int thinning) {
+		final int step = getIterationStep(thinning);
+		return (iterations + step - 1) / step * step;
+	}
+
+	private static int lcm(int a, int b) {
+		int x = a;
+		int y = b;
+		while (y != 0) {
+			int t = x % y;
+			x = y;
+			y = t;
+		}
+		return a / x * b;
+	}
+}
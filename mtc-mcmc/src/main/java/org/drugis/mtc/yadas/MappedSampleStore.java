@@ -0,0 +1,187 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sample storage in memory-mapped files, so that the samples live in the
+ * OS page cache rather than on the heap. Each chain has its own file, which
+ * grows in blocks of (1 << shift) samples for all parameters; within a block
+ * the samples are stored per parameter. Each block is mapped separately, so
+ * growing the store never copies or re-maps the samples stored so far.
+ *
+ * The files are temporary: they are deleted when the store is disposed, or
+ * otherwise when the virtual machine exits.
+ *
+ * Java 5 has no API to unmap a MappedByteBuffer: a mapping is only released
+ * when its buffer is garbage collected, and closing the file does not
+ * release it. Disposing the store therefore drops all references to the
+ * mapped blocks, but the mappings (and, on Windows, the lock on the files,
+ * which prevents their deletion until exit) remain until the next garbage
+ * collection. Views returned by getBuffer() keep their block mapped for as
+ * long as they are referenced, so callers should not hold on to them.
+ */
+class MappedSampleStore implements SampleStore {
+	public static final int DEFAULT_BLOCK_SHIFT = 12;
+	private static final int BYTES_PER_DOUBLE = 8;
+
+	private final int d_shift;
+	private final int d_blockSize;
+	private final int d_mask;
+	private final int d_nParameters;
+	private final File[] d_files;
+	private final RandomAccessFile[] d_channels;
+	private DoubleBuffer[][] d_blocks; // [chain][block]
+	private int d_capacity;
+
+	public static Factory createFactory(final File directory) {
+		return new Factory() {
+			public SampleStore create(int nChains, int nParameters) {
+				return new MappedSampleStore(directory, nChains, nParameters, DEFAULT_BLOCK_SHIFT);
+			}
+		};
+	}
+
+	/**
+	 * @param directory The directory to create the files in; null for the system default.
+	 * @param blockShift Blocks hold (1 << blockShift) samples for each parameter.
+	 */
+	public MappedSampleStore(File directory, int nChains, int nParameters, int blockShift) {
+		d_shift = blockShift;
+		d_blockSize = 1 << blockShift;
+		d_mask = d_blockSize - 1;
+		d_nParameters = nParameters;
+		d_files = new File[nChains];
+		d_channels = new RandomAccessFile[nChains];
+		d_blocks = new DoubleBuffer[nChains][0];
+		d_capacity = 0;
+		try {
+			for (int c = 0; c < nChains; ++c) {
+				d_files[c] = File.createTempFile("mcmc-chain" + c + "-", ".samples", directory);
+				d_files[c].deleteOnExit();
+				d_channels[c] = new RandomAccessFile(d_files[c], "rw");
+			}
+		} catch (IOException e) {
+			dispose();
+			throw new RuntimeException("Failed to create sample files in " + directory, e);
+		}
+	}
+
+	public int getCapacity() {
+		return d_capacity;
+	}
+
+	public void reserve(int capacity) {
+		if (capacity <= d_capacity) {
+			return;
+		}
+		final int nBlocks = (capacity + d_mask) >> d_shift;
+		final long blockBytes = (long) d_nParameters * d_blockSize * BYTES_PER_DOUBLE;
+		try {
+			for (int c = 0; c < d_blocks.length; ++c) {
+				DoubleBuffer[] blocks = new DoubleBuffer[nBlocks];
+				System.arraycopy(d_blocks[c], 0, blocks, 0, d_blocks[c].length);
+				FileChannel channel = d_channels[c].getChannel();
+				for (int k = d_blocks[c].length; k < nBlocks; ++k) {
+					blocks[k] = channel.map(FileChannel.MapMode.READ_WRITE, k * blockBytes, blockBytes)
+						.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+				}
+				d_blocks[c] = blocks;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to map sample files", e);
+		}
+		d_capacity = capacity;
+	}
+
+	private int index(int p, int i) {
+		return p * d_blockSize + (i & d_mask);
+	}
+
+	public double get(int c, int p, int i) {
+		return d_blocks[c][i >> d_shift].get(index(p, i));
+	}
+
+	public void set(int c, int p, int i, double value) {
+		d_blocks[c][i >> d_shift].put(index(p, i), value);
+	}
+
+	public void get(int c, int p, int from, int to, double[] dst, int offset) {
+		while (from < to) {
+			final int length = Math.min(d_blockSize - (from & d_mask), to - from);
+			DoubleBuffer block = d_blocks[c][from >> d_shift].duplicate();
+			block.position(index(p, from));
+			block.get(dst, offset, length);
+			from += length;
+			offset += length;
+		}
+	}
+
+	/**
+	 * This does not copy if the samples fit in a single block; the returned
+	 * view then keeps that block mapped while it is referenced.
+	 */
+	public DoubleBuffer getBuffer(int c, int p, int n) {
+		if (n == 0) {
+			return DoubleBuffer.wrap(new double[0]).asReadOnlyBuffer();
+		}
+		if (n <= d_blockSize) {
+			DoubleBuffer block = d_blocks[c][0].duplicate();
+			block.limit(index(p, 0) + n);
+			block.position(index(p, 0));
+			return block.slice().asReadOnlyBuffer();
+		}
+		double[] samples = new double[n];
+		get(c, p, 0, n, samples, 0);
+		return DoubleBuffer.wrap(samples).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Drops the mapped blocks and closes and deletes the files. The mappings
+	 * themselves are released by the garbage collector (see above).
+	 */
+	public void dispose() {
+		for (int c = 0; c < d_blocks.length; ++c) {
+			for (int k = 0; k < d_blocks[c].length; ++k) {
+				d_blocks[c][k] = null;
+			}
+			d_blocks[c] = new DoubleBuffer[0];
+		}
+		d_capacity = 0;
+		for (int c = 0; c < d_files.length; ++c) {
+			try {
+				if (d_channels[c] != null) {
+					d_channels[c].close();
+				}
+			} catch (IOException e) {
+				// the file is deleted below or on exit
+			}
+			if (d_files[c] != null) {
+				d_files[c].delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import java.io.File;
+
+/**
+ * YadasResults that keep the samples in memory-mapped temporary files rather
+ * than on the heap, for very long runs. The page cache holds the samples, so
+ * the heap only needs room for the parameters and the summaries.
+ */
+public class MappedYadasResults extends YadasResults {
+	/**
+	 * @param directory The directory to create the sample files in; null for the system default.
+	 */
+	public MappedYadasResults(File directory) {
+		super(MappedSampleStore.createFactory(directory));
+	}
+}
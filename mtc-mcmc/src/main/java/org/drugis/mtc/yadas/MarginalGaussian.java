@@ -0,0 +1,156 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import edu.uci.ics.jung.graph.util.Pair;
+import gov.lanl.yadas.ArgumentMaker;
+import gov.lanl.yadas.Likelihood;
+
+import java.util.List;
+
+import org.drugis.mtc.model.Treatment;
+
+/**
+ * Computes the log of the probability density of the observed arm means of
+ * a continuous study, with the study's random effects integrated out.
+ *
+ * The arm means are theta = mu + L delta, where L sums the relative effects
+ * along the path from each arm to the study baseline, and the relative
+ * effects have the block-structured covariance sigma^2 S generated by
+ * SigmaRowArgumentMaker. The observations m ~ N(theta, diag(se^2)) then
+ * have the marginal distribution N(E(theta), diag(se^2) + sigma^2 L S L'),
+ * where L S L' is constant and computed at construction.
+ *
+ * The arguments are expected to be: data[0] the observed means, data[1]
+ * the expected means, data[2][0] the random effects standard deviation sigma.
+ * @see MarginalThetaArgumentMaker
+ */
+public class MarginalGaussian implements Likelihood {
+	private static final double LOG_2PI = Math.log(2 * Math.PI);
+
+	private final int d_dim;
+	private final double[] d_errorVar;
+	private final double[][] d_structure;
+	private final double[][] d_chol;
+	private final double[] d_z;
+
+	/**
+	 * @param stdErr The standard errors of the observed means.
+	 * @param structure The matrix L S L', of the same dimension.
+	 */
+	public MarginalGaussian(double[] stdErr, double[][] structure) {
+		d_dim = stdErr.length;
+		if (structure.length != d_dim) {
+			throw new IllegalArgumentException("The structure matrix should be " + d_dim + " x " + d_dim);
+		}
+		d_errorVar = new double[d_dim];
+		for (int i = 0; i < d_dim; ++i) {
+			d_errorVar[i] = stdErr[i] * stdErr[i];
+		}
+		d_structure = structure;
+		d_chol = new double[d_dim][d_dim];
+		d_z = new double[d_dim];
+	}
+
+	/**
+	 * Create the likelihood for the given study.
+	 * @param treatments The treatments of the study, in the order of the observations.
+	 * @param studyPmtz The study parameterization: (baseline, subject) pairs, forming a tree.
+	 * @param stdErr The standard errors of the observed means.
+	 */
+	public static MarginalGaussian create(List<Treatment> treatments, List<List<Pair<Treatment>>> studyPmtz, double[] stdErr) {
+		// L, column by column: the treatment means for a unit relative effect
+		final int nArms = treatments.size();
+		final int nDelta = nArms - 1;
+		final ThetaArgumentMaker theta = new ThetaArgumentMaker(treatments, studyPmtz, 0, 1);
+		final double[][] l = new double[nArms][nDelta];
+		final double[][] data = { {0.0}, new double[nDelta] };
+		for (int j = 0; j < nDelta; ++j) {
+			data[1][j] = 1.0;
+			final double[] column = theta.getArgument(data);
+			for (int i = 0; i < nArms; ++i) {
+				l[i][j] = column[i];
+			}
+			data[1][j] = 0.0;
+		}
+
+		// S, the covariance of the relative effects for sigma = 1
+		final List<ArgumentMaker> rows = SigmaRowArgumentMaker.createMatrixArgumentMaker(studyPmtz, 0);
+		final double[][] s = new double[nDelta][];
+		for (int j = 0; j < nDelta; ++j) {
+			s[j] = rows.get(j).getArgument(new double[][] { {1.0} });
+		}
+
+		final double[][] structure = new double[nArms][nArms];
+		for (int a = 0; a < nArms; ++a) {
+			for (int b = 0; b < nArms; ++b) {
+				double x = 0.0;
+				for (int j = 0; j < nDelta; ++j) {
+					for (int k = 0; k < nDelta; ++k) {
+						x += l[a][j] * s[j][k] * l[b][k];
+					}
+				}
+				structure[a][b] = x;
+			}
+		}
+		return new MarginalGaussian(stdErr, structure);
+	}
+
+	public double compute(double[][] data) {
+		return compute(data[0], data[1], data[2][0]);
+	}
+
+	public double compute(double[] x, double[] mu, double sd) {
+		if (x.length != d_dim || mu.length != d_dim) {
+			throw new IllegalArgumentException("All arguments need to be of length " + d_dim);
+		}
+		final double var = sd * sd;
+
+		// Cholesky decomposition of the covariance matrix
+		double logDet = 0.0;
+		for (int i = 0; i < d_dim; ++i) {
+			for (int j = 0; j <= i; ++j) {
+				double sum = var * d_structure[i][j] + (i == j ? d_errorVar[i] : 0.0);
+				for (int k = 0; k < j; ++k) {
+					sum -= d_chol[i][k] * d_chol[j][k];
+				}
+				if (i == j) {
+					d_chol[i][i] = Math.sqrt(sum);
+					logDet += 2 * Math.log(d_chol[i][i]);
+				} else {
+					d_chol[i][j] = sum / d_chol[j][j];
+				}
+			}
+		}
+
+		// (x - mu)' inv(sigma) (x - mu) = |z|^2, where chol z = x - mu
+		double quad = 0.0;
+		for (int i = 0; i < d_dim; ++i) {
+			double sum = x[i] - mu[i];
+			for (int k = 0; k < i; ++k) {
+				sum -= d_chol[i][k] * d_z[k];
+			}
+			d_z[i] = sum / d_chol[i][i];
+			quad += d_z[i] * d_z[i];
+		}
+
+		return -0.5 * (d_dim * LOG_2PI + logDet + quad);
+	}
+}
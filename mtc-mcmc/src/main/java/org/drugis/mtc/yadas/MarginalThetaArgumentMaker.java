@@ -0,0 +1,59 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.parameterization.NetworkModel;
+import org.drugis.mtc.parameterization.Parameterization;
+
+/**
+ * ArgumentMaker for the expected treatment means within studies when the
+ * random effects have been integrated out.
+ * E(theta_i,k) = mu_i + d_b(i),k ; d_b(i),k = f(B, W)
+ * @see MarginalGaussian
+ */
+public class MarginalThetaArgumentMaker extends ThetaArgumentMaker {
+	private final RelativeEffectArgumentMaker d_relativeEffects;
+
+	/**
+	 * @param pmtz Parameterization of the network.
+	 * @param study The study to calculate treatment means of.
+	 * @param muIdx The index where the baseline effects (mu) are expected.
+	 * @param bIdx The index where the basic and inconsistency parameters are expected.
+	 */
+	public MarginalThetaArgumentMaker(Parameterization pmtz, Study study, int muIdx, int bIdx) {
+		super(NetworkModel.getTreatments(study), pmtz.parameterizeStudy(study), muIdx, -1);
+		d_relativeEffects = new RelativeEffectArgumentMaker(pmtz, study, bIdx, -1);
+	}
+
+	/**
+	 * Calculate "the argument": an array of expected treatment means, one for each study-arm.
+	 * The returned array is re-used between invocations.
+	 */
+	@Override
+	public double[] getArgument(double[][] data) {
+		final double mu = data[getMuIndex()][0];
+		final double[] d = d_relativeEffects.getArgument(data);
+		for (int i = 0; i < d_output.length; ++i) {
+			d_output[i] = theta(i, mu, d);
+		}
+		return d_output;
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.drugis.common.stat.Statistics;
+import org.drugis.mtc.hmc.LogDensity;
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.NetworkModel;
+import org.drugis.mtc.parameterization.Parameterization;
+
+/**
+ * The posterior log-density of the network model built by YadasModel, with
+ * its analytic gradient, for Hamiltonian updates. The state is laid out as
+ * mu_s followed by the relative effects delta_s for each study (in network
+ * order), then the basic and inconsistency parameters, then the random
+ * effects standard deviation and, for inconsistency models, the inconsistency
+ * standard deviation.
+ *
+ * The standard deviations have uniform priors on (LOWER_BOUND, upper), and
+ * are mapped to the real line by sd = LOWER_BOUND + (upper - LOWER_BOUND) ilogit(u);
+ * the density includes the log-Jacobian of that transformation.
+ */
+class NetworkLogDensity implements LogDensity {
+	static final double LOWER_BOUND = 0.00001;
+
+	private final boolean d_rate;
+	private final int d_nStudies;
+	private final int[] d_offset; // offset of mu_s; delta_s follows
+	private final int[] d_reDim;
+	private final double[][] d_obs1; // responders or means
+	private final double[][] d_obs2; // sample sizes or standard errors
+	private final ThetaArgumentMaker[] d_theta;
+	private final RelativeEffectArgumentMaker[] d_relativeEffect;
+	private final CompoundSymmetricGaussian[] d_randomEffects;
+	private final int d_paramOffset;
+	private final int d_nParams;
+	private final int d_nBasic;
+	private final double d_vagueVar;
+	private final double d_sigmaUpper;
+	private final double d_sigmawUpper;
+	private final int d_dim;
+
+	// work arrays, re-used between evaluations
+	private final double[][][] d_thetaInput;
+	private final double[][] d_basicInput;
+	private final double[][] d_deltaGradient;
+	private final double[][] d_armGradient;
+	private final double[][] d_reGradient;
+	private final double[] d_paramGradient;
+	private final double[] d_muGradient = new double[1];
+	private final double[] d_sdGradient = new double[1];
+
+	/**
+	 * @param network The network; its studies determine the layout.
+	 * @param pmtz The parameterization.
+	 * @param nBasic The number of basic parameters: the remaining parameters are inconsistency factors.
+	 * @param vagueSigma The prior standard deviation of the baselines and basic parameters.
+	 * @param randomEffectsSigma The upper bound of the random effects standard deviation.
+	 * @param inconsistencySigma The upper bound of the inconsistency standard deviation, or NaN if it is absent.
+	 */
+	public NetworkLogDensity(Network network, Parameterization pmtz, int nBasic,
+			double vagueSigma, double randomEffectsSigma, double inconsistencySigma) {
+		final List<Study> studies = network.getStudies();
+		switch (network.getType()) {
+		case CONTINUOUS:
+			d_rate = false;
+			break;
+		case RATE:
+			d_rate = true;
+			break;
+		default:
+			throw new IllegalArgumentException("Don't know how to handle " + network.getType() + " data");
+		}
+		d_nStudies = studies.size();
+		d_offset = new int[d_nStudies];
+		d_reDim = new int[d_nStudies];
+		d_obs1 = new double[d_nStudies][];
+		d_obs2 = new double[d_nStudies][];
+		d_theta = new ThetaArgumentMaker[d_nStudies];
+		d_relativeEffect = new RelativeEffectArgumentMaker[d_nStudies];
+		d_randomEffects = new CompoundSymmetricGaussian[d_nStudies];
+		d_thetaInput = new double[d_nStudies][][];
+		d_deltaGradient = new double[d_nStudies][];
+		d_armGradient = new double[d_nStudies][];
+		d_reGradient = new double[d_nStudies][];
+
+		int offset = 0;
+		for (int s = 0; s < d_nStudies; ++s) {
+			final Study study = studies.get(s);
+			final List<Treatment> treatments = NetworkModel.getTreatments(study);
+			d_offset[s] = offset;
+			d_reDim[s] = treatments.size() - 1;
+			offset += 1 + d_reDim[s];
+
+			d_obs1[s] = new double[treatments.size()];
+			d_obs2[s] = new double[treatments.size()];
+			for (int i = 0; i < treatments.size(); ++i) {
+				final Measurement m = NetworkModel.findMeasurement(study, treatments.get(i));
+				if (d_rate) {
+					d_obs1[s][i] = m.getResponders();
+					d_obs2[s][i] = m.getSampleSize();
+				} else {
+					d_obs1[s][i] = m.getMean();
+					d_obs2[s][i] = m.getStdDev() / Math.sqrt(m.getSampleSize());
+				}
+			}
+			d_theta[s] = new ThetaArgumentMaker(treatments, pmtz.parameterizeStudy(study), 0, 1);
+			d_relativeEffect[s] = new RelativeEffectArgumentMaker(pmtz, study, 0, -1);
+			d_randomEffects[s] = CompoundSymmetricGaussian.create(pmtz.parameterizeStudy(study));
+			d_thetaInput[s] = new double[][] { new double[1], new double[d_reDim[s]] };
+			d_deltaGradient[s] = new double[d_reDim[s]];
+			d_armGradient[s] = new double[treatments.size()];
+			d_reGradient[s] = new double[d_reDim[s]];
+		}
+		d_paramOffset = offset;
+		d_nParams = pmtz.getParameters().size();
+		d_nBasic = nBasic;
+		d_basicInput = new double[][] { new double[d_nParams] };
+		d_paramGradient = new double[d_nParams];
+		d_vagueVar = vagueSigma * vagueSigma;
+		d_sigmaUpper = randomEffectsSigma;
+		d_sigmawUpper = inconsistencySigma;
+		d_dim = d_paramOffset + d_nParams + (hasInconsistency() ? 2 : 1);
+	}
+
+	public int getDimension() {
+		return d_dim;
+	}
+
+	private boolean hasInconsistency() {
+		return !Double.isNaN(d_sigmawUpper);
+	}
+
+	public double evaluate(double[] x, double[] gradient) {
+		Arrays.fill(gradient, 0.0);
+		Arrays.fill(d_paramGradient, 0.0);
+		d_sdGradient[0] = 0.0;
+		double logp = 0.0;
+
+		// basic parameters and their priors
+		final double[] basic = d_basicInput[0];
+		System.arraycopy(x, d_paramOffset, basic, 0, d_nParams);
+		for (int j = 0; j < d_nBasic; ++j) {
+			logp -= 0.5 * basic[j] * basic[j] / d_vagueVar;
+			d_paramGradient[j] -= basic[j] / d_vagueVar;
+		}
+		final int sigmaIdx = d_paramOffset + d_nParams;
+		if (hasInconsistency()) {
+			final int sigmawIdx = sigmaIdx + 1;
+			final double sigmaw = constrain(x[sigmawIdx], d_sigmawUpper);
+			final double varw = sigmaw * sigmaw;
+			double sumSq = 0.0;
+			for (int j = d_nBasic; j < d_nParams; ++j) {
+				sumSq += basic[j] * basic[j];
+				d_paramGradient[j] -= basic[j] / varw;
+			}
+			final int nIncons = d_nParams - d_nBasic;
+			logp += -nIncons * Math.log(sigmaw) - 0.5 * sumSq / varw + logJacobian(x[sigmawIdx]);
+			final double dSigmaw = -nIncons / sigmaw + sumSq / (varw * sigmaw);
+			gradient[sigmawIdx] = dSigmaw * dConstrain(x[sigmawIdx], d_sigmawUpper) + dLogJacobian(x[sigmawIdx]);
+		}
+
+		final double sigma = constrain(x[sigmaIdx], d_sigmaUpper);
+		for (int s = 0; s < d_nStudies; ++s) {
+			final int muIdx = d_offset[s];
+			final double[][] input = d_thetaInput[s];
+			final double[] delta = input[1];
+			input[0][0] = x[muIdx];
+			System.arraycopy(x, muIdx + 1, delta, 0, d_reDim[s]);
+
+			// baseline prior
+			logp -= 0.5 * x[muIdx] * x[muIdx] / d_vagueVar;
+			gradient[muIdx] -= x[muIdx] / d_vagueVar;
+
+			// likelihood of the data
+			final double[] theta = d_theta[s].getArgument(input);
+			final double[] obs1 = d_obs1[s];
+			final double[] obs2 = d_obs2[s];
+			final double[] armGradient = d_armGradient[s];
+			for (int i = 0; i < theta.length; ++i) {
+				if (d_rate) { // r ~ Binom(ilogit(theta), n)
+					logp += obs1[i] * theta[i] - obs2[i] * softplus(theta[i]);
+					armGradient[i] = obs1[i] - obs2[i] * Statistics.ilogit(theta[i]);
+				} else { // m ~ N(theta, se)
+					final double e = (obs1[i] - theta[i]) / obs2[i];
+					logp -= 0.5 * e * e;
+					armGradient[i] = e / obs2[i];
+				}
+			}
+			final double[] deltaGradient = d_deltaGradient[s];
+			Arrays.fill(deltaGradient, 0.0);
+			d_muGradient[0] = 0.0;
+			d_theta[s].addAdjoint(armGradient, d_muGradient, deltaGradient);
+			gradient[muIdx] += d_muGradient[0];
+
+			// random effects: delta_s ~ N(d(B, W), sigma)
+			final double[] re = d_relativeEffect[s].getArgument(d_basicInput);
+			final double[] reGradient = d_reGradient[s];
+			Arrays.fill(reGradient, 0.0);
+			logp += d_randomEffects[s].compute(delta, re, sigma, reGradient, d_sdGradient);
+			for (int i = 0; i < d_reDim[s]; ++i) {
+				gradient[muIdx + 1 + i] = deltaGradient[i] + reGradient[i];
+				// the gradient with respect to the mean is the negation of that with respect to delta
+				reGradient[i] = -reGradient[i];
+			}
+			d_relativeEffect[s].addAdjoint(reGradient, d_paramGradient);
+		}
+
+		System.arraycopy(d_paramGradient, 0, gradient, d_paramOffset, d_nParams);
+		logp += logJacobian(x[sigmaIdx]);
+		gradient[sigmaIdx] = d_sdGradient[0] * dConstrain(x[sigmaIdx], d_sigmaUpper) + dLogJacobian(x[sigmaIdx]);
+		return logp;
+	}
+
+	/**
+	 * Transform the standard deviations in a state from their natural scale to the real line, in place.
+	 */
+	public void unconstrain(double[] x) {
+		final int sigmaIdx = d_paramOffset + d_nParams;
+		x[sigmaIdx] = unconstrain(x[sigmaIdx], d_sigmaUpper);
+		if (hasInconsistency()) {
+			x[sigmaIdx + 1] = unconstrain(x[sigmaIdx + 1], d_sigmawUpper);
+		}
+	}
+
+	/**
+	 * Transform the standard deviations in a state from the real line to their natural scale, in place.
+	 */
+	public void constrain(double[] x) {
+		final int sigmaIdx = d_paramOffset + d_nParams;
+		x[sigmaIdx] = constrain(x[sigmaIdx], d_sigmaUpper);
+		if (hasInconsistency()) {
+			x[sigmaIdx + 1] = constrain(x[sigmaIdx + 1], d_sigmawUpper);
+		}
+	}
+
+	private static double constrain(double u, double upper) {
+		return LOWER_BOUND + (upper - LOWER_BOUND) * Statistics.ilogit(u);
+	}
+
+	private static double unconstrain(double sd, double upper) {
+		final double p = (sd - LOWER_BOUND) / (upper - LOWER_BOUND);
+		return Math.log(p / (1 - p));
+	}
+
+	private static double dConstrain(double u, double upper) {
+		final double p = Statistics.ilogit(u);
+		return (upper - LOWER_BOUND) * p * (1 - p);
+	}
+
+	/**
+	 * log |d sd / d u|, up to a constant: log(p) + log(1 - p) with p = ilogit(u).
+	 */
+	private static double logJacobian(double u) {
+		return -softplus(-u) - softplus(u);
+	}
+
+	private static double dLogJacobian(double u) {
+		return 1 - 2 * Statistics.ilogit(u);
+	}
+
+	/**
+	 * log(1 + exp(x)), without overflow.
+	 */
+	private static double softplus(double x) {
+		return x > 0 ? x + Math.log1p(Math.exp(-x)) : Math.log1p(Math.exp(x));
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCParameter;
+import gov.lanl.yadas.MCMCUpdate;
+
+import java.util.List;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.drugis.mtc.hmc.NoUTurnSampler;
+
+/**
+ * Joint update of all parameters of a network model by the No-U-Turn
+ * Sampler. The parameters are read from and written back to the
+ * MCMCParameters, so the usual ParameterWriters record the samples.
+ * @see NetworkLogDensity
+ */
+class NoUTurnUpdate implements MCMCUpdate {
+	private final MCMCParameter[] d_params;
+	private final NetworkLogDensity d_density;
+	private final NoUTurnSampler d_sampler;
+	private final double[] d_state;
+
+	/**
+	 * @param params The parameters, in the layout of the density.
+	 * @param density The log-density.
+	 * @param rng The random source.
+	 * @param nAdapt The number of updates during which the sampler adapts.
+	 */
+	public NoUTurnUpdate(List<MCMCParameter> params, NetworkLogDensity density, RandomGenerator rng, int nAdapt) {
+		d_params = params.toArray(new MCMCParameter[params.size()]);
+		d_density = density;
+		d_sampler = new NoUTurnSampler(density, rng, nAdapt);
+		d_state = new double[density.getDimension()];
+	}
+
+	public void update() {
+		int k = 0;
+		for (MCMCParameter param : d_params) {
+			for (int i = 0; i < param.getValue().length; ++i) {
+				d_state[k++] = param.getValue(i);
+			}
+		}
+		d_density.unconstrain(d_state);
+		d_sampler.transition(d_state);
+		d_density.constrain(d_state);
+		k = 0;
+		for (MCMCParameter param : d_params) {
+			final double[] value = new double[param.getValue().length];
+			System.arraycopy(d_state, k, value, 0, value.length);
+			param.setValue(value);
+			k += value.length;
+		}
+	}
+
+	public String accepted() {
+		return "step size " + d_sampler.getStepSize() + ", " + d_sampler.getDivergences() + " divergent transitions";
+	}
+
+	public void updateoutput() {
+	}
+
+	public void finish() {
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import edu.uci.ics.jung.graph.util.Pair;
+import gov.lanl.yadas.ArgumentMaker;
+
+import java.util.List;
+
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.Parameterization;
+
+/**
+ * ArgumentMaker for the relative effects of a study in the non-centered
+ * parameterization: delta = d(B, W) + sigma C z, with z standard normal and
+ * C the Cholesky factor of the covariance structure S generated by
+ * SigmaRowArgumentMaker (for sigma = 1). Because S is block diagonal, so is
+ * C, and it is computed once per study.
+ */
+public class NonCenteredArgumentMaker implements ArgumentMaker {
+	private final RelativeEffectArgumentMaker d_relativeEffects;
+	private final int d_zIdx;
+	private final int d_sigmaIdx;
+	private final int[] d_blockSizes;
+	private final double[][] d_chol; // lower triangle of each row, within its block
+	private final double[] d_output;
+
+	/**
+	 * @param pmtz Parameterization of the network.
+	 * @param study The study to calculate relative effects of.
+	 * @param zIdx The index of the latent standard normal variables in the input data.
+	 * @param bIdx The index of the basic and inconsistency parameters in the input data.
+	 * @param sigmaIdx The index of the random effects standard deviation in the input data.
+	 */
+	public NonCenteredArgumentMaker(Parameterization pmtz, Study study, int zIdx, int bIdx, int sigmaIdx) {
+		d_relativeEffects = new RelativeEffectArgumentMaker(pmtz, study, bIdx, -1);
+		d_zIdx = zIdx;
+		d_sigmaIdx = sigmaIdx;
+
+		final List<List<Pair<Treatment>>> studyPmtz = pmtz.parameterizeStudy(study);
+		d_blockSizes = new int[studyPmtz.size()];
+		int dim = 0;
+		for (int b = 0; b < d_blockSizes.length; ++b) {
+			d_blockSizes[b] = studyPmtz.get(b).size();
+			dim += d_blockSizes[b];
+		}
+		d_chol = new double[dim][];
+		int offset = 0;
+		for (int k : d_blockSizes) {
+			final double[][] c = cholesky(k);
+			for (int i = 0; i < k; ++i) {
+				d_chol[offset + i] = c[i];
+			}
+			offset += k;
+		}
+		d_output = new double[dim];
+	}
+
+	/**
+	 * Cholesky factor of the compound symmetric block (I + J) / 2 of size k.
+	 */
+	private static double[][] cholesky(int k) {
+		final double[][] c = new double[k][];
+		for (int i = 0; i < k; ++i) {
+			c[i] = new double[i + 1];
+			for (int j = 0; j <= i; ++j) {
+				double sum = i == j ? 1.0 : 0.5;
+				for (int l = 0; l < j; ++l) {
+					sum -= c[i][l] * c[j][l];
+				}
+				c[i][j] = i == j ? Math.sqrt(sum) : sum / c[j][j];
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Calculate "the argument": an array of values for the study's relative effects.
+	 * data[zIdx] should contain the latent variables, in the order of the relative effects
+	 * data[bIdx] should contain the basic parameters, followed by the inconsistency factors
+	 * data[sigmaIdx][0] should contain the random effects standard deviation
+	 * The returned array is re-used between invocations.
+	 */
+	public double[] getArgument(double[][] data) {
+		final double[] d = d_relativeEffects.getArgument(data);
+		final double[] z = data[d_zIdx];
+		final double sigma = data[d_sigmaIdx][0];
+		int offset = 0;
+		for (int k : d_blockSizes) {
+			for (int i = offset; i < offset + k; ++i) {
+				final double[] row = d_chol[i];
+				double x = 0.0;
+				for (int j = 0; j < row.length; ++j) {
+					x += row[j] * z[offset + j];
+				}
+				d_output[i] = d[i] + sigma * x;
+			}
+			offset += k;
+		}
+		return d_output;
+	}
+
+	/**
+	 * Wrap an ArgumentMaker that expects (mu, delta) at indices (0, 1), such
+	 * as ThetaArgumentMaker, so that it is given the relative effects generated
+	 * by this ArgumentMaker instead.
+	 * @param maker The ArgumentMaker to wrap.
+	 * @param muIdx The index of the study baseline in the input data.
+	 */
+	public ArgumentMaker wrap(final ArgumentMaker maker, final int muIdx) {
+		final double[][] input = new double[2][];
+		return new ArgumentMaker() {
+			public double[] getArgument(double[][] data) {
+				input[0] = data[muIdx];
+				input[1] = NonCenteredArgumentMaker.this.getArgument(data);
+				return maker.getArgument(input);
+			}
+		};
+	}
+}
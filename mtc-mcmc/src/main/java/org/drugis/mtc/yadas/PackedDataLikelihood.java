@@ -0,0 +1,240 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.special.Gamma;
+import org.drugis.mtc.data.DataType;
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.NetworkModel;
+import org.drugis.mtc.parameterization.Parameterization;
+
+/**
+ * The data log-likelihood of all studies, with the data of all arms packed
+ * into flat arrays. For dichotomous data, r_i ~ Binom(ilogit(theta_i), n_i);
+ * for continuous data, m_i ~ N(theta_i, s_i^2); in both cases
+ * theta_i = mu_s(i) + delta_s(i)b(i)t(i), as in ThetaArgumentMaker.
+ *
+ * Compared to a BasicMCMCBond per study, there are no argument makers,
+ * double[][] arguments or virtual likelihood calls: the study baselines and
+ * relative effects are copied into flat arrays, after which the treatment
+ * effects and the likelihood are computed in simple loops over the arms.
+ * The constant terms (the log binomial coefficients, or the normalizing
+ * constants of the normal densities) are computed once.
+ *
+ * The bonds returned by getBond() each evaluate the likelihood of a single
+ * study. Different studies only write to disjoint parts of the arrays, so
+ * their bonds may be computed concurrently.
+ */
+public class PackedDataLikelihood {
+	private final DataType d_type;
+	private final MCMCParameter[] d_muParam;
+	private final MCMCParameter[] d_deltaParam;
+
+	// study s has arms [d_armStart[s], d_armStart[s + 1]) and relative effects [d_deltaStart[s], d_deltaStart[s + 1])
+	private final int[] d_armStart;
+	private final int[] d_deltaStart;
+	// the relative effects of arm a are d_delta[d_pathDelta[k]] for k in [d_pathStart[a], d_pathStart[a + 1])
+	private final int[] d_pathStart;
+	private final int[] d_pathDelta;
+
+	// observations: responders and sample sizes, or means and inverse variances
+	private final double[] d_x;
+	private final double[] d_y;
+	private final double[] d_constant;
+
+	private final double[] d_mu;
+	private final double[] d_delta;
+	private final double[] d_theta;
+
+	/**
+	 * @param type The type of data: RATE or CONTINUOUS.
+	 * @param studies The studies, in the order in which they are packed.
+	 * @param pmtz The parameterization, which determines the order of the relative effects within each study.
+	 * @param mu The baseline parameter of each study.
+	 * @param delta The relative effects parameter of each study.
+	 */
+	public PackedDataLikelihood(DataType type, List<Study> studies, Parameterization pmtz,
+			Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta) {
+		if (type != DataType.RATE && type != DataType.CONTINUOUS) {
+			throw new IllegalArgumentException("Don't know how to handle " + type + " data");
+		}
+		d_type = type;
+		final int nStudies = studies.size();
+		d_muParam = new MCMCParameter[nStudies];
+		d_deltaParam = new MCMCParameter[nStudies];
+		d_armStart = new int[nStudies + 1];
+		d_deltaStart = new int[nStudies + 1];
+
+		ThetaArgumentMaker[] theta = new ThetaArgumentMaker[nStudies];
+		int nPath = 0;
+		for (int s = 0; s < nStudies; ++s) {
+			final Study study = studies.get(s);
+			d_muParam[s] = mu.get(study);
+			d_deltaParam[s] = delta.get(study);
+			theta[s] = new ThetaArgumentMaker(NetworkModel.getTreatments(study), pmtz.parameterizeStudy(study), 0, 1);
+			d_armStart[s + 1] = d_armStart[s] + NetworkModel.getTreatments(study).size();
+			d_deltaStart[s + 1] = d_deltaStart[s] + d_deltaParam[s].getValue().length;
+			nPath += theta[s].getPathDelta().length;
+		}
+
+		final int nArms = d_armStart[nStudies];
+		d_pathStart = new int[nArms + 1];
+		d_pathDelta = new int[nPath];
+		d_x = new double[nArms];
+		d_y = new double[nArms];
+		d_constant = new double[nArms];
+		for (int s = 0; s < nStudies; ++s) {
+			final List<Treatment> treatments = NetworkModel.getTreatments(studies.get(s));
+			final int[] pathStart = theta[s].getPathStart();
+			final int[] pathDelta = theta[s].getPathDelta();
+			for (int k = 0; k < treatments.size(); ++k) {
+				final int a = d_armStart[s] + k;
+				d_pathStart[a + 1] = d_pathStart[a] + pathStart[k + 1] - pathStart[k];
+				for (int j = pathStart[k]; j < pathStart[k + 1]; ++j) {
+					d_pathDelta[d_pathStart[a] + j - pathStart[k]] = d_deltaStart[s] + pathDelta[j];
+				}
+				packArm(a, NetworkModel.findMeasurement(studies.get(s), treatments.get(k)));
+			}
+		}
+
+		d_mu = new double[nStudies];
+		d_delta = new double[d_deltaStart[nStudies]];
+		d_theta = new double[nArms];
+	}
+
+	private void packArm(int a, Measurement m) {
+		if (d_type == DataType.RATE) {
+			final int r = m.getResponders();
+			final int n = m.getSampleSize();
+			d_x[a] = r;
+			d_y[a] = n;
+			d_constant[a] = Gamma.logGamma(n + 1) - Gamma.logGamma(r + 1) - Gamma.logGamma(n - r + 1);
+		} else {
+			final double se = m.getStdDev() / Math.sqrt(m.getSampleSize());
+			d_x[a] = m.getMean();
+			d_y[a] = 1 / (se * se);
+			d_constant[a] = -0.5 * Math.log(2 * Math.PI) - Math.log(se);
+		}
+	}
+
+	/**
+	 * The number of packed studies.
+	 */
+	public int getNumberOfStudies() {
+		return d_muParam.length;
+	}
+
+	/**
+	 * The log-likelihood of all studies, at the current parameter values.
+	 */
+	public double logLikelihood() {
+		for (int s = 0; s < d_muParam.length; ++s) {
+			gather(s);
+		}
+		return logLikelihood(0, d_armStart[d_muParam.length]);
+	}
+
+	/**
+	 * The log-likelihood of study s, at the current parameter values.
+	 */
+	public double logLikelihood(int s) {
+		gather(s);
+		return logLikelihood(d_armStart[s], d_armStart[s + 1]);
+	}
+
+	/**
+	 * A bond for the likelihood of study s, for use in place of its data bond.
+	 * The bond is registered with the study's parameters.
+	 */
+	public MCMCBond getBond(int s) {
+		return new StudyBond(s);
+	}
+
+	/**
+	 * Copy the parameters of study s into the flat arrays, and compute its treatment effects.
+	 */
+	private void gather(int s) {
+		final double mu = d_muParam[s].getValue(0);
+		d_mu[s] = mu;
+		for (int i = d_deltaStart[s]; i < d_deltaStart[s + 1]; ++i) {
+			d_delta[i] = d_deltaParam[s].getValue(i - d_deltaStart[s]);
+		}
+		for (int a = d_armStart[s]; a < d_armStart[s + 1]; ++a) {
+			double theta = mu;
+			for (int k = d_pathStart[a]; k < d_pathStart[a + 1]; ++k) {
+				theta += d_delta[d_pathDelta[k]];
+			}
+			d_theta[a] = theta;
+		}
+	}
+
+	private double logLikelihood(int from, int to) {
+		double sum = 0.0;
+		if (d_type == DataType.RATE) {
+			// r log(p) + (n - r) log(1 - p) = r theta - n log(1 + exp(theta))
+			for (int a = from; a < to; ++a) {
+				final double theta = d_theta[a];
+				final double log1pExp = theta > 0 ? theta + Math.log1p(Math.exp(-theta)) : Math.log1p(Math.exp(theta));
+				sum += d_constant[a] + d_x[a] * theta - d_y[a] * log1pExp;
+			}
+		} else {
+			for (int a = from; a < to; ++a) {
+				final double e = d_x[a] - d_theta[a];
+				sum += d_constant[a] - 0.5 * e * e * d_y[a];
+			}
+		}
+		return sum;
+	}
+
+	private class StudyBond implements MCMCBond {
+		private final int d_study;
+		private double d_current;
+		private double d_new;
+
+		public StudyBond(int study) {
+			d_study = study;
+			d_current = logLikelihood(study);
+			// like BasicMCMCBond, register with the parameters so that their own updates include the bond
+			d_muParam[study].addBond(this);
+			d_deltaParam[study].addBond(this);
+		}
+
+		public double compute() {
+			d_new = logLikelihood(d_study);
+			return d_new - d_current;
+		}
+
+		public void revise() {
+			d_current = d_new;
+		}
+
+		public void reject() {
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the updates of the study baselines and random effects of one chain
+ * as batches on a shared thread pool. Given the basic parameters and the
+ * standard deviations, the studies are conditionally independent: the
+ * updates of different studies involve disjoint bonds and only read the
+ * shared parameters, so they can be run concurrently.
+ *
+ * The studies are split into contiguous batches of (nearly) equal size, one
+ * task per batch, and the update returns when all batches are done. Within a
+ * study, the updates are run in the given order. As long as each study's
+ * updates draw from their own random source, the results do not depend on
+ * the number of batches or on the scheduling of the threads.
+ */
+public class ParallelStudyUpdate implements MCMCUpdate {
+	private static ExecutorService s_executor;
+
+	private final List<List<MCMCUpdate>> d_studyUpdates;
+	private final List<List<List<MCMCUpdate>>> d_batches;
+	private final List<Callable<Object>> d_tasks;
+
+	/**
+	 * @param studyUpdates For each study, the updates of its parameters.
+	 * @param nBatches The number of batches to split the studies into.
+	 */
+	public ParallelStudyUpdate(List<? extends List<? extends MCMCUpdate>> studyUpdates, int nBatches) {
+		if (nBatches < 1) {
+			throw new IllegalArgumentException("The number of batches should be positive");
+		}
+		d_studyUpdates = new ArrayList<List<MCMCUpdate>>(studyUpdates.size());
+		for (List<? extends MCMCUpdate> updates : studyUpdates) {
+			d_studyUpdates.add(new ArrayList<MCMCUpdate>(updates));
+		}
+		nBatches = Math.min(nBatches, Math.max(d_studyUpdates.size(), 1));
+		d_batches = new ArrayList<List<List<MCMCUpdate>>>(nBatches);
+		d_tasks = new ArrayList<Callable<Object>>(nBatches);
+		for (int b = 0; b < nBatches; ++b) {
+			final List<List<MCMCUpdate>> batch = d_studyUpdates.subList(
+					b * d_studyUpdates.size() / nBatches, (b + 1) * d_studyUpdates.size() / nBatches);
+			d_batches.add(batch);
+			d_tasks.add(new Callable<Object>() {
+				public Object call() {
+					update(batch);
+					return null;
+				}
+			});
+		}
+	}
+
+	/**
+	 * Set the thread pool on which the batches are run. By default, a pool
+	 * with one daemon thread per available processor is used.
+	 */
+	public static synchronized void setExecutorService(ExecutorService executor) {
+		s_executor = executor;
+	}
+
+	private static synchronized ExecutorService getExecutorService() {
+		if (s_executor == null) {
+			s_executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "ParallelStudyUpdate");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return s_executor;
+	}
+
+	/**
+	 * The number of batches the studies are split into.
+	 */
+	public int getNumberOfBatches() {
+		return d_batches.size();
+	}
+
+	public void update() {
+		if (d_batches.size() == 1) {
+			update(d_batches.get(0));
+			return;
+		}
+		try {
+			for (Future<Object> future : getExecutorService().invokeAll(d_tasks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while updating the studies", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Failed to update the studies", e.getCause());
+		}
+	}
+
+	private static void update(List<List<MCMCUpdate>> batch) {
+		for (List<MCMCUpdate> updates : batch) {
+			for (MCMCUpdate update : updates) {
+				update.update();
+			}
+		}
+	}
+
+	public String accepted() {
+		StringBuilder str = new StringBuilder();
+		for (List<MCMCUpdate> updates : d_studyUpdates) {
+			for (MCMCUpdate update : updates) {
+				str.append(str.length() == 0 ? "" : "; ").append(update.accepted());
+			}
+		}
+		return str.toString();
+	}
+
+	public void updateoutput() {
+		for (List<MCMCUpdate> updates : d_studyUpdates) {
+			for (MCMCUpdate update : updates) {
+				update.updateoutput();
+			}
+		}
+	}
+
+	public void finish() {
+		for (List<MCMCUpdate> updates : d_studyUpdates) {
+			for (MCMCUpdate update : updates) {
+				update.finish();
+			}
+		}
+	}
+}
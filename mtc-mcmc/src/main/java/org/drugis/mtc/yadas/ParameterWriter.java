@@ -36,7 +36,14 @@ public abstract class ParameterWriter {
 	}
 	
 	public void output() {
-		write(d_p.getValue(d_i));
+		write(getValue());
+	}
+
+	/**
+	 * @return The current value of the monitored component.
+	 */
+	public double getValue() {
+		return d_p.getValue(d_i);
 	}
 
 	abstract protected void write(double value);
@@ -0,0 +1,78 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.NetworkModel;
+
+import edu.uci.ics.jung.algorithms.transformation.FoldingTransformerFixed.FoldedEdge;
+import edu.uci.ics.jung.graph.UndirectedGraph;
+
+/**
+ * How the random effects delta ~ N(d(B, W), sigma^2 S) are sampled.
+ */
+public enum RandomEffectsParameterization {
+	/**
+	 * The relative effects delta are sampled directly.
+	 */
+	CENTERED,
+	/**
+	 * Standard normal latent variables z are sampled, and delta = d(B, W) + sigma C z,
+	 * with C C' = S. This avoids the funnel between delta and a small sigma
+	 * when the data are weak.
+	 * @see NonCenteredArgumentMaker
+	 */
+	NON_CENTERED,
+	/**
+	 * NON_CENTERED for sparse networks, those with fewer than
+	 * SPARSE_STUDIES_PER_COMPARISON studies per direct comparison on
+	 * average, and CENTERED otherwise.
+	 */
+	AUTOMATIC;
+
+	public static final double SPARSE_STUDIES_PER_COMPARISON = 3.0;
+
+	/**
+	 * @return CENTERED or NON_CENTERED, resolving AUTOMATIC for the given network.
+	 */
+	public RandomEffectsParameterization resolve(Network network) {
+		if (this != AUTOMATIC) {
+			return this;
+		}
+		return getStudiesPerComparison(network) < SPARSE_STUDIES_PER_COMPARISON ? NON_CENTERED : CENTERED;
+	}
+
+	/**
+	 * The average number of studies that include each directly compared pair of treatments.
+	 */
+	public static double getStudiesPerComparison(Network network) {
+		final UndirectedGraph<Treatment, FoldedEdge<Treatment, Study>> graph = NetworkModel.createComparisonGraph(network);
+		if (graph.getEdgeCount() == 0) {
+			return 0.0;
+		}
+		int studies = 0;
+		for (FoldedEdge<Treatment, Study> edge : graph.getEdges()) {
+			studies += edge.getFolded().size();
+		}
+		return (double) studies / graph.getEdgeCount();
+	}
+}
@@ -25,11 +25,12 @@ import gov.lanl.yadas.ArgumentMaker;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
-import org.apache.commons.math3.linear.Array2DRowRealMatrix;
-import org.apache.commons.math3.linear.RealMatrix;
 import org.drugis.mtc.model.Study;
 import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.InconsistencyParameter;
 import org.drugis.mtc.parameterization.NetworkParameter;
 import org.drugis.mtc.parameterization.Parameterization;
 
@@ -37,14 +38,23 @@ import org.drugis.mtc.parameterization.Parameterization;
  * ArgumentMaker for treatment relative effects.
  * delta_ijk ~ N(d_jk, sigma) ; d_jk = f(B, W) ;
  * B basic parameters, W inconsistency factors.
+ * 
+ * The linear map from (B, W) to the relative effects is stored in compressed
+ * sparse row (CSR) form, because each relative effect depends on only a
+ * handful of the network parameters.
  */
 public class RelativeEffectArgumentMaker implements ArgumentMaker {
 	List<Pair<Treatment>> d_delta;
 	private final Parameterization d_pmtz;
-	private RealMatrix d_matrix;
 	private final int d_bIdx;
 	private final int d_wIdx;
-	
+	private int d_nBasic;
+	private int[] d_rowStart; // entries of row i are [d_rowStart[i], d_rowStart[i + 1])
+	private int[] d_rowSplit; // entries of row i that refer to W start at d_rowSplit[i]
+	private int[] d_column;
+	private double[] d_value;
+	private final double[] d_output;
+
 	/**
 	 * @param pmtz Parameterization of the network.
 	 * @param study The study to calculate relative effects of.
@@ -64,34 +74,93 @@ public class RelativeEffectArgumentMaker implements ArgumentMaker {
 			d_delta.addAll(list);
 		}
 		initializeMatrix();
+		d_output = new double[d_delta.size()];
 	}
 	
 	private void initializeMatrix() {
 		List<NetworkParameter> params = d_pmtz.getParameters();
-		d_matrix = new Array2DRowRealMatrix(d_delta.size(), params.size());
+		for (d_nBasic = 0; d_nBasic < params.size() && !(params.get(d_nBasic) instanceof InconsistencyParameter); ++d_nBasic) {}
+
+		List<Integer> columns = new ArrayList<Integer>();
+		List<Integer> values = new ArrayList<Integer>();
+		d_rowStart = new int[d_delta.size() + 1];
+		d_rowSplit = new int[d_delta.size()];
 		for (int i = 0; i < d_delta.size(); ++i) {
+			d_rowStart[i] = columns.size();
+			d_rowSplit[i] = -1;
 			Map<NetworkParameter, Integer> map = d_pmtz.parameterize(d_delta.get(i).getFirst(), d_delta.get(i).getSecond());
 			for (int j = 0; j < params.size(); ++j) {
 				Integer val = map.get(params.get(j));
-				if (val != null) {
-					d_matrix.setEntry(i, j, val);
+				if (j == d_nBasic) {
+					d_rowSplit[i] = columns.size();
 				}
+				if (val != null && val != 0) {
+					columns.add(j);
+					values.add(val);
+				}
+			}
+			if (d_rowSplit[i] == -1) {
+				d_rowSplit[i] = columns.size();
 			}
 		}
+		d_rowStart[d_delta.size()] = columns.size();
+
+		d_column = new int[columns.size()];
+		d_value = new double[values.size()];
+		for (int k = 0; k < d_column.length; ++k) {
+			d_column[k] = columns.get(k);
+			d_value[k] = values.get(k);
+		}
+	}
+
+	/**
+	 * The indices of the network parameters (basic parameters followed by
+	 * inconsistency factors) that have a nonzero coefficient for any of the
+	 * relative effects.
+	 */
+	public SortedSet<Integer> getDependencies() {
+		SortedSet<Integer> dependencies = new TreeSet<Integer>();
+		for (int column : d_column) {
+			dependencies.add(column);
+		}
+		return dependencies;
 	}
 
 	/**
 	 * Calculate "the argument": an array of values for the study's relative effects.
 	 * data[bIdx] should contain values of the basic parameters 
 	 * data[wIdx] should contain values of the inconsistency factors
+	 * The returned array is re-used between invocations.
 	 */
 	public double[] getArgument(double[][] data) {
-		double[] x = data[d_bIdx];
-		if (d_wIdx >= 0) {
-			x = new double[data[d_bIdx].length + data[d_wIdx].length];
-			System.arraycopy(data[d_bIdx], 0, x, 0, data[d_bIdx].length);
-			System.arraycopy(data[d_wIdx], 0, x, data[d_bIdx].length, data[d_wIdx].length);
+		final double[] b = data[d_bIdx];
+		final double[] w = d_wIdx >= 0 ? data[d_wIdx] : b;
+		final int wOffset = d_wIdx >= 0 ? d_nBasic : 0;
+		for (int i = 0; i < d_output.length; ++i) {
+			double x = 0.0;
+			for (int k = d_rowStart[i]; k < d_rowSplit[i]; ++k) {
+				x += d_value[k] * b[d_column[k]];
+			}
+			for (int k = d_rowSplit[i]; k < d_rowStart[i + 1]; ++k) {
+				x += d_value[k] * w[d_column[k] - wOffset];
+			}
+			d_output[i] = x;
+		}
+		return d_output;
+	}
+
+	/**
+	 * Apply the transpose of the linear map: add the gradient with respect to
+	 * the network parameters (B followed by W), given the gradient with respect
+	 * to the relative effects.
+	 * @param effectGradient Gradient with respect to the relative effects.
+	 * @param parameterGradient Gradient with respect to (B, W), added to.
+	 */
+	public void addAdjoint(double[] effectGradient, double[] parameterGradient) {
+		for (int i = 0; i < d_output.length; ++i) {
+			for (int k = d_rowStart[i]; k < d_rowStart[i + 1]; ++k) {
+				parameterGradient[d_column[k]] += d_value[k] * effectGradient[i];
+			}
 		}
-		return d_matrix.operate(x);
 	}
-}
\ No newline at end of file
+}
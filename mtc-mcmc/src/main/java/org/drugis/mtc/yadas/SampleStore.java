@@ -0,0 +1,61 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Storage for the samples of each (chain, parameter) in YadasResults.
+ */
+interface SampleStore {
+	interface Factory {
+		SampleStore create(int nChains, int nParameters);
+	}
+
+	/**
+	 * @return The number of samples that can be stored for each (chain, parameter).
+	 */
+	int getCapacity();
+
+	/**
+	 * Ensure that at least capacity samples can be stored for each (chain, parameter),
+	 * preserving the samples stored so far.
+	 */
+	void reserve(int capacity);
+
+	double get(int c, int p, int i);
+
+	void set(int c, int p, int i, double value);
+
+	/**
+	 * Copy the samples [from, to) of (chain, parameter) into dst, starting at offset.
+	 */
+	void get(int c, int p, int from, int to, double[] dst, int offset);
+
+	/**
+	 * A read-only view on the first n samples of (chain, parameter).
+	 */
+	DoubleBuffer getBuffer(int c, int p, int n);
+
+	/**
+	 * Release the resources held by the store. It may not be used afterwards.
+	 */
+	void dispose();
+}
@@ -0,0 +1,132 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Columnar storage for the samples of each (chain, parameter), split into
+ * fixed-size chunks. Growing the store appends chunks rather than copying
+ * the samples already stored; only a trailing partial chunk is re-allocated,
+ * so the cost of an extension is bounded by the chunk size. Sample i lives in
+ * chunk (i >> shift), at offset (i & mask).
+ *
+ * Different chains may be written concurrently, but growing the store must
+ * not overlap with reads or writes.
+ */
+class SegmentedSampleStore implements SampleStore {
+	public static final int DEFAULT_CHUNK_SHIFT = 12;
+
+	public static final Factory FACTORY = new Factory() {
+		public SampleStore create(int nChains, int nParameters) {
+			return new SegmentedSampleStore(nChains, nParameters);
+		}
+	};
+
+	private final int d_shift;
+	private final int d_chunkSize;
+	private final int d_mask;
+	private final double[][][][] d_chunks; // [chain][parameter][chunk][offset]
+	private int d_capacity;
+
+	public SegmentedSampleStore(int nChains, int nParameters) {
+		this(nChains, nParameters, DEFAULT_CHUNK_SHIFT);
+	}
+
+	/**
+	 * @param chunkShift Chunks hold (1 << chunkShift) samples.
+	 */
+	public SegmentedSampleStore(int nChains, int nParameters, int chunkShift) {
+		d_shift = chunkShift;
+		d_chunkSize = 1 << chunkShift;
+		d_mask = d_chunkSize - 1;
+		d_chunks = new double[nChains][nParameters][0][];
+		d_capacity = 0;
+	}
+
+	public int getCapacity() {
+		return d_capacity;
+	}
+
+	public void reserve(int capacity) {
+		if (capacity <= d_capacity) {
+			return;
+		}
+		final int nChunks = (capacity + d_mask) >> d_shift;
+		for (double[][][] chain : d_chunks) {
+			for (int p = 0; p < chain.length; ++p) {
+				chain[p] = grow(chain[p], nChunks, capacity);
+			}
+		}
+		d_capacity = capacity;
+	}
+
+	private double[][] grow(double[][] chunks, int nChunks, int capacity) {
+		double[][] grown = new double[nChunks][];
+		System.arraycopy(chunks, 0, grown, 0, chunks.length);
+		for (int k = Math.max(chunks.length - 1, 0); k < nChunks; ++k) {
+			final int size = Math.min(d_chunkSize, capacity - (k << d_shift));
+			if (grown[k] == null) {
+				grown[k] = new double[size];
+			} else if (grown[k].length < size) { // trailing partial chunk
+				double[] chunk = new double[size];
+				System.arraycopy(grown[k], 0, chunk, 0, grown[k].length);
+				grown[k] = chunk;
+			}
+		}
+		return grown;
+	}
+
+	public double get(int c, int p, int i) {
+		return d_chunks[c][p][i >> d_shift][i & d_mask];
+	}
+
+	public void set(int c, int p, int i, double value) {
+		d_chunks[c][p][i >> d_shift][i & d_mask] = value;
+	}
+
+	public void get(int c, int p, int from, int to, double[] dst, int offset) {
+		final double[][] chunks = d_chunks[c][p];
+		while (from < to) {
+			final int k = from >> d_shift;
+			final int start = from & d_mask;
+			final int length = Math.min(d_chunkSize - start, to - from);
+			System.arraycopy(chunks[k], start, dst, offset, length);
+			from += length;
+			offset += length;
+		}
+	}
+
+	/**
+	 * This does not copy if the samples fit in a single chunk.
+	 */
+	public DoubleBuffer getBuffer(int c, int p, int n) {
+		if (n <= d_chunkSize) {
+			final double[] chunk = n > 0 ? d_chunks[c][p][0] : new double[0];
+			return DoubleBuffer.wrap(chunk, 0, n).slice().asReadOnlyBuffer();
+		}
+		double[] samples = new double[n];
+		get(c, p, 0, n, samples, 0);
+		return DoubleBuffer.wrap(samples).asReadOnlyBuffer();
+	}
+
+	public void dispose() {
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.drugis.mtc.MCMCResultsEvent;
+import org.drugis.mtc.MCMCResultsListener;
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.convergence.EffectiveSampleSize;
+import org.drugis.mtc.convergence.GelmanRubinConvergence;
+import org.drugis.mtc.convergence.IterativeGelmanRubin;
+import org.drugis.mtc.summary.SummaryUtil;
+
+/**
+ * Monitors the results while the chains are still sampling. Periodically,
+ * the samples below the watermark of the results are published, the
+ * Gelman-Rubin diagnostic and effective sample size of each direct parameter
+ * are brought up to date, and the monitor listeners are notified. Publication happens once at least
+ * a given number of new samples are available, and at most once per event
+ * delay, so that listeners are not flooded with events.
+ * The listeners of the results itself are not notified until the simulation
+ * finishes: a results event makes the SummaryEngine recompute the summaries
+ * of all parameters, including the derived ones, which is too expensive to
+ * do while sampling.
+ */
+public class SimulationMonitor {
+	public static final long DEFAULT_EVENT_DELAY = 1000;
+	private static final long POLL_INTERVAL = 100;
+
+	private final YadasResults d_results;
+	private volatile int d_interval;
+	private long d_eventDelay = DEFAULT_EVENT_DELAY;
+	private long d_lastEvent = Long.MIN_VALUE;
+	private final Map<Parameter, IterativeGelmanRubin> d_iterative = new HashMap<Parameter, IterativeGelmanRubin>();
+	private volatile Map<Parameter, GelmanRubinConvergence> d_diagnostics = new HashMap<Parameter, GelmanRubinConvergence>();
+	private volatile Map<Parameter, Double> d_effectiveSampleSizes = new HashMap<Parameter, Double>();
+	private ScheduledExecutorService d_executor;
+	private List<MCMCResultsListener> d_listeners = new CopyOnWriteArrayList<MCMCResultsListener>();
+
+	/**
+	 * @param results The results to monitor.
+	 * @param interval The minimum number of new samples per chain before they are published.
+	 */
+	public SimulationMonitor(YadasResults results, int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("The interval should be positive");
+		}
+		d_results = results;
+		d_interval = interval;
+	}
+
+	/**
+	 * Start polling the results in a background thread.
+	 */
+	public synchronized void start() {
+		if (d_executor != null) {
+			return;
+		}
+		d_executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "SimulationMonitor");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		d_executor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				update();
+			}
+		}, POLL_INTERVAL, POLL_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop polling, waiting for an update in progress to complete.
+	 */
+	public void stop() {
+		ScheduledExecutorService executor;
+		synchronized (this) {
+			executor = d_executor;
+			d_executor = null;
+		}
+		if (executor == null) {
+			return;
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Publish the new samples and update the diagnostics, if enough new
+	 * samples are available and the event delay has passed.
+	 * @return true if the monitor listeners were notified.
+	 */
+	public boolean update() {
+		synchronized (d_iterative) {
+			final long now = System.currentTimeMillis();
+			if (d_lastEvent > now - d_eventDelay ||
+					d_results.getWatermark() - d_results.getNumberOfSamples() < d_interval ||
+					!d_results.publishWatermark()) {
+				return false;
+			}
+			d_lastEvent = now;
+
+			final int nSamples = d_results.getNumberOfSamples();
+			Map<Parameter, GelmanRubinConvergence> diagnostics = new HashMap<Parameter, GelmanRubinConvergence>();
+			Map<Parameter, Double> effectiveSampleSizes = new HashMap<Parameter, Double>();
+			for (Parameter p : d_results.getParameters()) {
+				IterativeGelmanRubin iterative = d_iterative.get(p);
+				if (iterative == null) {
+					iterative = new IterativeGelmanRubin(d_results, p);
+					d_iterative.put(p, iterative);
+				}
+				diagnostics.put(p, iterative.advance(nSamples));
+				effectiveSampleSizes.put(p, EffectiveSampleSize.calculate(
+						SummaryUtil.getLastHalfSamples(d_results, p), d_results.getNumberOfChains()));
+			}
+			d_diagnostics = diagnostics;
+			d_effectiveSampleSizes = effectiveSampleSizes;
+		}
+		fireMonitorEvent();
+		return true;
+	}
+
+	private void fireMonitorEvent() {
+		MCMCResultsEvent event = new MCMCResultsEvent(d_results);
+		for (MCMCResultsListener l : d_listeners) {
+			l.resultsEvent(event);
+		}
+	}
+
+	/**
+	 * Add a listener that is notified each time new samples are published
+	 * during the simulation.
+	 */
+	public void addMonitorListener(MCMCResultsListener l) {
+		d_listeners.add(l);
+	}
+
+	public void removeMonitorListener(MCMCResultsListener l) {
+		d_listeners.remove(l);
+	}
+
+	/**
+	 * Set the minimum number of new samples per chain before they are published.
+	 */
+	public void setInterval(int interval) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("The interval should be positive");
+		}
+		d_interval = interval;
+	}
+
+	public int getInterval() {
+		return d_interval;
+	}
+
+	/**
+	 * Set the minimum time between two notifications, in milliseconds.
+	 */
+	public void setEventDelay(long delay) {
+		d_eventDelay = delay;
+	}
+
+	public long getEventDelay() {
+		return d_eventDelay;
+	}
+
+	/**
+	 * The diagnostic of the given direct parameter at the last update, or null if there was none.
+	 */
+	public GelmanRubinConvergence getDiagnostic(Parameter p) {
+		return d_diagnostics.get(p);
+	}
+
+	/**
+	 * The corrected potential scale reduction factor at the last update, or NaN.
+	 */
+	public double getPSRF(Parameter p) {
+		GelmanRubinConvergence diagnostic = getDiagnostic(p);
+		return diagnostic == null ? Double.NaN : diagnostic.getCorrPSRF();
+	}
+
+	/**
+	 * The effective sample size of the last half of the samples at the last update, or NaN.
+	 * @see EffectiveSampleSize
+	 */
+	public double getEffectiveSampleSize(Parameter p) {
+		Double ess = d_effectiveSampleSizes.get(p);
+		return ess == null ? Double.NaN : ess;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+import gov.lanl.yadas.MCMCUpdate;
+
+import java.util.List;
+
+import org.apache.commons.math3.random.RandomGenerator;
+
+/**
+ * Univariate slice sampling update (Neal, 2003) of a scalar MCMCParameter
+ * with bounded support, using stepping out and shrinkage. Every update
+ * moves to a new state; its cost is the number of log-density evaluations.
+ *
+ * The interval width w starts at the given value. During the first nAdapt
+ * updates it is set to twice the mean distance moved, which keeps the
+ * number of evaluations per update small.
+ *
+ * The bonds should be all bonds that involve the parameter: their summed
+ * change in log-density is the change relative to the current state.
+ */
+public class SliceSamplingUpdate implements MCMCUpdate {
+	private static final int MAX_STEP_OUT = 10;
+	private static final int MIN_ADAPT = 50;
+
+	private final MCMCParameter d_param;
+	private final MCMCBond[] d_bonds;
+	private final double d_lower;
+	private final double d_upper;
+	private final RandomGenerator d_rng;
+	private final int d_nAdapt;
+	private double d_width;
+	private int d_updates = 0;
+	private long d_evaluations = 0;
+	private double d_distance = 0.0;
+
+	/**
+	 * @param param The parameter, of length 1.
+	 * @param bonds The bonds that involve the parameter.
+	 * @param lower The lower bound of the support.
+	 * @param upper The upper bound of the support.
+	 * @param width The initial interval width.
+	 * @param nAdapt The number of updates during which the width is adapted.
+	 * @param rng The random source.
+	 */
+	public SliceSamplingUpdate(MCMCParameter param, List<? extends MCMCBond> bonds, double lower, double upper,
+			double width, int nAdapt, RandomGenerator rng) {
+		d_param = param;
+		d_bonds = bonds.toArray(new MCMCBond[bonds.size()]);
+		d_lower = lower;
+		d_upper = upper;
+		d_width = width;
+		d_nAdapt = nAdapt;
+		d_rng = rng;
+	}
+
+	public void update() {
+		final double x0 = d_param.getValue(0);
+		// the slice, relative to the log-density at x0
+		final double logY = Math.log(d_rng.nextDouble());
+
+		// stepping out
+		double left = x0 - d_width * d_rng.nextDouble();
+		double right = left + d_width;
+		int j = (int) Math.floor(MAX_STEP_OUT * d_rng.nextDouble());
+		int k = MAX_STEP_OUT - 1 - j;
+		while (j > 0 && left > d_lower && logDensity(left) > logY) {
+			left -= d_width;
+			--j;
+		}
+		while (k > 0 && right < d_upper && logDensity(right) > logY) {
+			right += d_width;
+			--k;
+		}
+		left = Math.max(left, d_lower);
+		right = Math.min(right, d_upper);
+
+		// shrinkage
+		double x1;
+		while (true) {
+			x1 = left + d_rng.nextDouble() * (right - left);
+			if (logDensity(x1) > logY) {
+				break;
+			}
+			if (x1 < x0) {
+				left = x1;
+			} else {
+				right = x1;
+			}
+		}
+
+		d_param.setValue(new double[] {x1});
+		for (MCMCBond bond : d_bonds) {
+			bond.compute();
+			bond.revise();
+		}
+
+		++d_updates;
+		d_distance += Math.abs(x1 - x0);
+		if (d_updates <= d_nAdapt && d_updates >= MIN_ADAPT && d_distance > 0.0) {
+			d_width = 2 * d_distance / d_updates;
+		}
+	}
+
+	/**
+	 * The log-density at x, relative to the current state; the state is left unchanged.
+	 */
+	private double logDensity(double x) {
+		++d_evaluations;
+		final double[] current = d_param.getValue();
+		d_param.setValue(new double[] {x});
+		double logRatio = 0.0;
+		for (MCMCBond bond : d_bonds) {
+			logRatio += bond.compute();
+		}
+		d_param.setValue(current);
+		for (MCMCBond bond : d_bonds) {
+			bond.reject();
+		}
+		return Double.isNaN(logRatio) ? Double.NEGATIVE_INFINITY : logRatio;
+	}
+
+	public String accepted() {
+		return d_updates + " slice updates, " + getEvaluationsPerUpdate() + " evaluations per update, width " + d_width;
+	}
+
+	/**
+	 * The current interval width w.
+	 */
+	public double getWidth() {
+		return d_width;
+	}
+
+	/**
+	 * The mean number of log-density evaluations per update.
+	 */
+	public double getEvaluationsPerUpdate() {
+		return d_updates == 0 ? Double.NaN : (double) d_evaluations / d_updates;
+	}
+
+	/**
+	 * The mean absolute distance moved per update.
+	 */
+	public double getMeanStep() {
+		return d_updates == 0 ? Double.NaN : d_distance / d_updates;
+	}
+
+	public void updateoutput() {
+	}
+
+	public void finish() {
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+/**
+ * The update scheme for the random effects and inconsistency standard deviations.
+ */
+public enum StandardDeviationSampler {
+	/**
+	 * Random-walk Metropolis, with the step size tuned during the tuning phase.
+	 */
+	RANDOM_WALK,
+	/**
+	 * Slice sampling within the bounds of the uniform prior.
+	 * @see SliceSamplingUpdate
+	 */
+	SLICE
+}
@@ -22,7 +22,6 @@ package org.drugis.mtc.yadas;
 import java.util.List;
 
 import org.drugis.mtc.model.Treatment;
-import static org.drugis.common.stat.Statistics.ilogit;
 
 import edu.uci.ics.jung.graph.util.Pair;
 
@@ -35,8 +34,28 @@ public class SuccessProbabilityArgumentMaker extends ThetaArgumentMaker {
 		super(treatments, studyPmtz, muIdx, deltaIdx);
 	}
 	
+	/**
+	 * Calculate "the argument": an array of success probabilities, one for each study-arm.
+	 * The returned array is re-used between invocations.
+	 */
 	@Override
-	protected double theta(int tIdx, double[][] data) {
-		return ilogit(super.theta(tIdx, data));
+	public double[] getArgument(double[][] data) {
+		final double mu = data[getMuIndex()][0];
+		final double[] delta = data[getDeltaIndex()];
+		for (int i = 0; i < d_output.length; ++i) {
+			d_output[i] = ilogit(theta(i, mu, delta));
+		}
+		return d_output;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Inverse logit that does not overflow for large |x|.
+	 */
+	public static double ilogit(double x) {
+		if (x >= 0) {
+			return 1.0 / (1.0 + Math.exp(-x));
+		}
+		final double e = Math.exp(x);
+		return e / (1.0 + e);
+	}
+}
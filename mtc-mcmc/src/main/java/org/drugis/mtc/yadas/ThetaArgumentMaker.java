@@ -30,6 +30,10 @@ import org.drugis.mtc.model.Treatment;
 /**
  * ArgumentMaker for individual treatment means within studies.
  * theta_i,k = mu_i + delta_i,b(i),k
+ * 
+ * The path from each arm to the study baseline is flattened at construction:
+ * theta_i,k is mu_i plus the sum of the relative effects at indices
+ * [d_pathStart[k], d_pathStart[k + 1]) of d_pathDelta.
  */
 public class ThetaArgumentMaker implements ArgumentMaker {
 	private final List<Treatment> d_treatments;
@@ -38,6 +42,9 @@ public class ThetaArgumentMaker implements ArgumentMaker {
 	private final int d_deltaIdx;
 	private int[] d_parent;
 	private int[] d_treatmentDeltaIndex;
+	private int[] d_pathStart;
+	private int[] d_pathDelta;
+	protected final double[] d_output;
 
 	/**
 	 * @param treatments The list of treatments to generate treatment effects for.
@@ -75,29 +82,101 @@ public class ThetaArgumentMaker implements ArgumentMaker {
 		if (cnt != 1) {
 			throw new IllegalArgumentException("The studyParameterization should have a tree structure.");
 		}
+
+		flattenPaths();
+		d_output = new double[d_treatments.size()];
+	}
+
+	private void flattenPaths() {
+		d_pathStart = new int[d_parent.length + 1];
+		for (int i = 0; i < d_parent.length; ++i) {
+			d_pathStart[i + 1] = d_pathStart[i] + pathLength(i);
+		}
+		d_pathDelta = new int[d_pathStart[d_parent.length]];
+		for (int i = 0; i < d_parent.length; ++i) {
+			int k = d_pathStart[i];
+			for (int tIdx = i; d_parent[tIdx] != -1; tIdx = d_parent[tIdx]) {
+				d_pathDelta[k++] = d_treatmentDeltaIndex[tIdx];
+			}
+		}
+	}
+
+	private int pathLength(int tIdx) {
+		int length = 0;
+		for (; d_parent[tIdx] != -1; tIdx = d_parent[tIdx]) {
+			++length;
+		}
+		return length;
 	}
 
 	/**
 	 * Calculate "the argument": an array of treatment effects, one for each study-arm.
 	 * data[muIdx] should contain a single study baseline mean
 	 * data[deltaIdx] should contain relative effects, in the order of occurrence in studyPmtz
+	 * The returned array is re-used between invocations.
 	 */
 	public double[] getArgument(double[][] data) {
-		double[] rval = new double[d_treatments.size()];
-		for (int i = 0; i < rval.length; ++i) {
-			rval[i] = theta(i, data);
+		final double mu = data[d_muIdx][0];
+		final double[] delta = data[d_deltaIdx];
+		for (int i = 0; i < d_output.length; ++i) {
+			d_output[i] = theta(i, mu, delta);
 		}
-		return rval;
+		return d_output;
 	}
 
-	protected double theta(int tIdx, double[][] data) {
-		double delta = 0.0;
-		while (d_parent[tIdx] != -1) {
-			int dIdx = d_treatmentDeltaIndex[tIdx];
-			delta += data[d_deltaIdx][dIdx];
-			tIdx = d_parent[tIdx];
+	/**
+	 * Add the gradient with respect to mu and the relative effects, given the
+	 * gradient with respect to the treatment effects.
+	 * @param thetaGradient Gradient with respect to the treatment effect of each arm.
+	 * @param muGradient Gradient with respect to mu, added to element 0.
+	 * @param deltaGradient Gradient with respect to the relative effects, added to.
+	 */
+	public void addAdjoint(double[] thetaGradient, double[] muGradient, double[] deltaGradient) {
+		for (int i = 0; i < thetaGradient.length; ++i) {
+			muGradient[0] += thetaGradient[i];
+			for (int k = d_pathStart[i]; k < d_pathStart[i + 1]; ++k) {
+				deltaGradient[d_pathDelta[k]] += thetaGradient[i];
+			}
 		}
-		
-		return data[d_muIdx][0] + delta;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Calculate the treatment effect of arm tIdx.
+	 */
+	protected final double theta(int tIdx, double mu, double[] delta) {
+		double theta = mu;
+		for (int k = d_pathStart[tIdx]; k < d_pathStart[tIdx + 1]; ++k) {
+			theta += delta[d_pathDelta[k]];
+		}
+		return theta;
+	}
+
+	/**
+	 * The flattened arm-to-delta paths: the relative effects of arm k are at
+	 * indices [getPathStart()[k], getPathStart()[k + 1]) of getPathDelta().
+	 */
+	int[] getPathStart() {
+		return d_pathStart;
+	}
+
+	/**
+	 * @see #getPathStart()
+	 */
+	int[] getPathDelta() {
+		return d_pathDelta;
+	}
+
+	/**
+	 * @return The index where the baseline effects (mu) are expected.
+	 */
+	protected final int getMuIndex() {
+		return d_muIdx;
+	}
+
+	/**
+	 * @return The index where the relative effects (delta) are expected.
+	 */
+	protected final int getDeltaIndex() {
+		return d_deltaIdx;
+	}
+}
@@ -27,19 +27,26 @@ import gov.lanl.yadas.ConstantArgument;
 import gov.lanl.yadas.Gaussian;
 import gov.lanl.yadas.GroupArgument;
 import gov.lanl.yadas.IdentityArgument;
+import gov.lanl.yadas.MCMCBond;
 import gov.lanl.yadas.MCMCParameter;
+import gov.lanl.yadas.MCMCUpdate;
 import gov.lanl.yadas.Uniform;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.apache.commons.math3.random.JDKRandomGenerator;
+import org.apache.commons.math3.random.RandomGenerator;
 import org.drugis.mtc.MCMCSettings;
 import org.drugis.mtc.MixedTreatmentComparison;
 import org.drugis.mtc.Parameter;
+import org.drugis.mtc.data.DataType;
 import org.drugis.mtc.model.Measurement;
 import org.drugis.mtc.model.Network;
 import org.drugis.mtc.model.Study;
@@ -92,8 +99,8 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 	//// Below: code to get starting values
 	////
 
-	private double getStartingSigma(StartingValueGenerator startVal) {
-		return 0.00001 + Math.random() * (d_priorGen.getRandomEffectsSigma() - 0.00001); // FIXME: handle lower bound better
+	private double getStartingSigma(RandomGenerator rng) {
+		return 0.00001 + rng.nextDouble() * (d_priorGen.getRandomEffectsSigma() - 0.00001); // FIXME: handle lower bound better
 	}
 
 
@@ -126,10 +133,9 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 		if (d_pmtz == null) {
 			d_pmtz = buildNetworkModel();
 		}
-		JDKRandomGenerator rng = new JDKRandomGenerator();
 		final double scale = getSettings().getVarianceScalingFactor();
 		for (int i = 0; i < getNumberOfChains(); ++i) {
-			d_startGen.add(AbstractDataStartingValueGenerator.create(d_network, rng, scale));
+			d_startGen.add(AbstractDataStartingValueGenerator.create(d_network, getRandomGenerator(i), scale));
 		}
 
 		d_priorGen = new PriorGenerator(d_network);
@@ -150,10 +156,11 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 
 	protected Map<NetworkParameter, Derivation> getDerivedParameters() {
 		Map<NetworkParameter, Derivation> map = new HashMap<NetworkParameter, Derivation>();
+		Set<NetworkParameter> direct = new HashSet<NetworkParameter>(d_pmtz.getParameters());
 		for (Treatment t1 : d_network.getTreatments()) {
 			for (Treatment t2 : d_network.getTreatments()) {
 				final BasicParameter p = new BasicParameter(t1, t2);
-				if (!t1.equals(t2) && !d_pmtz.getParameters().contains(p)) {
+				if (!t1.equals(t2) && !direct.contains(p)) {
 					map.put(p, new Derivation(d_pmtz.parameterize(t1, t2)));
 				}
 			}
@@ -172,24 +179,27 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 		// study baselines
 		Map<Study, MCMCParameter> mu = new HashMap<Study, MCMCParameter>();
 		for (Study s : d_network.getStudies()) {
-			mu.put(s, new MCMCParameter(
+			mu.put(s, new BondedParameter(
 					new double[] {startVal.getTreatmentEffect(s, d_pmtz.getStudyBaseline(s))},
 					new double[] {0.1}, null));
 		}
-		// random effects
+		// random effects, unless they are integrated out
+		final boolean marginal = isMarginal();
+		final boolean nonCentered = !marginal && isNonCentered();
 		Map<Study, MCMCParameter> delta = new HashMap<Study, MCMCParameter>();
-		for (Study s : d_network.getStudies()) {
+		for (Study s : marginal ? Collections.<Study>emptyList() : d_network.getStudies()) {
 			double[] start = new double[reDim(s)];
 			double[] step = new double[reDim(s)];
 			Arrays.fill(step, 0.1);
 			int i = 0;
 			for (List<Pair<Treatment>> list : d_pmtz.parameterizeStudy(s)) {
 				for (Pair<Treatment> pair: list) {
-					start[i] = startVal.getRelativeEffect(s, getRelativeEffect(pair.getFirst(), pair.getSecond()));
+					// non-centered: the latent variables start at 0, so delta starts at d(B, W)
+					start[i] = nonCentered ? 0.0 : startVal.getRelativeEffect(s, getRelativeEffect(pair.getFirst(), pair.getSecond()));
 					++i;
 				}
 			}
-			delta.put(s, new MCMCParameter(start, step, null));
+			delta.put(s, new BondedParameter(start, step, null));
 		}
 		// basic parameters & inconsistency parameters
 		List<NetworkParameter> parameters = d_pmtz.getParameters();
@@ -199,13 +209,13 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 		for (int i = 0; i < parameters.size(); ++i) {
 			basicStart[i] = getStartingValue(startVal, parameters.get(i), basicStart);
 		}
-		MCMCParameter basic = new MCMCParameter(basicStart, basicStep, null);
+		MCMCParameter basic = new BondedParameter(basicStart, basicStep, null);
 		// variance
-		MCMCParameter sigma = new MCMCParameter(
-			new double[] {getStartingSigma(startVal)}, new double[] {0.1}, null);
+		MCMCParameter sigma = new BondedParameter(
+			new double[] {getStartingSigma(getRandomGenerator(chain))}, new double[] {0.1}, null);
 		// inconsistency variance
 		MCMCParameter sigmaw = isInconsistency() ?
-				new MCMCParameter(new double[] {getStartingSigma(startVal)}, new double[] {0.1}, null) : null;
+				new BondedParameter(new double[] {getStartingSigma(getRandomGenerator(chain))}, new double[] {0.1}, null) : null;
 
 		List<MCMCParameter> params = new ArrayList<MCMCParameter>();
 		params.addAll(mu.values());
@@ -216,21 +226,44 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 			params.add(sigmaw);
 		}
 
+		// the bonds register with their parameters; only the per-component dependencies are kept here
+		BondDependencies basicDependencies = new BondDependencies(parameters.size());
+
 		// data bond
-		switch (d_network.getType()) {
-		case CONTINUOUS:
-			continuousDataBond(mu, delta);
-			break;
-		case RATE:
-			dichotomousDataBond(mu, delta);
-			break;
-		default:
-			throw new IllegalArgumentException("Don't know how to handle " + d_network.getType() + " data");
+		final Map<Study, MCMCBond> dataBonds;
+		if (marginal) {
+			dataBonds = marginalDataBond(mu, basic, sigma);
+			for (Study study : d_network.getStudies()) {
+				basicDependencies.add(dataBonds.get(study), getBasicDependencies(study));
+			}
+		} else if (nonCentered) {
+			dataBonds = nonCenteredDataBond(mu, delta, basic, sigma);
+			for (Study study : d_network.getStudies()) {
+				basicDependencies.add(dataBonds.get(study), getBasicDependencies(study));
+			}
+		} else if (isPackedDataLikelihood()) {
+			dataBonds = packedDataBond(mu, delta);
+		} else {
+			switch (d_network.getType()) {
+			case CONTINUOUS:
+				dataBonds = continuousDataBond(mu, delta);
+				break;
+			case RATE:
+				dataBonds = dichotomousDataBond(mu, delta);
+				break;
+			default:
+				throw new IllegalArgumentException("Don't know how to handle " + d_network.getType() + " data");
+			}
 		}
 
 		// random effects bound to basic/incons parameters
-		for (Study study : d_network.getStudies()) {
-			relativeEffectBond(study, delta.get(study), basic, sigma);
+		for (Study study : marginal ? Collections.<Study>emptyList() : d_network.getStudies()) {
+			if (nonCentered) {
+				latentEffectBond(delta.get(study));
+			} else {
+				MCMCBond bond = relativeEffectBond(study, delta.get(study), basic, sigma);
+				basicDependencies.add(bond, getBasicDependencies(study));
+			}
 		}
 
 		// per-study mean prior
@@ -252,7 +285,7 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 		for (int i = 0; i < nBasic; ++i) {
 			basicRange[i] = i;
 		}
-		new BasicMCMCBond(
+		MCMCBond basicPriorBond = new BasicMCMCBond(
 				new MCMCParameter[] {basic},
 				new ArgumentMaker[] {
 					new GroupArgument(0, basicRange), // FIXME: is this even allowed?
@@ -261,6 +294,7 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 				},
 				new Gaussian()
 			);
+		basicDependencies.add(basicPriorBond, 0, nBasic);
 
 		// sigma prior
 		new BasicMCMCBond(
@@ -280,7 +314,7 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 				inconsRange[i] = nBasic + i;
 			}
 			// inconsistency prior
-			new BasicMCMCBond(
+			MCMCBond inconsistencyBond = new BasicMCMCBond(
 					new MCMCParameter[] {basic, sigmaw},
 					new ArgumentMaker[] {
 						new GroupArgument(0, inconsRange),
@@ -289,6 +323,7 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 					},
 					new Gaussian()
 				);
+			basicDependencies.add(inconsistencyBond, nBasic, parameters.size());
 
 			// sigma_w prior
 			new BasicMCMCBond(
@@ -302,7 +337,49 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 				);
 		}
 
-		addTuners(params);
+		checkDependencies(basic, basicDependencies);
+		final List<MCMCBond> basicBonds = getBonds(basic);
+
+		List<MCMCUpdate> updates = new ArrayList<MCMCUpdate>();
+		if (isNoUTurnSampler()) {
+			updates.add(noUTurnUpdate(chain, mu, delta, basic, sigma, sigmaw));
+			params.clear();
+		} else {
+			// also for a single batch, so that the number of batches does not affect the draws
+			params.removeAll(mu.values());
+			params.removeAll(delta.values());
+			updates.add(parallelStudyUpdate(chain, mu, delta, basic, sigma, marginal, nonCentered));
+			if (isGibbsUpdates() && !marginal && !nonCentered && getBasicParameterSampler() == BasicParameterSampler.RANDOM_WALK) {
+				List<MCMCParameter> studyDelta = new ArrayList<MCMCParameter>();
+				for (Study study : d_network.getStudies()) {
+					studyDelta.add(delta.get(study));
+				}
+				params.remove(basic);
+				updates.add(new BasicParameterGibbsUpdate(d_pmtz, d_network.getStudies(), nBasic, d_priorGen.getVagueNormalSigma(),
+						basic, studyDelta, sigma, sigmaw, basicBonds, getRandomGenerator(chain)));
+			} else if (getBasicParameterSampler() == BasicParameterSampler.ADAPTIVE_METROPOLIS) {
+				params.remove(basic);
+				updates.add(new AdaptiveMetropolisUpdate(basic, basicBonds, getRandomGenerator(chain)));
+			} else {
+				// a proposal for one component only computes the bonds of the studies that depend on it
+				params.remove(basic);
+				updates.add(new ComponentMetropolisUpdate(basic, basicDependencies, 0.1,
+						getSettings().getTuningIterations(), getRandomGenerator(chain)));
+			}
+			if (getStandardDeviationSampler() == StandardDeviationSampler.SLICE) {
+				params.remove(sigma);
+				updates.add(sliceSamplingUpdate(chain, sigma, getBonds(sigma), d_priorGen.getRandomEffectsSigma()));
+				if (isInconsistency()) {
+					params.remove(sigmaw);
+					updates.add(sliceSamplingUpdate(chain, sigmaw, getBonds(sigmaw), d_priorGen.getInconsistencySigma()));
+				}
+			}
+		}
+		Map<MCMCParameter, List<MCMCBond>> tuned = new LinkedHashMap<MCMCParameter, List<MCMCBond>>();
+		for (MCMCParameter param : params) {
+			tuned.put(param, getBonds(param));
+		}
+		addTuners(chain, tuned, updates);
 
 		List<ParameterWriter> writers = new ArrayList<ParameterWriter>(params.size());
 		for (int i = 0; i < parameters.size(); ++i) {
@@ -322,12 +399,13 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 		return nBasic;
 	}
 
-	private void dichotomousDataBond(Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta) {
+	private Map<Study, MCMCBond> dichotomousDataBond(Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta) {
 		// r_i ~ Binom(p_i, n_i) ; p_i = ilogit(theta_i) ;
 		// theta_i = mu_s(i) + delta_s(i)b(i)t(i)
 
+		Map<Study, MCMCBond> bonds = new HashMap<Study, MCMCBond>();
 		for (Study study : d_network.getStudies()) {
-			new BasicMCMCBond(
+			bonds.put(study, new BasicMCMCBond(
 					new MCMCParameter[] {mu.get(study), delta.get(study)},
 					new ArgumentMaker[] {
 							new ConstantArgument(successArray(study)),
@@ -335,16 +413,18 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 							new SuccessProbabilityArgumentMaker(NetworkModel.getTreatments(study), d_pmtz.parameterizeStudy(study), 0, 1)
 					},
 					new Binomial()
-				);
+				));
 		}
+		return bonds;
 	}
 
-	private void continuousDataBond(Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta) {
+	private Map<Study, MCMCBond> continuousDataBond(Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta) {
 		// m_i ~ N(theta_i, s_i) ;
 		// theta_i = mu_s(i) + delta_s(i)b(i)t(i)
 
+		Map<Study, MCMCBond> bonds = new HashMap<Study, MCMCBond>();
 		for (Study study : d_network.getStudies()) {
-			new BasicMCMCBond(
+			bonds.put(study, new BasicMCMCBond(
 					new MCMCParameter[] {mu.get(study), delta.get(study)},
 					new ArgumentMaker[] {
 							new ConstantArgument(obsMeanArray(study)),
@@ -352,8 +432,189 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 							new ConstantArgument(obsErrorArray(study))
 					},
 					new Gaussian()
-				);
+				));
 		}
+		return bonds;
+	}
+
+	private Map<Study, MCMCBond> packedDataBond(Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta) {
+		// as the dichotomous or continuous data bond, evaluated on the packed data of all studies
+
+		PackedDataLikelihood likelihood = new PackedDataLikelihood(d_network.getType(), d_network.getStudies(), d_pmtz, mu, delta);
+		Map<Study, MCMCBond> bonds = new HashMap<Study, MCMCBond>();
+		for (int i = 0; i < likelihood.getNumberOfStudies(); ++i) {
+			bonds.put(d_network.getStudies().get(i), likelihood.getBond(i));
+		}
+		return bonds;
+	}
+
+	private Map<Study, MCMCBond> marginalDataBond(Map<Study, MCMCParameter> mu, MCMCParameter basic, MCMCParameter sigma) {
+		// m_i ~ N(mu_s(i) + d_b(i)t(i), s_i^2 + Sigma(sigma)) ;
+		// the random effects delta_s(i)b(i)t(i) are integrated out
+
+		Map<Study, MCMCBond> bonds = new HashMap<Study, MCMCBond>();
+		for (Study study : d_network.getStudies()) {
+			bonds.put(study, new BasicMCMCBond(
+					new MCMCParameter[] {mu.get(study), basic, sigma},
+					new ArgumentMaker[] {
+							new ConstantArgument(obsMeanArray(study)),
+							new MarginalThetaArgumentMaker(d_pmtz, study, 0, 1),
+							new IdentityArgument(2)
+					},
+					MarginalGaussian.create(NetworkModel.getTreatments(study), d_pmtz.parameterizeStudy(study), obsErrorArray(study))
+				));
+		}
+		return bonds;
+	}
+
+	private Map<Study, MCMCBond> nonCenteredDataBond(Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> z,
+			MCMCParameter basic, MCMCParameter sigma) {
+		// theta_i = mu_s(i) + delta_s(i)b(i)t(i) ;
+		// delta_s = d(B, W) + sigma C z_s
+
+		Map<Study, MCMCBond> bonds = new HashMap<Study, MCMCBond>();
+		for (Study study : d_network.getStudies()) {
+			NonCenteredArgumentMaker delta = new NonCenteredArgumentMaker(d_pmtz, study, 1, 2, 3);
+			List<Treatment> treatments = NetworkModel.getTreatments(study);
+			List<List<Pair<Treatment>>> studyPmtz = d_pmtz.parameterizeStudy(study);
+			MCMCParameter[] params = new MCMCParameter[] {mu.get(study), z.get(study), basic, sigma};
+			switch (d_network.getType()) {
+			case CONTINUOUS:
+				bonds.put(study, new BasicMCMCBond(params,
+						new ArgumentMaker[] {
+								new ConstantArgument(obsMeanArray(study)),
+								delta.wrap(new ThetaArgumentMaker(treatments, studyPmtz, 0, 1), 0),
+								new ConstantArgument(obsErrorArray(study))
+						},
+						new Gaussian()
+					));
+				break;
+			case RATE:
+				bonds.put(study, new BasicMCMCBond(params,
+						new ArgumentMaker[] {
+								new ConstantArgument(successArray(study)),
+								new ConstantArgument(sampleSizeArray(study)),
+								delta.wrap(new SuccessProbabilityArgumentMaker(treatments, studyPmtz, 0, 1), 0)
+						},
+						new Binomial()
+					));
+				break;
+			default:
+				throw new IllegalArgumentException("Don't know how to handle " + d_network.getType() + " data");
+			}
+		}
+		return bonds;
+	}
+
+	/**
+	 * The bonds built on a parameter of the chain, in the order in which they were built.
+	 */
+	private static List<MCMCBond> getBonds(MCMCParameter param) {
+		return ((BondedParameter) param).getBonds();
+	}
+
+	/**
+	 * The per-component dependencies of the basic parameters are kept by hand,
+	 * so that a proposal only computes the bonds of the affected studies.
+	 * Check that they include every bond built on the basic parameters.
+	 */
+	private static void checkDependencies(MCMCParameter basic, BondDependencies dependencies) {
+		Set<MCMCBond> covered = new HashSet<MCMCBond>();
+		for (int i = 0; i < dependencies.getDimension(); ++i) {
+			covered.addAll(dependencies.getBonds(i));
+		}
+		if (!covered.containsAll(getBonds(basic))) {
+			throw new IllegalStateException("A bond on the basic parameters is missing from their dependencies");
+		}
+	}
+
+	/**
+	 * The indices of the basic and inconsistency parameters that the relative effects of the study depend on.
+	 */
+	private Set<Integer> getBasicDependencies(Study study) {
+		return new RelativeEffectArgumentMaker(d_pmtz, study, 1, -1).getDependencies();
+	}
+
+	/**
+	 * Whether the study baselines are updated by sampling their full conditional.
+	 */
+	private boolean isBaselineGibbs(boolean marginal) {
+		return isGibbsUpdates() && !marginal && d_network.getType() == DataType.CONTINUOUS;
+	}
+
+	/**
+	 * The updates of the study baselines and random effects, run in parallel
+	 * batches (inline for a single batch). Each study draws from its own
+	 * sub-stream of the chain, so the draws do not depend on the batches.
+	 */
+	private ParallelStudyUpdate parallelStudyUpdate(int chain, Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta,
+			MCMCParameter basic, MCMCParameter sigma, boolean marginal, boolean nonCentered) {
+		final int nAdapt = getSettings().getTuningIterations();
+		List<List<MCMCUpdate>> studyUpdates = new ArrayList<List<MCMCUpdate>>();
+		for (int i = 0; i < d_network.getStudies().size(); ++i) {
+			Study study = d_network.getStudies().get(i);
+			RandomGenerator rng = getRandomStreams().createStream(chain, i);
+			List<MCMCBond> muBonds = getBonds(mu.get(study));
+			List<MCMCUpdate> updates = new ArrayList<MCMCUpdate>();
+			if (isBaselineGibbs(marginal)) {
+				updates.add(baselineGibbsUpdate(rng, study, mu, delta, basic, sigma, nonCentered, muBonds));
+			} else {
+				updates.add(new ComponentMetropolisUpdate(mu.get(study), muBonds, 0.1, nAdapt, rng));
+			}
+			if (!marginal) {
+				updates.add(new ComponentMetropolisUpdate(delta.get(study), getBonds(delta.get(study)), 0.1, nAdapt, rng));
+			}
+			studyUpdates.add(updates);
+		}
+		return new ParallelStudyUpdate(studyUpdates, getStudyBatches());
+	}
+
+	private BaselineGibbsUpdate baselineGibbsUpdate(RandomGenerator rng, Study study, Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta,
+			MCMCParameter basic, MCMCParameter sigma, boolean nonCentered, List<MCMCBond> bonds) {
+		ThetaArgumentMaker theta = new ThetaArgumentMaker(NetworkModel.getTreatments(study), d_pmtz.parameterizeStudy(study), 0, 1);
+		if (nonCentered) {
+			return new BaselineGibbsUpdate(mu.get(study),
+					new MCMCParameter[] {mu.get(study), delta.get(study), basic, sigma},
+					new NonCenteredArgumentMaker(d_pmtz, study, 1, 2, 3).wrap(theta, 0),
+					obsMeanArray(study), obsErrorArray(study), d_priorGen.getVagueNormalSigma(), bonds, rng);
+		}
+		return new BaselineGibbsUpdate(mu.get(study),
+				new MCMCParameter[] {mu.get(study), delta.get(study)}, theta,
+				obsMeanArray(study), obsErrorArray(study), d_priorGen.getVagueNormalSigma(), bonds, rng);
+	}
+
+	private SliceSamplingUpdate sliceSamplingUpdate(int chain, MCMCParameter sd, List<MCMCBond> bonds, double upper) {
+		return new SliceSamplingUpdate(sd, bonds, 0.00001, upper, 0.1 * upper,
+				getSettings().getTuningIterations(), getRandomGenerator(chain));
+	}
+
+	private MCMCBond latentEffectBond(MCMCParameter z) {
+		// z ~ N(0, 1)
+		final int n = z.getValue().length;
+		return new BasicMCMCBond(
+				new MCMCParameter[] {z},
+				new ArgumentMaker[] {
+					new IdentityArgument(0),
+					new ConstantArgument(0, n),
+					new ConstantArgument(1, n)
+				},
+				new Gaussian()
+			);
+	}
+
+	/**
+	 * Whether the random effects are non-centered, for the random walk updates.
+	 */
+	private boolean isNonCentered() {
+		return !isNoUTurnSampler() &&
+			getRandomEffectsParameterization().resolve(d_network) == RandomEffectsParameterization.NON_CENTERED;
+	}
+
+	/**
+	 * Whether the random effects are integrated out of the likelihood.
+	 */
+	private boolean isMarginal() {
+		return isMarginalizeRandomEffects() && d_network.getType() == DataType.CONTINUOUS && !isNoUTurnSampler();
 	}
 
 	private double[] successArray(Study study) {
@@ -393,32 +654,48 @@ abstract class YadasModel extends AbstractYadasModel implements MixedTreatmentCo
 		return arr;
 	}
 
-	private void relativeEffectBond(Study study, MCMCParameter delta,
+	private MCMCBond relativeEffectBond(Study study, MCMCParameter delta,
 			MCMCParameter basic, MCMCParameter sigma) {
-		ArgumentMaker[] arguments = new ArgumentMaker[2 + reDim(study)];
-		arguments[0] = new IdentityArgument(0);
-		arguments[1] = new RelativeEffectArgumentMaker(d_pmtz, study, 1, -1);
+		ArgumentMaker[] arguments = new ArgumentMaker[] {
+			new IdentityArgument(0),
+			new RelativeEffectArgumentMaker(d_pmtz, study, 1, -1),
+			new IdentityArgument(2)
+		};
 
 		if (reDim(study) == 1) {
-			arguments[2] = new IdentityArgument(2);
-			new BasicMCMCBond(
+			return new BasicMCMCBond(
 				new MCMCParameter[] {delta, basic, sigma},
 				arguments,
 				new Gaussian()
 			);
 		} else {
-			List<ArgumentMaker> rows = SigmaRowArgumentMaker.createMatrixArgumentMaker(d_pmtz.parameterizeStudy(study), 2);
-			for (int i = 0; i < rows.size(); ++i) {
-				arguments[2 + i] = rows.get(i);
-			}
-			new BasicMCMCBond(
+			// The var/covar matrix generated by SigmaRowArgumentMaker has a closed-form inverse
+			return new BasicMCMCBond(
 				new MCMCParameter[] {delta, basic, sigma},
 				arguments,
-				new MultivariateGaussian()
+				CompoundSymmetricGaussian.create(d_pmtz.parameterizeStudy(study))
 			);
 		}
 	}
 
+	private NoUTurnUpdate noUTurnUpdate(int chain, Map<Study, MCMCParameter> mu, Map<Study, MCMCParameter> delta,
+			MCMCParameter basic, MCMCParameter sigma, MCMCParameter sigmaw) {
+		NetworkLogDensity density = new NetworkLogDensity(d_network, d_pmtz, getNumberOfBasicParameters(),
+				d_priorGen.getVagueNormalSigma(), d_priorGen.getRandomEffectsSigma(),
+				isInconsistency() ? d_priorGen.getInconsistencySigma() : Double.NaN);
+		List<MCMCParameter> params = new ArrayList<MCMCParameter>();
+		for (Study s : d_network.getStudies()) {
+			params.add(mu.get(s));
+			params.add(delta.get(s));
+		}
+		params.add(basic);
+		params.add(sigma);
+		if (isInconsistency()) {
+			params.add(sigmaw);
+		}
+		return new NoUTurnUpdate(params, density, getRandomGenerator(chain), getSettings().getTuningIterations());
+	}
+
 	private int reDim(Study s) {
 		return s.getTreatments().size() - 1;
 	}
@@ -21,12 +21,15 @@ package org.drugis.mtc.yadas;
 
 import gov.lanl.yadas.MCMCParameter;
 
-import java.util.ArrayList;
+import java.nio.DoubleBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.drugis.mtc.MCMCResults;
 import org.drugis.mtc.MCMCResultsEvent;
 import org.drugis.mtc.MCMCResultsListener;
@@ -36,11 +39,24 @@ public class YadasResults implements MCMCResults {
 	private Parameter[] d_directParameters;
 	private Parameter[] d_derivedParameters;
 	private Derivation[] d_derivations;
+	private DerivationMatrix d_derivationMatrix;
+	private Map<Parameter, Integer> d_parameterIndex = new HashMap<Parameter, Integer>();
+	private int d_derivedCacheSize = 0;
+	private int d_derivedCacheGeneration = 0; // incremented whenever the cached series become stale
+	@SuppressWarnings("serial")
+	private final Map<Long, double[]> d_derivedCache = new LinkedHashMap<Long, double[]>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+			return size() > d_derivedCacheSize;
+		}
+	};
 	private int d_nChains;
-	private int d_availableSamples;
+	private volatile int d_availableSamples;
+	private AtomicIntegerArray d_writtenSamples = new AtomicIntegerArray(0);
 	private int d_reservedSamples;
-	private List<List<double[]>> d_results;
-	private List<MCMCResultsListener> d_listeners = new ArrayList<MCMCResultsListener>();
+	private final SampleStore.Factory d_storeFactory;
+	private SampleStore d_results;
+	private List<MCMCResultsListener> d_listeners = new CopyOnWriteArrayList<MCMCResultsListener>();
 	
 	private class YadasParameterWriter extends ParameterWriter {
 		private final int d_pIdx;
@@ -62,17 +78,24 @@ public class YadasResults implements MCMCResults {
 
 		@Override
 		protected void write(double value) {
-			d_results.get(d_cIdx).get(d_pIdx)[d_idx++] = value;
+			d_results.set(d_cIdx, d_pIdx, d_idx++, value);
 		}
 	}
 	
 	public YadasResults() {
+		this(SegmentedSampleStore.FACTORY);
+	}
+
+	YadasResults(SampleStore.Factory storeFactory) {
+		d_storeFactory = storeFactory;
 		initialize();
 	}
 
 	public void clear() {
 		d_availableSamples = 0;
+		d_writtenSamples = new AtomicIntegerArray(d_nChains);
 		d_reservedSamples = 0;
+		invalidateDerivedCache();
 		initResults();
 	}
 	
@@ -92,6 +115,7 @@ public class YadasResults implements MCMCResults {
 		for (int i = 0; i < parameters.size(); ++i) {
 			d_directParameters[i] = parameters.get(i);
 		}
+		indexParameters();
 		initResults();
 	}
 
@@ -107,6 +131,26 @@ public class YadasResults implements MCMCResults {
 			d_derivations[i] = e.getValue();
 			++i;
 		}
+		indexParameters();
+	}
+
+	private void indexParameters() {
+		d_parameterIndex.clear();
+		for (int i = d_derivedParameters.length - 1; i >= 0; --i) {
+			d_parameterIndex.put(d_derivedParameters[i], d_directParameters.length + i);
+		}
+		for (int i = d_directParameters.length - 1; i >= 0; --i) {
+			d_parameterIndex.put(d_directParameters[i], i);
+		}
+		d_derivationMatrix = null;
+		invalidateDerivedCache();
+	}
+
+	private DerivationMatrix getDerivationMatrix() {
+		if (d_derivationMatrix == null) {
+			d_derivationMatrix = new DerivationMatrix(d_derivations, this);
+		}
+		return d_derivationMatrix;
 	}
 
 	/**
@@ -118,15 +162,8 @@ public class YadasResults implements MCMCResults {
 	}
 
 	public int findParameter(Parameter p) {
-		int idx = ArrayUtils.indexOf(d_directParameters, p);
-		if (idx >= 0) {
-			return idx;
-		}
-		idx = ArrayUtils.indexOf(d_derivedParameters, p);
-		if (idx >= 0) {
-			idx += d_directParameters.length;
-		}
-		return idx;
+		Integer idx = d_parameterIndex.get(p);
+		return idx == null ? -1 : idx;
 	}
 
 	/**
@@ -142,38 +179,191 @@ public class YadasResults implements MCMCResults {
 	}
 
 	public double getSample(int p, int c, int i) {
-		if (c < 0 || c >= d_nChains) {
-			throw new IndexOutOfBoundsException("Chain " + c + " out of bounds: " +
-					d_nChains + " chains available.");
+		checkIndices(p, c);
+		if (i < 0 || i >= d_availableSamples) {
+			throw new IndexOutOfBoundsException("Iteration " + i + " out of bounds: " +
+					d_availableSamples + " iterations available.");
 		}
 		final int nDirect = d_directParameters.length;
+		if (p < nDirect) {
+			return d_results.get(c, p, i);
+		}
+		double[] series = getDerivedSeries(p, c);
+		return series != null ? series[i] : getDerivationMatrix().calculate(p - nDirect, this, c, i);
+	}
+
+	public void getSamples(int p, int c, int from, int to, double[] dst, int offset) {
+		checkIndices(p, c);
+		if (from < 0 || to > d_availableSamples || from > to) {
+			throw new IndexOutOfBoundsException("Iterations [" + from + ", " + to + ") out of bounds: " +
+					d_availableSamples + " iterations available.");
+		}
+		final int nDirect = d_directParameters.length;
+		if (p < nDirect) {
+			d_results.get(c, p, from, to, dst, offset);
+		} else {
+			double[] series = getDerivedSeries(p, c);
+			if (series != null) {
+				System.arraycopy(series, from, dst, offset, to - from);
+			} else {
+				getDerivationMatrix().calculate(p - nDirect, this, c, from, to, dst, offset);
+			}
+		}
+	}
+
+	/**
+	 * Direct parameters are viewed without copying while they fit in a single chunk of the store,
+	 * and derived parameters while they are cached; otherwise the samples are copied into a new buffer.
+	 * @see MCMCResults#getSampleBuffer(int, int)
+	 */
+	public DoubleBuffer getSampleBuffer(int p, int c) {
+		checkIndices(p, c);
+		if (p < d_directParameters.length) {
+			return d_results.getBuffer(c, p, d_availableSamples);
+		}
+		double[] series = getDerivedSeries(p, c);
+		if (series != null) {
+			return DoubleBuffer.wrap(series).asReadOnlyBuffer();
+		}
+		double[] samples = new double[d_availableSamples];
+		getSamples(p, c, 0, samples.length, samples, 0);
+		return DoubleBuffer.wrap(samples).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Calculate the samples [from, to) of all derived parameters in one pass:
+	 * dst[j][i - from] is sample i of derived parameter j, i.e. of parameter
+	 * index getParameters().length + j.
+	 */
+	public void getDerivedSamples(int c, int from, int to, double[][] dst) {
+		checkChain(c);
+		if (from < 0 || to > d_availableSamples || from > to) {
+			throw new IndexOutOfBoundsException("Iterations [" + from + ", " + to + ") out of bounds: " +
+					d_availableSamples + " iterations available.");
+		}
+		getDerivationMatrix().calculate(this, c, from, to, dst);
+	}
+
+	/**
+	 * Set the number of derived (parameter, chain) series that are kept
+	 * materialized. A derived series is calculated in full on its first
+	 * access and then served from memory until it is evicted (least recently
+	 * used first), the results are cleared, or the simulation is extended.
+	 * If the series of all derived parameters of all chains fit, those of a
+	 * chain are calculated together, in a single pass over the direct samples.
+	 * @param size The maximum number of cached series; 0 disables the cache.
+	 */
+	public void setDerivedCacheSize(int size) {
+		synchronized (d_derivedCache) {
+			d_derivedCacheSize = size;
+			resetDerivedCache();
+		}
+	}
+
+	public int getDerivedCacheSize() {
+		return d_derivedCacheSize;
+	}
+
+	/**
+	 * @return The materialized derived series, or null if caching is disabled.
+	 * The series are calculated without holding the cache lock, so that
+	 * threads reading other parameters are not blocked.
+	 */
+	private double[] getDerivedSeries(int p, int c) {
+		final int nDirect = d_directParameters.length;
+		final int nDerived = d_derivedParameters.length;
+		while (true) {
+			final int generation;
+			final int nSamples;
+			final boolean allOfChain;
+			synchronized (d_derivedCache) {
+				if (d_derivedCacheSize <= 0) {
+					return null;
+				}
+				double[] series = d_derivedCache.get(derivedKey(p, c));
+				if (series != null) {
+					return series;
+				}
+				generation = d_derivedCacheGeneration;
+				nSamples = d_availableSamples;
+				// the series of all chains fit in the cache: calculate those of this chain in one pass
+				allOfChain = d_derivedCacheSize >= nDerived * d_nChains;
+			}
+
+			final double[] series;
+			double[][] all = null;
+			if (allOfChain) {
+				all = new double[nDerived][nSamples];
+				getDerivationMatrix().calculate(this, c, 0, nSamples, all);
+				series = all[p - nDirect];
+			} else {
+				series = new double[nSamples];
+				getDerivationMatrix().calculate(p - nDirect, this, c, 0, nSamples, series, 0);
+			}
+
+			synchronized (d_derivedCache) {
+				if (generation != d_derivedCacheGeneration) {
+					continue; // samples were published or cleared in the meantime
+				}
+				if (all != null) {
+					for (int j = 0; j < nDerived; ++j) {
+						d_derivedCache.put(derivedKey(nDirect + j, c), all[j]);
+					}
+				} else {
+					d_derivedCache.put(derivedKey(p, c), series);
+				}
+				return series;
+			}
+		}
+	}
+
+	private static Long derivedKey(int p, int c) {
+		return ((long) p << 32) | c;
+	}
+
+	/**
+	 * Drop the cached series; called while holding the cache lock.
+	 */
+	private void resetDerivedCache() {
+		++d_derivedCacheGeneration;
+		d_derivedCache.clear();
+	}
+
+	private void invalidateDerivedCache() {
+		synchronized (d_derivedCache) {
+			resetDerivedCache();
+		}
+	}
+
+	private void checkIndices(int p, int c) {
+		checkChain(c);
+		final int nDirect = d_directParameters.length;
 		final int nDerived = d_derivedParameters.length;
 		if (p < 0 || p >= nDirect + nDerived) {
 			throw new IndexOutOfBoundsException("Parameter " + p + " out of bounds: " + nDirect +
 					" + " + nDerived + " parameters available.");
 		}
-		if (i < 0 || i >= d_availableSamples) {
-			throw new IndexOutOfBoundsException("Iteration " + i + " out of bounds: " +
-					d_availableSamples + " iterations available.");
-		}
-		return p < nDirect ? d_results.get(c).get(p)[i] : d_derivations[p - nDirect].calculate(this, c, i);
 	}
 
+	private void checkChain(int c) {
+		if (c < 0 || c >= d_nChains) {
+			throw new IndexOutOfBoundsException("Chain " + c + " out of bounds: " +
+					d_nChains + " chains available.");
+		}
+	}
 
 	public void setNumberOfChains(int nChains) {
 		d_nChains = nChains;
+		d_writtenSamples = new AtomicIntegerArray(nChains);
 		initResults();
 	}
 
 	private void initResults() {
-		d_results = new ArrayList<List<double[]>>(d_nChains);
-		for (int i = 0; i < d_nChains; ++i) {
-			List<double[]> list = new ArrayList<double[]>(d_directParameters.length);
-			for (int j = 0; j < d_directParameters.length; ++j) {
-				list.add(new double[d_reservedSamples]);
-			}
-			d_results.add(list);
+		if (d_results != null) {
+			d_results.dispose();
 		}
+		d_results = d_storeFactory.create(d_nChains, d_directParameters.length);
+		d_results.reserve(d_reservedSamples);
 	}
 
 	public int getNumberOfChains() {
@@ -182,13 +372,8 @@ public class YadasResults implements MCMCResults {
 	
 	public void setNumberOfIterations(int iter) {
 		d_reservedSamples = iter;
-		for (List<double[]> chain : d_results) {
-			for (int i = 0; i < chain.size(); ++i) {
-				double[] newResults = new double[iter];
-				System.arraycopy(chain.get(i), 0, newResults, 0, chain.get(i).length);
-				chain.set(i, newResults);
-			}
-		}
+		d_results.reserve(iter);
+		invalidateDerivedCache();
 	}
 	
 	public int getNumberOfIterations() { 
@@ -200,14 +385,58 @@ public class YadasResults implements MCMCResults {
 	}
 	
 	public void simulationFinished() {
-		d_availableSamples = d_reservedSamples;
+		synchronized (d_derivedCache) {
+			d_availableSamples = d_reservedSamples;
+			resetDerivedCache();
+		}
+		fireResultsEvent();
+	}
+
+	/**
+	 * Signal that the writers of the given chain have written one more sample
+	 * of each parameter. Called by the simulation thread of that chain only.
+	 */
+	void sampleWritten(int chain) {
+		d_writtenSamples.incrementAndGet(chain);
+	}
+
+	/**
+	 * The number of samples that all chains have written. Samples below the
+	 * watermark are never written again, so they can safely be published
+	 * while the chains are still running.
+	 */
+	public int getWatermark() {
+		final AtomicIntegerArray written = d_writtenSamples;
+		int min = written.length() > 0 ? Integer.MAX_VALUE : 0;
+		for (int c = 0; c < written.length(); ++c) {
+			min = Math.min(min, written.get(c));
+		}
+		return Math.min(min, d_reservedSamples);
+	}
+
+	/**
+	 * Make the samples below the watermark available, without notifying the listeners.
+	 * @return true if more samples became available.
+	 * @see #getWatermark()
+	 */
+	boolean publishWatermark() {
+		final int watermark = getWatermark();
+		synchronized (d_derivedCache) {
+			if (watermark <= d_availableSamples) {
+				return false;
+			}
+			d_availableSamples = watermark;
+			resetDerivedCache();
+		}
+		return true;
+	}
+
+	void fireResultsEvent() {
 		MCMCResultsEvent event = new MCMCResultsEvent(this);
-		List<MCMCResultsListener> listeners = new ArrayList<MCMCResultsListener>(d_listeners);
-		for (MCMCResultsListener l : listeners) {
+		for (MCMCResultsListener l : d_listeners) {
 			l.resultsEvent(event);
 		}
 	}
-	
 
 	
 	public void addResultsListener(MCMCResultsListener l) {
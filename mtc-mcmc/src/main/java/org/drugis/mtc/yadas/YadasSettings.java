@@ -19,15 +19,47 @@
 
 package org.drugis.mtc.yadas;
 
+import java.io.File;
+
 import org.drugis.common.beans.AbstractObservable;
 import org.drugis.mtc.MCMCSettings;
+import org.drugis.mtc.convergence.ConvergencePolicy;
 
 public final class YadasSettings extends AbstractObservable implements MCMCSettings {
+	public static final String PROPERTY_RESULTS_DIRECTORY = "resultsDirectory";
+	public static final String PROPERTY_DERIVED_CACHE_SIZE = "derivedCacheSize";
+	public static final int DEFAULT_DERIVED_CACHE_SIZE = 64;
+	public static final String PROPERTY_MONITOR_INTERVAL = "monitorInterval";
+	public static final String PROPERTY_CONVERGENCE_POLICY = "convergencePolicy";
+	public static final String PROPERTY_TARGET_EFFECTIVE_SAMPLE_SIZE = "targetEffectiveSampleSize";
+	public static final String PROPERTY_BASIC_PARAMETER_SAMPLER = "basicParameterSampler";
+	public static final String PROPERTY_NO_U_TURN_SAMPLER = "noUTurnSampler";
+	public static final String PROPERTY_MARGINALIZE_RANDOM_EFFECTS = "marginalizeRandomEffects";
+	public static final String PROPERTY_RANDOM_EFFECTS_PARAMETERIZATION = "randomEffectsParameterization";
+	public static final String PROPERTY_GIBBS_UPDATES = "gibbsUpdates";
+	public static final String PROPERTY_STANDARD_DEVIATION_SAMPLER = "standardDeviationSampler";
+	public static final String PROPERTY_STUDY_BATCHES = "studyBatches";
+	public static final String PROPERTY_PACKED_DATA_LIKELIHOOD = "packedDataLikelihood";
+
 	private int d_simulationIterations;
 	private int d_tuningIterations;
-	private final int d_thinning;
+	private int d_thinning;
 	private final int d_numberOfChains;
 	private final double d_varianceScalingFactor;
+	private Long d_randomSeed;
+	private File d_resultsDirectory;
+	private int d_derivedCacheSize = DEFAULT_DERIVED_CACHE_SIZE;
+	private int d_monitorInterval = 0;
+	private ConvergencePolicy d_convergencePolicy;
+	private double d_targetEffectiveSampleSize = 0.0;
+	private BasicParameterSampler d_basicParameterSampler = BasicParameterSampler.RANDOM_WALK;
+	private boolean d_noUTurnSampler = false;
+	private boolean d_marginalizeRandomEffects = false;
+	private RandomEffectsParameterization d_randomEffectsParameterization = RandomEffectsParameterization.CENTERED;
+	private boolean d_gibbsUpdates = true;
+	private StandardDeviationSampler d_standardDeviationSampler = StandardDeviationSampler.RANDOM_WALK;
+	private int d_studyBatches = 1;
+	private boolean d_packedDataLikelihood = false;
 
 	public YadasSettings(int tuningIterations, int simulationIterations, int thinning, int numberOfChains, double varianceScalingFactor) {
 		d_simulationIterations = simulationIterations;
@@ -40,6 +72,22 @@ public final class YadasSettings extends AbstractObservable implements MCMCSetti
 	public YadasSettings(MCMCSettings settings) {
 		this(settings.getTuningIterations(), settings.getSimulationIterations(), settings.getThinningInterval(),
 				settings.getNumberOfChains(), settings.getVarianceScalingFactor());
+		d_randomSeed = settings.getRandomSeed();
+		if (settings instanceof YadasSettings) {
+			d_resultsDirectory = ((YadasSettings) settings).getResultsDirectory();
+			d_derivedCacheSize = ((YadasSettings) settings).getDerivedCacheSize();
+			d_monitorInterval = ((YadasSettings) settings).getMonitorInterval();
+			d_convergencePolicy = ((YadasSettings) settings).getConvergencePolicy();
+			d_targetEffectiveSampleSize = ((YadasSettings) settings).getTargetEffectiveSampleSize();
+			d_basicParameterSampler = ((YadasSettings) settings).getBasicParameterSampler();
+			d_noUTurnSampler = ((YadasSettings) settings).isNoUTurnSampler();
+			d_marginalizeRandomEffects = ((YadasSettings) settings).isMarginalizeRandomEffects();
+			d_randomEffectsParameterization = ((YadasSettings) settings).getRandomEffectsParameterization();
+			d_gibbsUpdates = ((YadasSettings) settings).isGibbsUpdates();
+			d_standardDeviationSampler = ((YadasSettings) settings).getStandardDeviationSampler();
+			d_studyBatches = ((YadasSettings) settings).getStudyBatches();
+			d_packedDataLikelihood = ((YadasSettings) settings).isPackedDataLikelihood();
+		}
 	}
 
 	public double getVarianceScalingFactor() {
@@ -60,6 +108,14 @@ public final class YadasSettings extends AbstractObservable implements MCMCSetti
 		return d_thinning;
 	}
 
+	public void setThinningInterval(int newValue) {
+		final int oldValue = d_thinning;
+		final int oldInferenceSamples = getInferenceSamples();
+		d_thinning = newValue;
+		firePropertyChange(PROPERTY_THINNING_INTERVAL, oldValue, newValue);
+		firePropertyChange(PROPERTY_INFERENCE_SAMPLES, oldInferenceSamples, getInferenceSamples());
+	}
+
 	public int getSimulationIterations() {
 		return d_simulationIterations;
 	}
@@ -79,4 +135,219 @@ public final class YadasSettings extends AbstractObservable implements MCMCSetti
 	public int getInferenceSamples() {
 		return d_simulationIterations / (2 * d_thinning) * d_numberOfChains;
 	}
-}
\ No newline at end of file
+
+	public Long getRandomSeed() {
+		return d_randomSeed;
+	}
+
+	/**
+	 * Set the master seed for the random streams; null for a time-based seed.
+	 */
+	public void setRandomSeed(Long newValue) {
+		final Long oldValue = d_randomSeed;
+		d_randomSeed = newValue;
+		firePropertyChange(PROPERTY_RANDOM_SEED, oldValue, newValue);
+	}
+
+	/**
+	 * The directory for memory-mapped sample files, or null to keep the samples on the heap.
+	 * @see MappedYadasResults
+	 */
+	public File getResultsDirectory() {
+		return d_resultsDirectory;
+	}
+
+	public void setResultsDirectory(File newValue) {
+		final File oldValue = d_resultsDirectory;
+		d_resultsDirectory = newValue;
+		firePropertyChange(PROPERTY_RESULTS_DIRECTORY, oldValue, newValue);
+	}
+
+	/**
+	 * The number of derived (parameter, chain) series that the results keep
+	 * materialized; larger values use more memory to avoid recalculation.
+	 * @see YadasResults#setDerivedCacheSize(int)
+	 */
+	public int getDerivedCacheSize() {
+		return d_derivedCacheSize;
+	}
+
+	public void setDerivedCacheSize(int newValue) {
+		final int oldValue = d_derivedCacheSize;
+		d_derivedCacheSize = newValue;
+		firePropertyChange(PROPERTY_DERIVED_CACHE_SIZE, oldValue, newValue);
+	}
+
+	/**
+	 * The number of simulation iterations between updates of the live
+	 * convergence monitor, or 0 if samples are only published once all
+	 * chains have finished.
+	 * @see SimulationMonitor
+	 */
+	public int getMonitorInterval() {
+		return d_monitorInterval;
+	}
+
+	public void setMonitorInterval(int newValue) {
+		final int oldValue = d_monitorInterval;
+		d_monitorInterval = newValue;
+		firePropertyChange(PROPERTY_MONITOR_INTERVAL, oldValue, newValue);
+	}
+
+	/**
+	 * The policy that decides whether to extend or finish the simulation,
+	 * or null if the decision is left to the user.
+	 */
+	public ConvergencePolicy getConvergencePolicy() {
+		return d_convergencePolicy;
+	}
+
+	public void setConvergencePolicy(ConvergencePolicy newValue) {
+		final ConvergencePolicy oldValue = d_convergencePolicy;
+		d_convergencePolicy = newValue;
+		firePropertyChange(PROPERTY_CONVERGENCE_POLICY, oldValue, newValue);
+	}
+
+	/**
+	 * The effective sample size to plan for, or 0 to use the configured
+	 * thinning interval and simulation iterations. When set, the
+	 * tuning chains run a pilot of half the tuning iterations after the step
+	 * sizes stop adapting, the autocorrelation is measured during the pilot,
+	 * and both are replaced by the plan before the simulation starts.
+	 */
+	public double getTargetEffectiveSampleSize() {
+		return d_targetEffectiveSampleSize;
+	}
+
+	public void setTargetEffectiveSampleSize(double newValue) {
+		final double oldValue = d_targetEffectiveSampleSize;
+		d_targetEffectiveSampleSize = newValue;
+		firePropertyChange(PROPERTY_TARGET_EFFECTIVE_SAMPLE_SIZE, oldValue, newValue);
+	}
+
+	/**
+	 * The update scheme for the basic and inconsistency parameters.
+	 */
+	public BasicParameterSampler getBasicParameterSampler() {
+		return d_basicParameterSampler;
+	}
+
+	public void setBasicParameterSampler(BasicParameterSampler newValue) {
+		final BasicParameterSampler oldValue = d_basicParameterSampler;
+		d_basicParameterSampler = newValue;
+		firePropertyChange(PROPERTY_BASIC_PARAMETER_SAMPLER, oldValue, newValue);
+	}
+
+	/**
+	 * Whether all parameters are updated jointly by the No-U-Turn Sampler,
+	 * instead of by the random walk updates. The tuning iterations are then
+	 * used to adapt its step size and mass matrix.
+	 * @see HamiltonianModelFactory
+	 */
+	public boolean isNoUTurnSampler() {
+		return d_noUTurnSampler;
+	}
+
+	public void setNoUTurnSampler(boolean newValue) {
+		final boolean oldValue = d_noUTurnSampler;
+		d_noUTurnSampler = newValue;
+		firePropertyChange(PROPERTY_NO_U_TURN_SAMPLER, oldValue, newValue);
+	}
+
+	/**
+	 * Whether the random effects of continuous networks are integrated out
+	 * of the likelihood instead of being sampled. This leaves only the study
+	 * baselines, basic parameters and standard deviations to be sampled;
+	 * it has no effect on other data types or with the No-U-Turn Sampler.
+	 * @see MarginalGaussian
+	 */
+	public boolean isMarginalizeRandomEffects() {
+		return d_marginalizeRandomEffects;
+	}
+
+	public void setMarginalizeRandomEffects(boolean newValue) {
+		final boolean oldValue = d_marginalizeRandomEffects;
+		d_marginalizeRandomEffects = newValue;
+		firePropertyChange(PROPERTY_MARGINALIZE_RANDOM_EFFECTS, oldValue, newValue);
+	}
+
+	/**
+	 * How the random effects are sampled by the random walk updates; the
+	 * No-U-Turn Sampler always uses the centered parameterization.
+	 */
+	public RandomEffectsParameterization getRandomEffectsParameterization() {
+		return d_randomEffectsParameterization;
+	}
+
+	public void setRandomEffectsParameterization(RandomEffectsParameterization newValue) {
+		final RandomEffectsParameterization oldValue = d_randomEffectsParameterization;
+		d_randomEffectsParameterization = newValue;
+		firePropertyChange(PROPERTY_RANDOM_EFFECTS_PARAMETERIZATION, oldValue, newValue);
+	}
+
+	/**
+	 * Whether parameters with a normal full conditional are updated by
+	 * sampling it exactly: the study baselines of continuous networks, and
+	 * the basic parameters in the centered parameterization when they use
+	 * the random walk sampler.
+	 * @see BaselineGibbsUpdate
+	 * @see BasicParameterGibbsUpdate
+	 */
+	public boolean isGibbsUpdates() {
+		return d_gibbsUpdates;
+	}
+
+	public void setGibbsUpdates(boolean newValue) {
+		final boolean oldValue = d_gibbsUpdates;
+		d_gibbsUpdates = newValue;
+		firePropertyChange(PROPERTY_GIBBS_UPDATES, oldValue, newValue);
+	}
+
+	/**
+	 * The update scheme for the random effects and inconsistency standard deviations.
+	 */
+	public StandardDeviationSampler getStandardDeviationSampler() {
+		return d_standardDeviationSampler;
+	}
+
+	public void setStandardDeviationSampler(StandardDeviationSampler newValue) {
+		final StandardDeviationSampler oldValue = d_standardDeviationSampler;
+		d_standardDeviationSampler = newValue;
+		firePropertyChange(PROPERTY_STANDARD_DEVIATION_SAMPLER, oldValue, newValue);
+	}
+
+	/**
+	 * The number of batches in which the study baselines and random effects
+	 * of each chain are updated in parallel. With 1 (the default), they are
+	 * updated sequentially in the chain's thread. Each study draws from its
+	 * own sub-stream of the chain, so the results do not depend on the
+	 * number of batches.
+	 * Ignored by the No-U-Turn Sampler, which updates all parameters jointly.
+	 * @see ParallelStudyUpdate
+	 */
+	public int getStudyBatches() {
+		return d_studyBatches;
+	}
+
+	public void setStudyBatches(int newValue) {
+		final int oldValue = d_studyBatches;
+		d_studyBatches = newValue;
+		firePropertyChange(PROPERTY_STUDY_BATCHES, oldValue, newValue);
+	}
+
+	/**
+	 * Whether the data likelihood of the centered random effects model is
+	 * evaluated on flat arrays holding the data of all studies, rather than
+	 * by a BasicMCMCBond per study.
+	 * @see PackedDataLikelihood
+	 */
+	public boolean isPackedDataLikelihood() {
+		return d_packedDataLikelihood;
+	}
+
+	public void setPackedDataLikelihood(boolean newValue) {
+		final boolean oldValue = d_packedDataLikelihood;
+		d_packedDataLikelihood = newValue;
+		firePropertyChange(PROPERTY_PACKED_DATA_LIKELIHOOD, oldValue, newValue);
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.convergence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.drugis.mtc.MCMCModel.ExtendSimulation;
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.BasicParameter;
+import org.drugis.mtc.parameterization.RandomEffectsStandardDeviation;
+import org.drugis.mtc.test.FileResults;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConvergencePolicyTest {
+	private FileResults d_results;
+
+	@Before
+	public void setUp() throws IOException {
+		InputStream is = GelmanRubinAcceptanceTest.class.getResourceAsStream("conv-samples.txt");
+		Treatment t1 = new Treatment("iPCI");
+		Treatment t2 = new Treatment("mPCI");
+		Treatment t3 = new Treatment("sPCI");
+		Parameter[] parameters = new Parameter[] {
+				new BasicParameter(t1, t2), new BasicParameter(t2, t3), new RandomEffectsStandardDeviation()
+		};
+		d_results = new FileResults(is, parameters, 3, 10000);
+		d_results.makeSamplesAvailable();
+	}
+
+	@Test
+	public void testConverged() {
+		ConvergencePolicy policy = new ConvergencePolicy(1.05, 1000, 0, 0, 10000);
+		assertTrue(policy.isConverged(d_results));
+		assertEquals(ExtendSimulation.FINISH, policy.decide(d_results, 100000, 1000));
+	}
+
+	@Test
+	public void testNotConverged() {
+		assertFalse(new ConvergencePolicy(1.0, 1000, 0, 0, 10000).isConverged(d_results));
+		assertFalse(new ConvergencePolicy(1.05, 1E6, 0, 0, 10000).isConverged(d_results));
+		assertEquals(ExtendSimulation.EXTEND, new ConvergencePolicy(1.0, 1000, 0, 0, 10000).decide(d_results, 100000, 1000));
+	}
+
+	@Test
+	public void testBudget() {
+		ConvergencePolicy policy = new ConvergencePolicy(1.0, 1000, 120000, 60000, 10000);
+		assertEquals(ExtendSimulation.EXTEND, policy.decide(d_results, 100000, 1000));
+		assertEquals(ExtendSimulation.FINISH, policy.decide(d_results, 120000, 1000));
+		assertEquals(ExtendSimulation.FINISH, policy.decide(d_results, 100000, 60000));
+	}
+
+	@Test
+	public void testExtension() {
+		assertEquals(10000, new ConvergencePolicy(1.05, 1000, 0, 0, 10000).getExtension(100000));
+		assertEquals(10000, new ConvergencePolicy(1.05, 1000, 120000, 0, 10000).getExtension(100000));
+		assertEquals(5000, new ConvergencePolicy(1.05, 1000, 120000, 0, 10000).getExtension(115000));
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testInvalidSegment() {
+		new ConvergencePolicy(1.05, 1000, 0, 0, 150);
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.convergence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
+import org.junit.Test;
+
+public class EffectiveSampleSizeTest {
+	private static final double EPSILON = 0.0000001;
+
+	@Test
+	public void testFFT() {
+		double[] re = { 1.0, 2.0, 0.5, -1.0, 0.0, 3.0, -2.0, 0.25 };
+		double[] im = new double[re.length];
+		double[] expectedRe = new double[re.length];
+		double[] expectedIm = new double[re.length];
+		for (int k = 0; k < re.length; ++k) {
+			for (int j = 0; j < re.length; ++j) {
+				double angle = -2 * Math.PI * j * k / re.length;
+				expectedRe[k] += re[j] * Math.cos(angle);
+				expectedIm[k] += re[j] * Math.sin(angle);
+			}
+		}
+		double[] original = re.clone();
+		EffectiveSampleSize.fft(re, im, false);
+		for (int k = 0; k < re.length; ++k) {
+			assertEquals(expectedRe[k], re[k], EPSILON);
+			assertEquals(expectedIm[k], im[k], EPSILON);
+		}
+		EffectiveSampleSize.fft(re, im, true);
+		for (int k = 0; k < re.length; ++k) {
+			assertEquals(original[k], re[k] / re.length, EPSILON);
+			assertEquals(0.0, im[k], EPSILON);
+		}
+	}
+
+	@Test
+	public void testIndependentSamples() {
+		RandomGenerator rng = new Well19937c(1234);
+		double[] samples = new double[4 * 5000];
+		for (int i = 0; i < samples.length; ++i) {
+			samples[i] = rng.nextGaussian();
+		}
+		double ess = EffectiveSampleSize.calculate(samples, 4);
+		assertEquals(samples.length, ess, 0.1 * samples.length);
+	}
+
+	@Test
+	public void testAutoregressive() {
+		final double phi = 0.9;
+		RandomGenerator rng = new Well19937c(4321);
+		double[] samples = new double[4 * 20000];
+		for (int c = 0; c < 4; ++c) {
+			double x = rng.nextGaussian() / Math.sqrt(1 - phi * phi);
+			for (int i = 0; i < 20000; ++i) {
+				x = phi * x + rng.nextGaussian();
+				samples[c * 20000 + i] = x;
+			}
+		}
+		double expected = samples.length * (1 - phi) / (1 + phi);
+		assertEquals(expected, EffectiveSampleSize.calculate(samples, 4), 0.15 * expected);
+	}
+
+	@Test
+	public void testNonMixingChains() {
+		double[] samples = new double[2 * 1000];
+		for (int i = 0; i < 1000; ++i) {
+			samples[i] = Math.sin(i);
+			samples[1000 + i] = 10 + Math.sin(i);
+		}
+		assertTrue(EffectiveSampleSize.calculate(samples, 2) < 10);
+	}
+
+	@Test
+	public void testTooFewSamples() {
+		assertTrue(Double.isNaN(EffectiveSampleSize.calculate(new double[] { 1.0, 2.0, 3.0, 4.0, 5.0, 6.0 }, 2)));
+	}
+}
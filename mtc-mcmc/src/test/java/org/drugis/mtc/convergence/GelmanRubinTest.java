@@ -172,4 +172,51 @@ public class GelmanRubinTest {
 		GelmanRubinConvergence grc = new GelmanRubinConvergence(d_results, d_parameters[0]);
 		assertEquals(1.000252, grc.getCorrPSRF(), EPSILON*10);
 	}
+
+	@Test
+	public void testDiagnoseAll() {
+		GelmanRubinConvergence[] all = GelmanRubinConvergence.diagnoseAll(d_results, d_parameters);
+		for (int i = 0; i < d_parameters.length; ++i) {
+			GelmanRubinConvergence grc = new GelmanRubinConvergence(d_results, d_parameters[i]);
+			assertEquals(grc.getCorrPSRF(), all[i].getCorrPSRF(), EPSILON);
+			assertEquals(grc.getVHat(), all[i].getVHat(), EPSILON);
+		}
+	}
+
+	@Test
+	public void testFromSufficientStatistics() {
+		GelmanRubinConvergence grc = new GelmanRubinConvergence(d_results, d_parameters[0]);
+		GelmanRubinConvergence stats = new GelmanRubinConvergence(d_results.getNumberOfSamples(), grc.getMeans(), grc.getVariances());
+		assertEquals(grc.getCorrPSRF(), stats.getCorrPSRF(), 0.0);
+		assertEquals(grc.getDegreesOfFreedom(), stats.getDegreesOfFreedom(), 0.0);
+	}
+
+	@Test
+	public void testIterativeTrajectory() {
+		for (Parameter p : d_parameters) {
+			GelmanRubinConvergence[] trajectory = IterativeGelmanRubin.trajectory(d_results, p, 333);
+			assertEquals(d_results.getNumberOfSamples() / 333, trajectory.length);
+			for (int k = 0; k < trajectory.length; ++k) {
+				int n = (k + 1) * 333;
+				assertEquals(GelmanRubinConvergence.diagnose(d_results, p, n), trajectory[k].getCorrPSRF(), EPSILON);
+				assertEquals(GelmanRubinConvergence.calculatePooledVariance(d_results, p, n), trajectory[k].getVHat(), EPSILON);
+				assertEquals(GelmanRubinConvergence.calculateWithinChainVariance(d_results, p, n), trajectory[k].getWithinChainVar(), EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testIterativeDisjointWindows() {
+		IterativeGelmanRubin iterative = new IterativeGelmanRubin(d_results, d_parameters[0]);
+		iterative.advance(50);
+		GelmanRubinConvergence grc = iterative.advance(d_results.getNumberOfSamples());
+		assertEquals(GelmanRubinConvergence.diagnose(d_results, d_parameters[0]), grc.getCorrPSRF(), EPSILON);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testIterativeDecreasing() {
+		IterativeGelmanRubin iterative = new IterativeGelmanRubin(d_results, d_parameters[0]);
+		iterative.advance(100);
+		iterative.advance(99);
+	}
 }
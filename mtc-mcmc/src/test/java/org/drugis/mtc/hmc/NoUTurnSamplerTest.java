@@ -0,0 +1,109 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.hmc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.math3.random.MersenneTwister;
+import org.junit.Test;
+
+public class NoUTurnSamplerTest {
+	/**
+	 * Independent Gaussians with the given means and standard deviations.
+	 */
+	private static class Gaussian implements LogDensity {
+		private final double[] d_mean;
+		private final double[] d_sd;
+
+		public Gaussian(double[] mean, double[] sd) {
+			d_mean = mean;
+			d_sd = sd;
+		}
+
+		public int getDimension() {
+			return d_mean.length;
+		}
+
+		public double evaluate(double[] x, double[] gradient) {
+			double logp = 0.0;
+			for (int i = 0; i < x.length; ++i) {
+				final double z = (x[i] - d_mean[i]) / d_sd[i];
+				logp -= 0.5 * z * z;
+				gradient[i] = -z / d_sd[i];
+			}
+			return logp;
+		}
+	}
+
+	@Test
+	public void testSampleGaussian() {
+		final double[] mean = {1.0, -2.0, 0.0};
+		final double[] sd = {0.5, 3.0, 20.0};
+		final int nAdapt = 1000;
+		final int n = 4000;
+		NoUTurnSampler sampler = new NoUTurnSampler(new Gaussian(mean, sd), new MersenneTwister(1234), nAdapt);
+
+		double[] x = {0.0, 0.0, 0.0};
+		for (int i = 0; i < nAdapt; ++i) {
+			sampler.transition(x);
+		}
+		final int divergences = sampler.getDivergences();
+		double[] sum = new double[3];
+		double[] sumSq = new double[3];
+		for (int i = 0; i < n; ++i) {
+			sampler.transition(x);
+			for (int j = 0; j < 3; ++j) {
+				sum[j] += x[j];
+				sumSq[j] += x[j] * x[j];
+			}
+		}
+		for (int j = 0; j < 3; ++j) {
+			final double m = sum[j] / n;
+			final double s = Math.sqrt(sumSq[j] / n - m * m);
+			assertEquals(mean[j], m, 0.1 * sd[j]);
+			assertEquals(sd[j], s, 0.1 * sd[j]);
+		}
+
+		// after adapting the mass matrix to the scales, short trajectories suffice
+		assertTrue(sampler.getStepSize() > 0.1);
+		assertTrue(sampler.getDepth() <= 4);
+		assertEquals(divergences, sampler.getDivergences());
+	}
+
+	@Test
+	public void testStateUnchangedOutsideSupport() {
+		LogDensity flat = new LogDensity() {
+			public int getDimension() {
+				return 1;
+			}
+			public double evaluate(double[] x, double[] gradient) {
+				gradient[0] = 0.0;
+				return Math.abs(x[0]) < 1.0 ? 0.0 : Double.NEGATIVE_INFINITY;
+			}
+		};
+		NoUTurnSampler sampler = new NoUTurnSampler(flat, new MersenneTwister(42), 100);
+		double[] x = {0.0};
+		for (int i = 0; i < 500; ++i) {
+			sampler.transition(x);
+			assertTrue(Math.abs(x[0]) < 1.0);
+		}
+	}
+}
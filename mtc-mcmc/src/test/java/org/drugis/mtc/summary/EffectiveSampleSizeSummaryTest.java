@@ -0,0 +1,78 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.summary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.convergence.EffectiveSampleSize;
+import org.drugis.mtc.convergence.GelmanRubinAcceptanceTest;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.BasicParameter;
+import org.drugis.mtc.parameterization.RandomEffectsStandardDeviation;
+import org.drugis.mtc.test.FileResults;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EffectiveSampleSizeSummaryTest {
+	private static final double EPSILON = 0.0000001;
+	private Parameter[] d_parameters;
+	private FileResults d_results;
+
+	@Before
+	public void setUp() throws IOException {
+		InputStream is = GelmanRubinAcceptanceTest.class.getResourceAsStream("conv-samples.txt");
+		Treatment t1 = new Treatment("iPCI");
+		Treatment t2 = new Treatment("mPCI");
+		Treatment t3 = new Treatment("sPCI");
+		d_parameters = new Parameter[] {
+				new BasicParameter(t1, t2), new BasicParameter(t2, t3), new RandomEffectsStandardDeviation()
+		};
+		d_results = new FileResults(is, d_parameters, 3, 10000);
+	}
+
+	@Test
+	public void testCreation() {
+		assertFalse(new EffectiveSampleSizeSummary(d_results, d_parameters[0]).getDefined());
+		assertFalse(new MonteCarloStandardErrorSummary(d_results, d_parameters[0]).getDefined());
+	}
+
+	@Test
+	public void testResultsCalculatedOnAvailable() {
+		EffectiveSampleSizeSummary ess = new EffectiveSampleSizeSummary(d_results, d_parameters[0]);
+		MonteCarloStandardErrorSummary mcse = new MonteCarloStandardErrorSummary(d_results, d_parameters[0]);
+		d_results.makeSamplesAvailable();
+		assertTrue(ess.getDefined());
+		assertTrue(mcse.getDefined());
+
+		double[] samples = SummaryUtil.getLastHalfSamples(d_results, d_parameters[0]);
+		double expected = EffectiveSampleSize.calculate(samples, d_results.getNumberOfChains());
+		assertEquals(expected, ess.getEffectiveSampleSize(), EPSILON);
+		assertTrue(ess.getEffectiveSampleSize() > 0 && ess.getEffectiveSampleSize() < samples.length * 1.5);
+
+		SampleStatistics stats = SummaryEngine.getInstance(d_results).getStatistics(d_parameters[0]);
+		assertEquals(stats.getStandardDeviation() / Math.sqrt(expected), mcse.getStandardError(), EPSILON);
+	}
+}
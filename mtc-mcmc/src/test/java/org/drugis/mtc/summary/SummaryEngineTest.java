@@ -0,0 +1,199 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.summary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.apache.commons.math3.stat.correlation.Covariance;
+import org.apache.commons.math3.stat.descriptive.moment.Mean;
+import org.apache.commons.math3.stat.descriptive.moment.Variance;
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import org.drugis.mtc.MCMCResultsEvent;
+import org.drugis.mtc.MCMCResultsListener;
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.test.ExampleResults;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SummaryEngineTest {
+	private static final double EPSILON = 0.0000001;
+	private ExampleResults d_results;
+	private Parameter d_x;
+	private Parameter d_y;
+
+	@Before
+	public void setUp() throws IOException {
+		d_results = new ExampleResults();
+		d_x = d_results.getParameters()[0];
+		d_y = d_results.getParameters()[1];
+	}
+
+	@Test
+	public void testInstancePerResults() throws IOException {
+		assertSame(SummaryEngine.getInstance(d_results), SummaryEngine.getInstance(d_results));
+		assertNotSame(SummaryEngine.getInstance(d_results), SummaryEngine.getInstance(new ExampleResults()));
+	}
+
+	@Test
+	public void testStatistics() {
+		SummaryEngine engine = SummaryEngine.getInstance(d_results);
+		engine.addQuantiles(d_x, 0.421, 0.0001);
+		d_results.makeSamplesAvailable();
+		SampleStatistics stats = engine.getStatistics(d_x);
+		double[] samples = SummaryUtil.getLastHalfSamples(d_results, d_x);
+		assertEquals(new Mean().evaluate(samples), stats.getMean(), EPSILON);
+		assertEquals(new Variance().evaluate(samples), stats.getVariance(), EPSILON);
+		assertEquals(new Percentile().evaluate(samples, 42.1), stats.getQuantile(0.421), EPSILON);
+		assertEquals(new Percentile().evaluate(samples, 0.01), stats.getQuantile(0.0001), EPSILON);
+		for (int c = 0; c < d_results.getNumberOfChains(); ++c) {
+			double[] chain = SummaryUtil.getLastHalfSamples(d_results, d_x, c);
+			assertEquals(new Mean().evaluate(chain), stats.getChainMeans()[c], EPSILON);
+			assertEquals(new Variance().evaluate(chain), stats.getChainVariances()[c], EPSILON);
+		}
+	}
+
+	@Test
+	public void testQuantilesRegisteredLater() {
+		SummaryEngine engine = SummaryEngine.getInstance(d_results);
+		d_results.makeSamplesAvailable();
+		SampleStatistics stats = engine.getStatistics(d_x);
+		assertEquals(0, stats.getProbabilities().length);
+
+		engine.addQuantiles(d_x, 0.5);
+		double[] samples = SummaryUtil.getLastHalfSamples(d_results, d_x);
+		assertEquals(new Percentile().evaluate(samples, 50), engine.getStatistics(d_x).getQuantile(0.5), EPSILON);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnregisteredQuantile() {
+		SummaryEngine engine = SummaryEngine.getInstance(d_results);
+		engine.addQuantiles(d_x, 0.5);
+		d_results.makeSamplesAvailable();
+		engine.getStatistics(d_x).getQuantile(0.25);
+	}
+
+	@Test
+	public void testListenerNotifiedAfterUpdate() {
+		final SummaryEngine engine = SummaryEngine.getInstance(d_results);
+		final SampleStatistics[] seen = new SampleStatistics[1];
+		engine.addListener(new MCMCResultsListener() {
+			public void resultsEvent(MCMCResultsEvent event) {
+				seen[0] = engine.getStatistics(d_x);
+			}
+		}, d_x);
+		d_results.makeSamplesAvailable();
+		assertEquals(d_results.getNumberOfSamples(), seen[0].getNumberOfSamples());
+		assertSame(seen[0], engine.getStatistics(d_x));
+	}
+
+	@Test
+	public void testStatisticsOfSharedSamples() {
+		d_results.makeSamplesAvailable();
+		double[] samples = SummaryUtil.getLastHalfSamples(d_results, d_x);
+		double[] copy = samples.clone();
+		SampleStatistics expected = new SampleStatistics(d_results, d_x, new double[] { 0.5 });
+		SampleStatistics stats = new SampleStatistics(d_results.getNumberOfSamples(), samples, d_results.getNumberOfChains(), new double[] { 0.5 });
+		assertArrayEquals(copy, samples, 0.0);
+		assertEquals(expected.getMean(), stats.getMean(), 0.0);
+		assertEquals(expected.getVariance(), stats.getVariance(), 0.0);
+		assertEquals(expected.getEffectiveSampleSize(), stats.getEffectiveSampleSize(), 0.0);
+		assertEquals(expected.getQuantile(0.5), stats.getQuantile(0.5), 0.0);
+		assertArrayEquals(expected.getChainVariances(), stats.getChainVariances(), 0.0);
+	}
+
+	@Test
+	public void testJointStatistics() {
+		final SummaryEngine engine = SummaryEngine.getInstance(d_results);
+		final JointStatistics[] seen = new JointStatistics[1];
+		engine.addJointListener(new MCMCResultsListener() {
+			public void resultsEvent(MCMCResultsEvent event) {
+				seen[0] = engine.getJointStatistics(d_x, d_y);
+			}
+		}, true, d_x, d_y);
+		d_results.makeSamplesAvailable();
+		assertSame(seen[0], engine.getJointStatistics(d_x, d_y));
+
+		double[] x = SummaryUtil.getLastHalfSamples(d_results, d_x);
+		double[] y = SummaryUtil.getLastHalfSamples(d_results, d_y);
+		double[][] cov = seen[0].getCovariance();
+		assertEquals(new Variance().evaluate(x), cov[0][0], EPSILON);
+		assertEquals(new Covariance().covariance(x, y), cov[0][1], EPSILON);
+		assertEquals(new Covariance().covariance(x, y), cov[1][0], EPSILON);
+		assertEquals(new Variance().evaluate(y), cov[1][1], EPSILON);
+
+		int xGreater = 0;
+		int xRank1 = 0;
+		for (int i = 0; i < x.length; ++i) {
+			if (x[i] > y[i]) {
+				++xGreater;
+			}
+			if (x[i] < 0.0 && x[i] < y[i]) {
+				++xRank1;
+			}
+		}
+		assertEquals((double) xGreater / x.length, seen[0].getProbabilityGreater(0, 1), EPSILON);
+		assertEquals(1.0 - (double) xGreater / x.length, seen[0].getProbabilityGreater(1, 0), EPSILON);
+		assertEquals((double) xRank1 / x.length, seen[0].getRankProbability(1, 1), EPSILON);
+		double total = 0.0;
+		for (int r = 1; r <= 3; ++r) {
+			total += seen[0].getRankProbability(1, r);
+		}
+		assertEquals(1.0, total, EPSILON);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void testJointStatisticsWithoutRanks() {
+		SummaryEngine engine = SummaryEngine.getInstance(d_results);
+		d_results.makeSamplesAvailable();
+		assertFalse(engine.getJointStatistics(d_x, d_y).hasRanks());
+		engine.getJointStatistics(d_x, d_y).getRankProbability(0, 1);
+	}
+
+	@Test
+	public void testRemoveListener() {
+		final SummaryEngine engine = SummaryEngine.getInstance(d_results);
+		final int[] events = new int[1];
+		MCMCResultsListener listener = new MCMCResultsListener() {
+			public void resultsEvent(MCMCResultsEvent event) {
+				++events[0];
+			}
+		};
+		MCMCResultsListener other = new MCMCResultsListener() {
+			public void resultsEvent(MCMCResultsEvent event) {
+			}
+		};
+		engine.addQuantiles(d_x, 0.5);
+		engine.addQuantiles(d_y, 0.5);
+		engine.addListener(listener, d_x, d_y);
+		engine.addListener(other, d_y);
+		engine.removeListener(listener);
+		d_results.makeSamplesAvailable();
+		assertEquals(0, events[0]);
+		// d_x is no longer used: its quantiles were discarded, d_y is still in use
+		assertEquals(0, engine.getStatistics(d_x).getProbabilities().length);
+		assertEquals(1, engine.getStatistics(d_y).getProbabilities().length);
+	}
+}
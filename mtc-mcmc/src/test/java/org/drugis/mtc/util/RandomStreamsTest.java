@@ -0,0 +1,57 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.junit.Test;
+
+public class RandomStreamsTest {
+	private static final int N = 16;
+
+	private static double[] draw(RandomGenerator rng) {
+		double[] x = new double[N];
+		for (int i = 0; i < N; ++i) {
+			x[i] = rng.nextDouble();
+		}
+		return x;
+	}
+
+	@Test
+	public void testReproducible() {
+		assertArrayEquals(draw(new RandomStreams(42L).createStream(0)), draw(new RandomStreams(42L).createStream(0)), 0.0);
+		assertArrayEquals(draw(new RandomStreams(42L).createStream(3, 5)), draw(new RandomStreams(42L).createStream(3, 5)), 0.0);
+		assertArrayEquals(draw(RandomStreams.create(7L).createStream(1)), draw(new RandomStreams(7L).createStream(1)), 0.0);
+	}
+
+	@Test
+	public void testDistinctStreams() {
+		RandomStreams streams = new RandomStreams(42L);
+		double[] c0 = draw(streams.createStream(0));
+		assertFalse(Arrays.equals(c0, draw(streams.createStream(1))));
+		assertFalse(Arrays.equals(c0, draw(streams.createStream(0, 0))));
+		assertFalse(Arrays.equals(draw(streams.createStream(0, 0)), draw(streams.createStream(0, 1))));
+		assertFalse(Arrays.equals(c0, draw(new RandomStreams(43L).createStream(0))));
+	}
+}
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.DoubleBuffer;
 
 import org.drugis.mtc.MCMCResults;
 import org.drugis.mtc.Parameter;
@@ -87,6 +88,29 @@ public class WindowResultsTest {
 		}
 	}
 	
+	@Test
+	public void testBulkSamples() {
+		d_results = new WindowResults(d_fileResults, d_start, d_end);
+		double[] expected = new double[50];
+		System.arraycopy(getSamples(d_fileResults, 1, 2), 100, expected, 0, 50);
+
+		double[] bulk = new double[50];
+		d_results.getSamples(1, 2, 0, 50, bulk, 0);
+		assertArrayEquals(expected, bulk, 0.0);
+
+		DoubleBuffer buffer = d_results.getSampleBuffer(1, 2);
+		assertEquals(50, buffer.remaining());
+		double[] viewed = new double[50];
+		buffer.get(viewed);
+		assertArrayEquals(expected, viewed, 0.0);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testBulkSamplesOutOfBounds() {
+		d_results = new WindowResults(d_fileResults, d_start, d_end);
+		d_results.getSamples(1, 2, 0, 51, new double[51], 0);
+	}
+
 	@Test
 	public void testNChains() {
 		d_results = new WindowResults(d_fileResults, d_start, d_end);
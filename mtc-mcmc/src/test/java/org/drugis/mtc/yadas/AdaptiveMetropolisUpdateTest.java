@@ -0,0 +1,85 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.Collections;
+
+import org.apache.commons.math3.random.Well19937c;
+import org.junit.Test;
+
+public class AdaptiveMetropolisUpdateTest {
+	/**
+	 * Bivariate normal with unit variances and correlation RHO, scaled by SCALE.
+	 */
+	private static final double RHO = 0.95;
+	private static final double SCALE = 3.0;
+
+	private static class CorrelatedGaussianBond extends LogDensityBond {
+		private final MCMCParameter d_param;
+
+		public CorrelatedGaussianBond(MCMCParameter param) {
+			d_param = param;
+			initialize();
+		}
+
+		@Override
+		protected double logDensity() {
+			double x = d_param.getValue(0) / SCALE;
+			double y = d_param.getValue(1) / SCALE;
+			return -0.5 * (x * x - 2 * RHO * x * y + y * y) / (1 - RHO * RHO);
+		}
+	}
+
+	@Test
+	public void testTargetDistribution() {
+		MCMCParameter param = new MCMCParameter(new double[] { 1.0, -1.0 }, new double[] { 0.1, 0.1 }, null);
+		AdaptiveMetropolisUpdate update = new AdaptiveMetropolisUpdate(param,
+				Collections.singletonList(new CorrelatedGaussianBond(param)), new Well19937c(31));
+
+		for (int i = 0; i < 5000; ++i) {
+			update.update();
+		}
+		final int n = 100000;
+		double sx = 0.0, sy = 0.0, sxx = 0.0, syy = 0.0, sxy = 0.0;
+		for (int i = 0; i < n; ++i) {
+			update.update();
+			final double x = param.getValue(0);
+			final double y = param.getValue(1);
+			sx += x; sy += y; sxx += x * x; syy += y * y; sxy += x * y;
+		}
+		final double mx = sx / n;
+		final double my = sy / n;
+		final double vx = sxx / n - mx * mx;
+		final double vy = syy / n - my * my;
+		assertEquals(0.0, mx, 0.2 * SCALE);
+		assertEquals(0.0, my, 0.2 * SCALE);
+		assertEquals(SCALE * SCALE, vx, 0.15 * SCALE * SCALE);
+		assertEquals(SCALE * SCALE, vy, 0.15 * SCALE * SCALE);
+		assertEquals(RHO, (sxy / n - mx * my) / Math.sqrt(vx * vy), 0.02);
+
+		// The learned proposal should give a reasonable acceptance rate, where the fixed one would not
+		assertTrue(update.getAcceptanceRate() > 0.15);
+		assertTrue(update.getAcceptanceRate() < 0.7);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.math3.random.Well19937c;
+import org.drugis.mtc.model.Treatment;
+import org.junit.Test;
+
+import edu.uci.ics.jung.graph.util.Pair;
+
+public class BaselineGibbsUpdateTest {
+	private static class CountingBond implements MCMCBond {
+		int d_revised = 0;
+
+		public double compute() {
+			return 0.0;
+		}
+
+		public void revise() {
+			++d_revised;
+		}
+
+		public void reject() {
+		}
+	}
+
+	@Test
+	public void testFullConditional() {
+		Treatment ta = new Treatment("A");
+		Treatment tb = new Treatment("B");
+		List<List<Pair<Treatment>>> pmtz = Collections.singletonList(
+				Collections.singletonList(new Pair<Treatment>(ta, tb)));
+		MCMCParameter mu = new MCMCParameter(new double[] {0.0}, new double[] {0.1}, null);
+		MCMCParameter delta = new MCMCParameter(new double[] {0.5}, new double[] {0.1}, null);
+		double[] obsMean = {1.2, 1.5};
+		double[] stdErr = {0.2, 0.4};
+		double priorSigma = 1.0;
+		CountingBond bond = new CountingBond();
+
+		BaselineGibbsUpdate update = new BaselineGibbsUpdate(mu, new MCMCParameter[] {mu, delta},
+				new ThetaArgumentMaker(Arrays.asList(ta, tb), pmtz, 0, 1), obsMean, stdErr, priorSigma,
+				Collections.singletonList(bond), new Well19937c(17));
+
+		// precision 1 + 25 + 6.25, mean (25 * 1.2 + 6.25 * (1.5 - 0.5)) / precision
+		final double precision = 1 + 25 + 6.25;
+		final double expectedMean = (25 * 1.2 + 6.25 * 1.0) / precision;
+		final int n = 50000;
+		double sum = 0.0;
+		double sumSq = 0.0;
+		for (int i = 0; i < n; ++i) {
+			update.update();
+			sum += mu.getValue(0);
+			sumSq += mu.getValue(0) * mu.getValue(0);
+		}
+		final double mean = sum / n;
+		assertEquals(expectedMean, mean, 0.01 / Math.sqrt(precision));
+		assertEquals(1 / precision, sumSq / n - mean * mean, 0.02 / precision);
+		assertEquals(n, bond.d_revised);
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.math3.random.Well19937c;
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.ConsistencyParameterization;
+import org.junit.Test;
+
+public class BasicParameterGibbsUpdateTest {
+	@Test
+	public void testThreeArmStudy() {
+		Treatment ta = new Treatment("A");
+		Treatment tb = new Treatment("B");
+		Treatment tc = new Treatment("C");
+		Study study = new Study("1");
+		study.getMeasurements().addAll(Arrays.asList(new Measurement(ta), new Measurement(tb), new Measurement(tc)));
+		Network network = new Network();
+		network.getTreatments().addAll(Arrays.asList(ta, tb, tc));
+		network.getStudies().add(study);
+		ConsistencyParameterization pmtz = ConsistencyParameterization.create(network);
+
+		// the relative effects map one-to-one onto the basic parameters
+		double[] d = {0.4, 1.1};
+		RelativeEffectArgumentMaker maker = new RelativeEffectArgumentMaker(pmtz, study, 0, -1);
+		double[] e1 = maker.getArgument(new double[][] { {1.0, 0.0} }).clone();
+		double[] e2 = maker.getArgument(new double[][] { {0.0, 1.0} }).clone();
+		double[] deltaValue = { e1[0] * d[0] + e2[0] * d[1], e1[1] * d[0] + e2[1] * d[1] };
+
+		MCMCParameter basic = new MCMCParameter(new double[] {0.0, 0.0}, new double[] {0.1, 0.1}, null);
+		MCMCParameter delta = new MCMCParameter(deltaValue, new double[] {0.1, 0.1}, null);
+		MCMCParameter sigma = new MCMCParameter(new double[] {0.5}, new double[] {0.1}, null);
+		double priorSigma = 2.0;
+
+		BasicParameterGibbsUpdate update = new BasicParameterGibbsUpdate(pmtz, network.getStudies(), 2, priorSigma,
+				basic, Collections.singletonList(delta), sigma, null, Collections.<MCMCBond>emptyList(), new Well19937c(5));
+
+		// Q = I / 4 + inv(S) / 0.25, with inv(S) = [[4, -2], [-2, 4]] / 3 ; mean = inv(Q) inv(S) d / 0.25
+		final double a = 0.25 + 16.0 / 3;
+		final double b = -8.0 / 3;
+		final double det = a * a - b * b;
+		final double r0 = (16.0 * d[0] - 8.0 * d[1]) / 3;
+		final double r1 = (16.0 * d[1] - 8.0 * d[0]) / 3;
+		final double[] expectedMean = { (a * r0 - b * r1) / det, (a * r1 - b * r0) / det };
+		final double expectedVar = a / det;
+		final double expectedCov = -b / det;
+
+		final int n = 50000;
+		double s0 = 0.0, s1 = 0.0, s00 = 0.0, s01 = 0.0;
+		for (int i = 0; i < n; ++i) {
+			update.update();
+			s0 += basic.getValue(0);
+			s1 += basic.getValue(1);
+			s00 += basic.getValue(0) * basic.getValue(0);
+			s01 += basic.getValue(0) * basic.getValue(1);
+		}
+		final double m0 = s0 / n;
+		final double m1 = s1 / n;
+		assertEquals(expectedMean[0], m0, 0.01);
+		assertEquals(expectedMean[1], m1, 0.01);
+		assertEquals(expectedVar, s00 / n - m0 * m0, 0.05 * expectedVar);
+		assertEquals(expectedCov, s01 / n - m0 * m1, 0.05 * expectedVar);
+	}
+}
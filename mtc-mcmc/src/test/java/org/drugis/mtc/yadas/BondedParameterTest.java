@@ -0,0 +1,64 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import gov.lanl.yadas.ArgumentMaker;
+import gov.lanl.yadas.BasicMCMCBond;
+import gov.lanl.yadas.ConstantArgument;
+import gov.lanl.yadas.Gaussian;
+import gov.lanl.yadas.IdentityArgument;
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class BondedParameterTest {
+	private static MCMCBond gaussianBond(MCMCParameter x, MCMCParameter mu) {
+		return new BasicMCMCBond(
+				new MCMCParameter[] {x, mu},
+				new ArgumentMaker[] {
+					new IdentityArgument(0),
+					new IdentityArgument(1),
+					new ConstantArgument(1.0)
+				},
+				new Gaussian());
+	}
+
+	@Test
+	public void testBondsRegister() {
+		BondedParameter x = new BondedParameter(new double[] {0.0}, new double[] {0.1}, null);
+		BondedParameter mu = new BondedParameter(new double[] {0.0}, new double[] {0.1}, null);
+		assertEquals(Collections.emptyList(), x.getBonds());
+
+		MCMCBond b1 = gaussianBond(x, mu);
+		MCMCBond b2 = gaussianBond(x, new MCMCParameter(new double[] {1.0}, new double[] {0.1}, null));
+		assertEquals(Arrays.asList(b1, b2), x.getBonds());
+		assertEquals(Arrays.asList(b1), mu.getBonds());
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testBondsUnmodifiable() {
+		new BondedParameter(new double[] {0.0}, new double[] {0.1}, null).getBonds().add(null);
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.math3.random.Well19937c;
+import org.junit.Test;
+
+public class ComponentMetropolisUpdateTest {
+	/**
+	 * Standard normal density of one component, counting the evaluations.
+	 */
+	private static class ComponentBond extends LogDensityBond {
+		private final MCMCParameter d_param;
+		private final int d_component;
+		private int d_computed = 0;
+
+		public ComponentBond(MCMCParameter param, int component) {
+			d_param = param;
+			d_component = component;
+			initialize();
+		}
+
+		@Override
+		protected double logDensity() {
+			final double x = d_param.getValue(d_component);
+			return -0.5 * x * x;
+		}
+
+		@Override
+		public double compute() {
+			++d_computed;
+			return super.compute();
+		}
+	}
+
+	private MCMCParameter d_param;
+	private List<ComponentBond> d_bonds;
+
+	private void setUp() {
+		d_param = new MCMCParameter(new double[] {0.5, -0.5, 1.0}, new double[] {0.1, 0.1, 0.1}, null);
+		d_bonds = Arrays.asList(new ComponentBond(d_param, 0), new ComponentBond(d_param, 1), new ComponentBond(d_param, 2));
+	}
+
+	private BondDependencies dependencies() {
+		BondDependencies dependencies = new BondDependencies(3);
+		for (int i = 0; i < 3; ++i) {
+			dependencies.add(d_bonds.get(i), Collections.singleton(i));
+		}
+		return dependencies;
+	}
+
+	@Test
+	public void testOnlyDependentBondsComputed() {
+		setUp();
+		ComponentMetropolisUpdate update = new ComponentMetropolisUpdate(d_param, dependencies(), 1.0, 100, new Well19937c(7));
+		for (int i = 0; i < 10; ++i) {
+			update.update();
+		}
+		for (ComponentBond bond : d_bonds) {
+			assertEquals(10, bond.d_computed);
+		}
+
+		setUp();
+		update = new ComponentMetropolisUpdate(d_param, d_bonds, 1.0, 100, new Well19937c(7));
+		for (int i = 0; i < 10; ++i) {
+			update.update();
+		}
+		for (ComponentBond bond : d_bonds) {
+			assertEquals(30, bond.d_computed);
+		}
+	}
+
+	@Test
+	public void testSameChainAsAllBonds() {
+		setUp();
+		ComponentMetropolisUpdate sparse = new ComponentMetropolisUpdate(d_param, dependencies(), 1.0, 500, new Well19937c(11));
+		MCMCParameter sparseParam = d_param;
+		setUp();
+		ComponentMetropolisUpdate dense = new ComponentMetropolisUpdate(d_param, d_bonds, 1.0, 500, new Well19937c(11));
+
+		for (int i = 0; i < 1000; ++i) {
+			sparse.update();
+			dense.update();
+		}
+		for (int i = 0; i < 3; ++i) {
+			assertEquals(d_param.getValue(i), sparseParam.getValue(i), 0.0);
+			assertEquals(dense.getStep(i), sparse.getStep(i), 0.0);
+		}
+	}
+
+	@Test
+	public void testStationary() {
+		MCMCParameter param = new MCMCParameter(new double[] {3.0}, new double[] {0.1}, null);
+		ComponentMetropolisUpdate update = new ComponentMetropolisUpdate(param,
+				Collections.singletonList(new ComponentBond(param, 0)), 0.1, 2000, new Well19937c(5));
+
+		for (int i = 0; i < 2000; ++i) {
+			update.update();
+		}
+		// the step size adapts to the scale of the target, and then stays fixed
+		final double step = update.getStep(0);
+		assertTrue(step > 1.0 && step < 10.0);
+
+		final int n = 100000;
+		double sum = 0.0;
+		double sumSq = 0.0;
+		for (int i = 0; i < n; ++i) {
+			update.update();
+			sum += param.getValue(0);
+			sumSq += param.getValue(0) * param.getValue(0);
+		}
+		final double mean = sum / n;
+		assertEquals(0.0, mean, 0.03);
+		assertEquals(1.0, sumSq / n - mean * mean, 0.03);
+		assertEquals(step, update.getStep(0), 0.0);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDimensionMismatch() {
+		setUp();
+		new ComponentMetropolisUpdate(d_param, new BondDependencies(2), 1.0, 100, new Well19937c(7));
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import gov.lanl.yadas.ArgumentMaker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.drugis.mtc.model.Treatment;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.jung.graph.util.Pair;
+
+public class CompoundSymmetricGaussianTest {
+	private static final double EPSILON = 0.000000001;
+
+	private Treatment d_ta;
+	private Treatment d_tb;
+	private Treatment d_tc;
+	private Treatment d_td;
+
+	@Before
+	public void setUp() {
+		d_ta = new Treatment("A");
+		d_tb = new Treatment("B");
+		d_tc = new Treatment("C");
+		d_td = new Treatment("D");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testThreeArm() {
+		List<List<Pair<Treatment>>> pmtz = Collections.singletonList(Arrays.asList(
+				new Pair<Treatment>(d_ta, d_tb), new Pair<Treatment>(d_ta, d_tc)));
+		double[] x = {0.5, -0.3};
+		double[] mu = {0.1, 0.2};
+
+		assertEquals(expected(pmtz, x, mu, 0.8), CompoundSymmetricGaussian.create(pmtz).compute(x, mu, 0.8), EPSILON);
+		assertEquals(expected(pmtz, x, mu, 2.0), CompoundSymmetricGaussian.create(pmtz).compute(x, mu, 2.0), EPSILON);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testFourArm() {
+		List<List<Pair<Treatment>>> pmtz = Collections.singletonList(Arrays.asList(
+				new Pair<Treatment>(d_ta, d_tb), new Pair<Treatment>(d_ta, d_tc), new Pair<Treatment>(d_ta, d_td)));
+		double[] x = {0.5, -0.3, 1.2};
+		double[] mu = {0.1, 0.2, -0.4};
+
+		assertEquals(expected(pmtz, x, mu, 0.3), CompoundSymmetricGaussian.create(pmtz).compute(x, mu, 0.3), EPSILON);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSplitBlocks() {
+		List<List<Pair<Treatment>>> pmtz = Arrays.asList(
+				Arrays.asList(new Pair<Treatment>(d_ta, d_tb), new Pair<Treatment>(d_ta, d_tc)),
+				Collections.singletonList(new Pair<Treatment>(d_ta, d_td)));
+		double[] x = {0.5, -0.3, 1.2};
+		double[] mu = {0.1, 0.2, -0.4};
+
+		assertEquals(expected(pmtz, x, mu, 1.3), CompoundSymmetricGaussian.create(pmtz).compute(x, mu, 1.3), EPSILON);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCompute() {
+		List<List<Pair<Treatment>>> pmtz = Collections.singletonList(Arrays.asList(
+				new Pair<Treatment>(d_ta, d_tb), new Pair<Treatment>(d_ta, d_tc)));
+		double[] x = {0.5, -0.3};
+		double[] mu = {0.1, 0.2};
+		double[][] input = { x, mu, {0.8} };
+
+		assertEquals(expected(pmtz, x, mu, 0.8), CompoundSymmetricGaussian.create(pmtz).compute(input), EPSILON);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testGradient() {
+		List<List<Pair<Treatment>>> pmtz = Arrays.asList(
+				Arrays.asList(new Pair<Treatment>(d_ta, d_tb), new Pair<Treatment>(d_ta, d_tc)),
+				Collections.singletonList(new Pair<Treatment>(d_ta, d_td)));
+		CompoundSymmetricGaussian density = CompoundSymmetricGaussian.create(pmtz);
+		double[] x = {0.5, -0.3, 1.2};
+		double[] mu = {0.1, 0.2, -0.4};
+		double sd = 1.3;
+
+		double[] xGradient = {0.0, 0.0, 0.0};
+		double[] sdGradient = {0.0};
+		double f = density.compute(x, mu, sd, xGradient, sdGradient);
+		assertEquals(density.compute(x, mu, sd), f, EPSILON);
+
+		final double h = 1E-6;
+		for (int i = 0; i < x.length; ++i) {
+			double[] xh = x.clone();
+			xh[i] += h;
+			assertEquals((density.compute(xh, mu, sd) - f) / h, xGradient[i], 1E-5);
+		}
+		assertEquals((density.compute(x, mu, sd + h) - f) / h, sdGradient[0], 1E-5);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testDimensionMismatch() {
+		new CompoundSymmetricGaussian(new int[] {2}).compute(new double[] {0.0}, new double[] {0.0}, 1.0);
+	}
+
+	/**
+	 * The density according to the full var/covar matrix.
+	 */
+	private double expected(List<List<Pair<Treatment>>> pmtz, double[] x, double[] mu, double sd) {
+		double[][] data = new double[][] { {sd} };
+		List<ArgumentMaker> makers = SigmaRowArgumentMaker.createMatrixArgumentMaker(pmtz, 0);
+		double[][] sigma = new double[makers.size()][];
+		for (int i = 0; i < sigma.length; ++i) {
+			sigma[i] = makers.get(i).getArgument(data);
+		}
+		return new MultivariateGaussian().compute(x, mu, sigma);
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.BasicParameter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DerivationMatrixTest {
+	private static final int N = 2500; // spans several evaluation blocks
+	private static final double EPSILON = 0.0000001;
+
+	private YadasResults d_results;
+	private Derivation[] d_derivations;
+	private Map<Parameter, Derivation> d_derived;
+
+	@Before
+	public void setUp() {
+		Treatment ta = new Treatment("A");
+		Treatment tb = new Treatment("B");
+		Treatment tc = new Treatment("C");
+		Treatment td = new Treatment("D");
+		BasicParameter ab = new BasicParameter(ta, tb);
+		BasicParameter bc = new BasicParameter(tb, tc);
+		BasicParameter cd = new BasicParameter(tc, td);
+
+		Map<Parameter, Integer> ac = new HashMap<Parameter, Integer>();
+		ac.put(ab, 1);
+		ac.put(bc, 1);
+		Map<Parameter, Integer> db = new HashMap<Parameter, Integer>();
+		db.put(bc, -1);
+		db.put(cd, -1);
+		d_derivations = new Derivation[] { new Derivation(ac), new Derivation(db) };
+		Map<Parameter, Derivation> derived = new HashMap<Parameter, Derivation>();
+		derived.put(new BasicParameter(ta, tc), d_derivations[0]);
+		derived.put(new BasicParameter(td, tb), d_derivations[1]);
+
+		d_results = new YadasResults();
+		d_results.setNumberOfChains(1);
+		d_results.setNumberOfIterations(N);
+		d_results.setDirectParameters(Arrays.<Parameter>asList(ab, bc, cd));
+		d_results.setDerivedParameters(derived);
+		d_derived = derived;
+
+		MCMCParameter mcmcParam = new MCMCParameter(new double[3], new double[3], "name");
+		ParameterWriter[] writers = {
+			d_results.getParameterWriter(ab, 0, mcmcParam, 0),
+			d_results.getParameterWriter(bc, 0, mcmcParam, 1),
+			d_results.getParameterWriter(cd, 0, mcmcParam, 2) };
+		for (int i = 0; i < N; ++i) {
+			mcmcParam.setValue(new double[] { i, 0.5 * i, Math.sin(i) });
+			for (ParameterWriter w : writers) {
+				w.output();
+			}
+		}
+		d_results.simulationFinished();
+	}
+
+	private double expected(int row, int i) {
+		return row == 0 ? 1.5 * i : -0.5 * i - Math.sin(i);
+	}
+
+	@Test
+	public void testSingleSample() {
+		DerivationMatrix matrix = new DerivationMatrix(d_derivations, d_results);
+		assertEquals(2, matrix.getRowCount());
+		assertEquals(expected(0, 7), matrix.calculate(0, d_results, 0, 7), EPSILON);
+		assertEquals(expected(1, 7), matrix.calculate(1, d_results, 0, 7), EPSILON);
+	}
+
+	@Test
+	public void testRowRange() {
+		DerivationMatrix matrix = new DerivationMatrix(d_derivations, d_results);
+		double[] dst = new double[N];
+		matrix.calculate(1, d_results, 0, 3, N, dst, 2);
+		for (int i = 3; i < N; ++i) {
+			assertEquals(expected(1, i), dst[i - 1], EPSILON);
+		}
+		assertArrayEquals(d_derivations[1].calculate(d_results, 0), fullRow(matrix, 1), EPSILON);
+	}
+
+	@Test
+	public void testBlock() {
+		DerivationMatrix matrix = new DerivationMatrix(d_derivations, d_results);
+		double[][] dst = new double[2][N - 10];
+		matrix.calculate(d_results, 0, 10, N, dst);
+		for (int row = 0; row < 2; ++row) {
+			for (int i = 10; i < N; ++i) {
+				assertEquals(expected(row, i), dst[row][i - 10], EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testResultsDerivedSamples() {
+		double[][] dst = new double[2][N];
+		d_results.getDerivedSamples(0, 0, N, dst);
+		for (int j = 0; j < 2; ++j) {
+			int p = d_results.getParameters().length + j;
+			for (int i = 0; i < N; i += 97) {
+				assertEquals(d_results.getSample(p, 0, i), dst[j][i], EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testDerivedSeriesCache() {
+		final int nDirect = d_results.getParameters().length;
+		d_results.setDerivedCacheSize(0);
+		double[][] uncached = new double[2][N];
+		d_results.getSamples(nDirect, 0, 0, N, uncached[0], 0);
+		d_results.getSamples(nDirect + 1, 0, 0, N, uncached[1], 0);
+
+		// all derived series fit: they are calculated together
+		d_results.setDerivedCacheSize(2);
+		for (int j = 0; j < 2; ++j) {
+			for (int i = 0; i < N; i += 97) {
+				assertEquals(uncached[j][i], d_results.getSample(nDirect + j, 0, i), EPSILON);
+			}
+		}
+
+		// one at a time
+		d_results.setDerivedCacheSize(1);
+		for (int j = 0; j < 2; ++j) {
+			for (int i = 0; i < N; i += 97) {
+				assertEquals(uncached[j][i], d_results.getSample(nDirect + j, 0, i), EPSILON);
+			}
+		}
+	}
+
+	/**
+	 * Counts the direct samples read in bulk, i.e. by the derivations.
+	 */
+	private static class CountingStore implements SampleStore {
+		private final SampleStore d_store;
+		private long d_read = 0;
+
+		public CountingStore(SampleStore store) {
+			d_store = store;
+		}
+
+		public int getCapacity() {
+			return d_store.getCapacity();
+		}
+
+		public void reserve(int capacity) {
+			d_store.reserve(capacity);
+		}
+
+		public double get(int c, int p, int i) {
+			return d_store.get(c, p, i);
+		}
+
+		public void set(int c, int p, int i, double value) {
+			d_store.set(c, p, i, value);
+		}
+
+		public void get(int c, int p, int from, int to, double[] dst, int offset) {
+			d_read += to - from;
+			d_store.get(c, p, from, to, dst, offset);
+		}
+
+		public DoubleBuffer getBuffer(int c, int p, int n) {
+			return d_store.getBuffer(c, p, n);
+		}
+
+		public void dispose() {
+			d_store.dispose();
+		}
+	}
+
+	@Test
+	public void testDerivedSeriesCacheMultipleChains() {
+		final CountingStore[] store = new CountingStore[1];
+		YadasResults results = new YadasResults(new SampleStore.Factory() {
+			public SampleStore create(int nChains, int nParameters) {
+				store[0] = new CountingStore(SegmentedSampleStore.FACTORY.create(nChains, nParameters));
+				return store[0];
+			}
+		});
+		results.setNumberOfChains(2);
+		results.setNumberOfIterations(N);
+		results.setDirectParameters(Arrays.asList(d_results.getParameters()));
+		results.setDerivedParameters(d_derived);
+		results.simulationFinished();
+		final int nDirect = results.getParameters().length;
+
+		// all series of all chains fit: each chain's direct samples are read once
+		results.setDerivedCacheSize(4);
+		store[0].d_read = 0;
+		readDerivedSeries(results, nDirect);
+		assertEquals(2 * 3 * N, store[0].d_read);
+		readDerivedSeries(results, nDirect);
+		assertEquals(2 * 3 * N, store[0].d_read);
+
+		// only the requested series are calculated: two direct columns each
+		results.setDerivedCacheSize(2);
+		store[0].d_read = 0;
+		readDerivedSeries(results, nDirect);
+		assertEquals(4 * 2 * N, store[0].d_read);
+	}
+
+	private void readDerivedSeries(YadasResults results, int nDirect) {
+		for (int j = 0; j < d_derivations.length; ++j) {
+			for (int c = 0; c < results.getNumberOfChains(); ++c) {
+				results.getSampleBuffer(nDirect + j, c);
+			}
+		}
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testResultsDerivedSamplesChainOutOfBounds() {
+		d_results.getDerivedSamples(1, 0, N, new double[2][N]);
+	}
+
+	private double[] fullRow(DerivationMatrix matrix, int row) {
+		double[] dst = new double[N];
+		matrix.calculate(row, d_results, 0, 0, N, dst, 0);
+		return dst;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
+import org.junit.Test;
+
+public class IterationPlannerTest {
+	@Test
+	public void testPlanThinning() {
+		assertEquals(1, IterationPlanner.planThinning(0.7));
+		assertEquals(1, IterationPlanner.planThinning(1.0));
+		assertEquals(5, IterationPlanner.planThinning(4.2));
+	}
+
+	@Test
+	public void testPlanIterations() {
+		assertEquals(2500, IterationPlanner.planIterations(5.0, 1000, 4, 5));
+		assertEquals(3500, IterationPlanner.planIterations(7.0, 1000, 4, 7));
+		assertEquals(4200, IterationPlanner.planIterations(7.0, 1100, 4, 7));
+		assertEquals(100, IterationPlanner.planIterations(1.0, 10, 4, 1));
+	}
+
+	@Test
+	public void testRoundIterations() {
+		assertEquals(700, IterationPlanner.getIterationStep(7));
+		assertEquals(100, IterationPlanner.getIterationStep(4));
+		assertEquals(10000, IterationPlanner.roundIterations(10000, 4));
+		assertEquals(10500, IterationPlanner.roundIterations(10000, 7));
+		assertEquals(0, IterationPlanner.roundIterations(0, 7));
+	}
+
+	@Test
+	public void testAutocorrelationTime() {
+		final double phi = 0.8;
+		final int nChains = 3;
+		final int nSamples = 20000;
+		RandomGenerator rng = new Well19937c(42);
+		IterationPlanner planner = new IterationPlanner(nChains, 2, nSamples);
+		for (int c = 0; c < nChains; ++c) {
+			MCMCParameter param = new MCMCParameter(new double[] { 0.0, 0.0 }, new double[] { 0.1, 0.1 }, null);
+			List<ParameterWriter> writers = new ArrayList<ParameterWriter>();
+			for (int i = 0; i < 2; ++i) {
+				writers.add(new ParameterWriter(param, i) {
+					@Override
+					protected void write(double value) {
+					}
+				});
+			}
+			double x = 0.0;
+			for (int i = 0; i < nSamples + 10; ++i) { // the excess is ignored
+				x = phi * x + rng.nextGaussian();
+				param.setValue(new double[] { rng.nextGaussian(), x });
+				planner.record(c, writers);
+			}
+		}
+		final double expected = (1 + phi) / (1 - phi);
+		assertEquals(expected, planner.getAutocorrelationTime(), 0.15 * expected);
+	}
+}
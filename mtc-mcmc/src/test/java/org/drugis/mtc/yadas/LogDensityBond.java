@@ -0,0 +1,56 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import gov.lanl.yadas.MCMCBond;
+
+/**
+ * Test bond with an explicit log density of the current parameter values.
+ * compute() returns the change in log density since the last accepted state.
+ * Subclasses call initialize() once their fields are set.
+ */
+public abstract class LogDensityBond implements MCMCBond {
+	private double d_current;
+	private double d_new;
+
+	/**
+	 * The log density of the current parameter values.
+	 */
+	protected abstract double logDensity();
+
+	/**
+	 * Evaluate the log density of the initial state.
+	 */
+	protected final void initialize() {
+		d_current = logDensity();
+	}
+
+	public double compute() {
+		d_new = logDensity();
+		return d_new - d_current;
+	}
+
+	public void revise() {
+		d_current = d_new;
+	}
+
+	public void reject() {
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.BasicParameter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedSampleStoreTest {
+	private File d_directory;
+	private MappedSampleStore d_store;
+
+	@Before
+	public void setUp() throws IOException {
+		d_directory = File.createTempFile("mapped", "");
+		d_directory.delete();
+		d_directory.mkdir();
+		d_store = new MappedSampleStore(d_directory, 2, 3, 2); // blocks of 4 samples
+	}
+
+	@After
+	public void tearDown() {
+		d_store.dispose();
+		for (File f : d_directory.listFiles()) {
+			f.delete();
+		}
+		d_directory.delete();
+	}
+
+	private void fill(int from, int to) {
+		for (int i = from; i < to; ++i) {
+			d_store.set(1, 2, i, i);
+			d_store.set(1, 0, i, -i);
+		}
+	}
+
+	@Test
+	public void testOneFilePerChain() {
+		assertEquals(2, d_directory.listFiles().length);
+		d_store.dispose();
+		assertEquals(0, d_directory.listFiles().length);
+	}
+
+	@Test
+	public void testGrowPreservesSamples() {
+		d_store.reserve(6);
+		fill(0, 6);
+		d_store.reserve(15);
+		fill(6, 15);
+		assertEquals(15, d_store.getCapacity());
+		for (int i = 0; i < 15; ++i) {
+			assertEquals(i, d_store.get(1, 2, i), 0.0);
+			assertEquals(-i, d_store.get(1, 0, i), 0.0);
+			assertEquals(0.0, d_store.get(0, 2, i), 0.0);
+		}
+	}
+
+	@Test
+	public void testBulkGet() {
+		d_store.reserve(12);
+		fill(0, 12);
+		double[] dst = new double[9];
+		d_store.get(1, 2, 3, 11, dst, 1);
+		assertArrayEquals(new double[] {0, 3, 4, 5, 6, 7, 8, 9, 10}, dst, 0.0);
+	}
+
+	@Test
+	public void testBuffer() {
+		d_store.reserve(12);
+		fill(0, 12);
+		DoubleBuffer single = d_store.getBuffer(1, 2, 3);
+		assertEquals(3, single.remaining());
+		assertEquals(2.0, single.get(2), 0.0);
+		assertTrue(single.isReadOnly());
+		DoubleBuffer multi = d_store.getBuffer(1, 0, 10);
+		assertEquals(10, multi.remaining());
+		assertEquals(-9.0, multi.get(9), 0.0);
+	}
+
+	@Test
+	public void testMappedYadasResults() {
+		Treatment ta = new Treatment("A");
+		Parameter param = new BasicParameter(ta, new Treatment("B"));
+		MappedYadasResults results = new MappedYadasResults(d_directory);
+		results.setNumberOfChains(1);
+		results.setNumberOfIterations(10);
+		results.setDirectParameters(Arrays.<Parameter>asList(param));
+
+		MCMCParameter mcmcParam = new MCMCParameter(new double[] {0.0}, new double[] {0.1}, "name");
+		ParameterWriter writer = results.getParameterWriter(param, 0, mcmcParam, 0);
+		for (int i = 0; i < 10; ++i) {
+			mcmcParam.setValue(new double[] {i});
+			writer.output();
+		}
+		results.setNumberOfIterations(20);
+		for (int i = 10; i < 20; ++i) {
+			mcmcParam.setValue(new double[] {i});
+			writer.output();
+		}
+		results.simulationFinished();
+
+		assertEquals(20, results.getNumberOfSamples());
+		for (int i = 0; i < 20; ++i) {
+			assertEquals(i, results.getSample(0, 0, i), 0.0);
+		}
+		results.clear();
+		assertFalse(results.getNumberOfSamples() > 0);
+	}
+}
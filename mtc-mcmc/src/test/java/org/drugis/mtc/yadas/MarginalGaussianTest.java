@@ -0,0 +1,141 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.ConsistencyParameterization;
+import org.drugis.mtc.parameterization.NetworkModel;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.jung.graph.util.Pair;
+
+public class MarginalGaussianTest {
+	private static final double EPSILON = 0.000000001;
+
+	private Treatment d_ta;
+	private Treatment d_tb;
+	private Treatment d_tc;
+
+	@Before
+	public void setUp() {
+		d_ta = new Treatment("A");
+		d_tb = new Treatment("B");
+		d_tc = new Treatment("C");
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testStar() {
+		List<List<Pair<Treatment>>> pmtz = Collections.singletonList(Arrays.asList(
+				new Pair<Treatment>(d_ta, d_tb), new Pair<Treatment>(d_ta, d_tc)));
+		double[] se = {0.3, 0.2, 0.5};
+		double[] x = {1.0, 1.4, 0.3};
+		double[] mu = {0.8, 1.1, 0.9};
+		double sd = 0.7;
+		double var = sd * sd;
+		double[][] sigma = {
+				{ se[0] * se[0], 0.0, 0.0 },
+				{ 0.0, se[1] * se[1] + var, var / 2 },
+				{ 0.0, var / 2, se[2] * se[2] + var } };
+
+		MarginalGaussian density = MarginalGaussian.create(Arrays.asList(d_ta, d_tb, d_tc), pmtz, se);
+		assertEquals(new MultivariateGaussian().compute(x, mu, sigma), density.compute(x, mu, sd), EPSILON);
+		assertEquals(new MultivariateGaussian().compute(x, mu, sigma), density.compute(new double[][] {x, mu, {sd}}), EPSILON);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testChain() {
+		// theta_C = mu + delta_AB + delta_BC, so var(theta_C) = 2 var + 2 cov
+		List<List<Pair<Treatment>>> pmtz = Collections.singletonList(Arrays.asList(
+				new Pair<Treatment>(d_ta, d_tb), new Pair<Treatment>(d_tb, d_tc)));
+		double[] se = {0.3, 0.2, 0.5};
+		double[] x = {1.0, 1.4, 0.3};
+		double[] mu = {0.8, 1.1, 0.9};
+		double sd = 0.7;
+		double var = sd * sd;
+		double[][] sigma = {
+				{ se[0] * se[0], 0.0, 0.0 },
+				{ 0.0, se[1] * se[1] + var, 1.5 * var },
+				{ 0.0, 1.5 * var, se[2] * se[2] + 3 * var } };
+
+		MarginalGaussian density = MarginalGaussian.create(Arrays.asList(d_ta, d_tb, d_tc), pmtz, se);
+		assertEquals(new MultivariateGaussian().compute(x, mu, sigma), density.compute(x, mu, sd), EPSILON);
+	}
+
+	@Test
+	public void testIntegratesOutRandomEffect() {
+		// two-arm study: integrate N(x_B; mu + delta, se_B) N(delta; d, sd) over delta numerically
+		List<List<Pair<Treatment>>> pmtz = Collections.singletonList(
+				Collections.singletonList(new Pair<Treatment>(d_ta, d_tb)));
+		double[] se = {0.3, 0.4};
+		double[] x = {1.0, 1.9};
+		double mu = 0.9;
+		double d = 0.5;
+		double sd = 0.6;
+
+		double integral = 0.0;
+		double h = 0.001;
+		for (double delta = d - 10 * sd; delta < d + 10 * sd; delta += h) {
+			integral += h * normal(x[1], mu + delta, se[1]) * normal(delta, d, sd);
+		}
+		double expected = Math.log(normal(x[0], mu, se[0]) * integral);
+
+		MarginalGaussian density = MarginalGaussian.create(Arrays.asList(d_ta, d_tb), pmtz, se);
+		assertEquals(expected, density.compute(x, new double[] {mu, mu + d}, sd), 0.000001);
+	}
+
+	@Test
+	public void testMarginalThetaArgumentMaker() {
+		Study study = new Study("1");
+		study.getMeasurements().addAll(Arrays.asList(new Measurement(d_ta), new Measurement(d_tb), new Measurement(d_tc)));
+		Network network = new Network();
+		network.getTreatments().addAll(Arrays.asList(d_ta, d_tb, d_tc));
+		network.getStudies().add(study);
+		ConsistencyParameterization pmtz = ConsistencyParameterization.create(network);
+
+		double[] basic = new double[pmtz.getParameters().size()];
+		for (int i = 0; i < basic.length; ++i) {
+			basic[i] = 0.5 * (i + 1);
+		}
+		double[][] data = { {2.0}, basic };
+		double[] d = new RelativeEffectArgumentMaker(pmtz, study, 1, -1).getArgument(data);
+		double[] expected = new ThetaArgumentMaker(NetworkModel.getTreatments(study), pmtz.parameterizeStudy(study), 0, 1)
+			.getArgument(new double[][] { {2.0}, d }).clone();
+
+		assertArrayEquals(expected, new MarginalThetaArgumentMaker(pmtz, study, 0, 1).getArgument(data), EPSILON);
+	}
+
+	private static double normal(double x, double mu, double sd) {
+		final double z = (x - mu) / sd;
+		return Math.exp(-0.5 * z * z) / (Math.sqrt(2 * Math.PI) * sd);
+	}
+}
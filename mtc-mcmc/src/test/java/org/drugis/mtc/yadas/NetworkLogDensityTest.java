@@ -0,0 +1,135 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.drugis.mtc.data.DataType;
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.ConsistencyParameterization;
+import org.drugis.mtc.parameterization.InconsistencyParameterization;
+import org.drugis.mtc.parameterization.Parameterization;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NetworkLogDensityTest {
+	private static final double EPSILON = 0.000000001;
+	private static final double H = 1E-6;
+
+	private Treatment d_ta;
+	private Treatment d_tb;
+	private Treatment d_tc;
+	private Treatment d_td;
+	private Network d_network;
+
+	@Before
+	public void setUp() {
+		d_ta = new Treatment("A");
+		d_tb = new Treatment("B");
+		d_tc = new Treatment("C");
+		d_td = new Treatment("D");
+		d_network = new Network();
+		d_network.getTreatments().addAll(Arrays.asList(d_ta, d_tb, d_tc, d_td));
+	}
+
+	private void addRateStudies() {
+		d_network.getStudies().addAll(Arrays.asList(
+				study("1", new Measurement(d_ta, 12, 100), new Measurement(d_tb, 20, 100)),
+				study("2", new Measurement(d_tb, 5, 40), new Measurement(d_tc, 9, 41), new Measurement(d_td, 14, 39)),
+				study("3", new Measurement(d_ta, 30, 120), new Measurement(d_td, 41, 118)),
+				study("4", new Measurement(d_tc, 7, 60), new Measurement(d_td, 12, 61))));
+	}
+
+	private void addContinuousStudies() {
+		d_network.setType(DataType.CONTINUOUS);
+		d_network.getStudies().addAll(Arrays.asList(
+				study("1", new Measurement(d_ta, 4.0, 2.0, 100), new Measurement(d_tb, 1.0, 1.5, 100)),
+				study("2", new Measurement(d_tb, 2.4, 0.1, 43), new Measurement(d_tc, 2.1, 0.3, 40), new Measurement(d_td, 1.7, 0.5, 44)),
+				study("3", new Measurement(d_ta, 3.8, 1.9, 80), new Measurement(d_td, 1.5, 1.1, 81)),
+				study("4", new Measurement(d_tc, 2.0, 0.4, 30), new Measurement(d_td, 1.6, 0.6, 31))));
+	}
+
+	private static Study study(String id, Measurement ... measurements) {
+		Study study = new Study(id);
+		study.getMeasurements().addAll(Arrays.asList(measurements));
+		return study;
+	}
+
+	@Test
+	public void testGradientRate() {
+		addRateStudies();
+		Parameterization pmtz = ConsistencyParameterization.create(d_network);
+		NetworkLogDensity density = new NetworkLogDensity(d_network, pmtz, 3, 15.0, 2.0, Double.NaN);
+		assertEquals(4 + 5 + 3 + 1, density.getDimension());
+		checkGradient(density);
+	}
+
+	@Test
+	public void testGradientContinuousInconsistency() {
+		addContinuousStudies();
+		Parameterization pmtz = InconsistencyParameterization.create(d_network);
+		int nParams = pmtz.getParameters().size();
+		NetworkLogDensity density = new NetworkLogDensity(d_network, pmtz, 3, 15.0, 2.0, 1.5);
+		assertEquals(4 + 5 + nParams + 2, density.getDimension());
+		checkGradient(density);
+	}
+
+	@Test
+	public void testConstrain() {
+		addRateStudies();
+		NetworkLogDensity density = new NetworkLogDensity(d_network, ConsistencyParameterization.create(d_network), 3, 15.0, 2.0, Double.NaN);
+		double[] x = new double[density.getDimension()];
+		x[x.length - 1] = 0.5;
+		double[] u = x.clone();
+		density.unconstrain(u);
+		density.constrain(u);
+		assertArrayEquals(x, u, EPSILON);
+
+		u[u.length - 1] = 0.0;
+		density.constrain(u);
+		assertEquals(NetworkLogDensity.LOWER_BOUND + (2.0 - NetworkLogDensity.LOWER_BOUND) / 2, u[u.length - 1], EPSILON);
+	}
+
+	private void checkGradient(NetworkLogDensity density) {
+		final int n = density.getDimension();
+		double[] x = new double[n];
+		for (int i = 0; i < n; ++i) {
+			x[i] = 0.3 * Math.sin(i + 1.0);
+		}
+		double[] gradient = new double[n];
+		double f = density.evaluate(x, gradient);
+		double[] unused = new double[n];
+		for (int i = 0; i < n; ++i) {
+			double[] xp = x.clone();
+			double[] xm = x.clone();
+			xp[i] += H;
+			xm[i] -= H;
+			double expected = (density.evaluate(xp, unused) - density.evaluate(xm, unused)) / (2 * H);
+			assertEquals("component " + i, expected, gradient[i], 1E-5 * Math.max(1.0, Math.abs(expected)));
+		}
+		assertEquals(f, density.evaluate(x, gradient), EPSILON);
+	}
+}
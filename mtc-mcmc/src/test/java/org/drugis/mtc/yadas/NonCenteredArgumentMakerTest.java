@@ -0,0 +1,110 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import gov.lanl.yadas.ArgumentMaker;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.ConsistencyParameterization;
+import org.drugis.mtc.parameterization.NetworkModel;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NonCenteredArgumentMakerTest {
+	private static final double EPSILON = 0.000000001;
+
+	private Treatment d_ta;
+	private Treatment d_tb;
+	private Treatment d_tc;
+	private Treatment d_td;
+	private Study d_study;
+	private ConsistencyParameterization d_pmtz;
+
+	@Before
+	public void setUp() {
+		d_ta = new Treatment("A");
+		d_tb = new Treatment("B");
+		d_tc = new Treatment("C");
+		d_td = new Treatment("D");
+		d_study = new Study("1");
+		d_study.getMeasurements().addAll(Arrays.asList(
+				new Measurement(d_ta), new Measurement(d_tb), new Measurement(d_tc), new Measurement(d_td)));
+		Network network = new Network();
+		network.getTreatments().addAll(Arrays.asList(d_ta, d_tb, d_tc, d_td));
+		network.getStudies().add(d_study);
+		d_pmtz = ConsistencyParameterization.create(network);
+	}
+
+	@Test
+	public void testZeroLatentGivesMean() {
+		double[] basic = {0.5, -0.2, 1.1};
+		double[][] data = { new double[3], basic, {0.8} };
+		double[] expected = new RelativeEffectArgumentMaker(d_pmtz, d_study, 1, -1).getArgument(data).clone();
+
+		assertArrayEquals(expected, new NonCenteredArgumentMaker(d_pmtz, d_study, 0, 1, 2).getArgument(data), EPSILON);
+	}
+
+	@Test
+	public void testCovariance() {
+		// sum_j (delta(e_j) - d)(delta(e_j) - d)' = sigma^2 C C' should equal the SigmaRowArgumentMaker matrix
+		final double sigma = 0.8;
+		NonCenteredArgumentMaker maker = new NonCenteredArgumentMaker(d_pmtz, d_study, 0, 1, 2);
+		double[][] columns = new double[3][];
+		for (int j = 0; j < 3; ++j) {
+			double[] z = new double[3];
+			z[j] = 1.0;
+			columns[j] = maker.getArgument(new double[][] { z, new double[3], {sigma} }).clone();
+		}
+
+		List<ArgumentMaker> rows = SigmaRowArgumentMaker.createMatrixArgumentMaker(d_pmtz.parameterizeStudy(d_study), 0);
+		for (int a = 0; a < 3; ++a) {
+			double[] expected = rows.get(a).getArgument(new double[][] { {sigma} });
+			for (int b = 0; b < 3; ++b) {
+				double cov = 0.0;
+				for (int j = 0; j < 3; ++j) {
+					cov += columns[j][a] * columns[j][b];
+				}
+				assertEquals(expected[b], cov, EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testWrap() {
+		NonCenteredArgumentMaker maker = new NonCenteredArgumentMaker(d_pmtz, d_study, 1, 2, 3);
+		ThetaArgumentMaker theta = new ThetaArgumentMaker(NetworkModel.getTreatments(d_study), d_pmtz.parameterizeStudy(d_study), 0, 1);
+		double[][] data = { {0.3}, {0.1, -0.4, 0.9}, {0.5, -0.2, 1.1}, {0.7} };
+
+		double[] delta = maker.getArgument(data).clone();
+		double[] expected = theta.getArgument(new double[][] { {0.3}, delta }).clone();
+		double[] actual = maker.wrap(theta, 0).getArgument(data);
+		assertArrayEquals(expected, actual, EPSILON);
+		assertSame(theta.getArgument(new double[][] { {0.3}, delta }), actual);
+	}
+}
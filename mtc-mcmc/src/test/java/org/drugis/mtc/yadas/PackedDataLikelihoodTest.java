@@ -0,0 +1,170 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import gov.lanl.yadas.MCMCBond;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.special.Gamma;
+import org.drugis.mtc.data.DataType;
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.ConsistencyParameterization;
+import org.drugis.mtc.parameterization.NetworkModel;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackedDataLikelihoodTest {
+	private static final double EPSILON = 0.000000001;
+
+	private Treatment d_ta;
+	private Treatment d_tb;
+	private Treatment d_tc;
+	private Study d_s1;
+	private Study d_s2;
+	private Network d_network;
+	private Map<Study, MCMCParameter> d_mu;
+	private Map<Study, MCMCParameter> d_delta;
+
+	@Before
+	public void setUp() {
+		d_ta = new Treatment("A");
+		d_tb = new Treatment("B");
+		d_tc = new Treatment("C");
+		d_s1 = new Study("1");
+		d_s2 = new Study("2");
+		d_network = new Network();
+		d_network.getTreatments().addAll(Arrays.asList(d_ta, d_tb, d_tc));
+		d_network.getStudies().addAll(Arrays.asList(d_s1, d_s2));
+
+		d_mu = new HashMap<Study, MCMCParameter>();
+		d_mu.put(d_s1, new MCMCParameter(new double[] {-0.4}, new double[] {0.1}, null));
+		d_mu.put(d_s2, new MCMCParameter(new double[] {0.7}, new double[] {0.1}, null));
+		d_delta = new HashMap<Study, MCMCParameter>();
+		d_delta.put(d_s1, new MCMCParameter(new double[] {0.3, -0.9}, new double[] {0.1, 0.1}, null));
+		d_delta.put(d_s2, new MCMCParameter(new double[] {1.2}, new double[] {0.1}, null));
+	}
+
+	private void addRateData() {
+		d_network.setType(DataType.RATE);
+		d_s1.getMeasurements().addAll(Arrays.asList(
+				new Measurement(d_ta, 12, 40), new Measurement(d_tb, 18, 41), new Measurement(d_tc, 3, 38)));
+		d_s2.getMeasurements().addAll(Arrays.asList(
+				new Measurement(d_tb, 30, 100), new Measurement(d_tc, 61, 98)));
+	}
+
+	private void addContinuousData() {
+		d_network.setType(DataType.CONTINUOUS);
+		d_s1.getMeasurements().addAll(Arrays.asList(
+				new Measurement(d_ta, -0.5, 1.2, 40), new Measurement(d_tb, 0.1, 1.1, 41), new Measurement(d_tc, -1.5, 1.3, 38)));
+		d_s2.getMeasurements().addAll(Arrays.asList(
+				new Measurement(d_tb, 0.4, 2.0, 100), new Measurement(d_tc, 2.1, 1.9, 98)));
+	}
+
+	private PackedDataLikelihood create() {
+		return new PackedDataLikelihood(d_network.getType(), d_network.getStudies(),
+				ConsistencyParameterization.create(d_network), d_mu, d_delta);
+	}
+
+	/**
+	 * The log-likelihood of the study, computed from the ThetaArgumentMaker treatment effects.
+	 */
+	private double expected(Study study) {
+		List<Treatment> treatments = NetworkModel.getTreatments(study);
+		double[] theta = new ThetaArgumentMaker(treatments,
+				ConsistencyParameterization.create(d_network).parameterizeStudy(study), 0, 1).getArgument(
+						new double[][] { d_mu.get(study).getValue(), d_delta.get(study).getValue() });
+		double sum = 0.0;
+		for (int i = 0; i < treatments.size(); ++i) {
+			Measurement m = NetworkModel.findMeasurement(study, treatments.get(i));
+			if (d_network.getType() == DataType.RATE) {
+				final int r = m.getResponders();
+				final int n = m.getSampleSize();
+				final double p = 1 / (1 + Math.exp(-theta[i]));
+				sum += Gamma.logGamma(n + 1) - Gamma.logGamma(r + 1) - Gamma.logGamma(n - r + 1) +
+					r * Math.log(p) + (n - r) * Math.log(1 - p);
+			} else {
+				final double se = m.getStdDev() / Math.sqrt(m.getSampleSize());
+				final double e = (m.getMean() - theta[i]) / se;
+				sum += -0.5 * Math.log(2 * Math.PI) - Math.log(se) - 0.5 * e * e;
+			}
+		}
+		return sum;
+	}
+
+	@Test
+	public void testRateLikelihood() {
+		addRateData();
+		PackedDataLikelihood likelihood = create();
+
+		assertEquals(2, likelihood.getNumberOfStudies());
+		assertEquals(expected(d_s1), likelihood.logLikelihood(0), EPSILON);
+		assertEquals(expected(d_s2), likelihood.logLikelihood(1), EPSILON);
+		assertEquals(expected(d_s1) + expected(d_s2), likelihood.logLikelihood(), EPSILON);
+	}
+
+	@Test
+	public void testContinuousLikelihood() {
+		addContinuousData();
+		PackedDataLikelihood likelihood = create();
+
+		assertEquals(expected(d_s1), likelihood.logLikelihood(0), EPSILON);
+		assertEquals(expected(d_s2), likelihood.logLikelihood(1), EPSILON);
+		assertEquals(expected(d_s1) + expected(d_s2), likelihood.logLikelihood(), EPSILON);
+	}
+
+	@Test
+	public void testBond() {
+		addRateData();
+		PackedDataLikelihood likelihood = create();
+		MCMCBond bond = likelihood.getBond(0);
+		final double before = expected(d_s1);
+
+		d_delta.get(d_s1).setValue(new double[] {0.5, -0.2});
+		assertEquals(expected(d_s1) - before, bond.compute(), EPSILON);
+		d_delta.get(d_s1).setValue(new double[] {0.3, -0.9});
+		bond.reject();
+		assertEquals(0.0, bond.compute(), EPSILON);
+
+		d_mu.get(d_s1).setValue(new double[] {0.1});
+		final double changed = expected(d_s1);
+		assertEquals(changed - before, bond.compute(), EPSILON);
+		bond.revise();
+		d_mu.get(d_s1).setValue(new double[] {0.2});
+		assertEquals(expected(d_s1) - changed, bond.compute(), EPSILON);
+
+		// the other study is not affected
+		assertEquals(expected(d_s2), likelihood.logLikelihood(1), EPSILON);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testUnsupportedType() {
+		new PackedDataLikelihood(DataType.NONE, d_network.getStudies(), null, d_mu, d_delta);
+	}
+}
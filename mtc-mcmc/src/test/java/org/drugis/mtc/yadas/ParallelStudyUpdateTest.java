@@ -0,0 +1,109 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import gov.lanl.yadas.MCMCParameter;
+import gov.lanl.yadas.MCMCUpdate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.drugis.mtc.util.RandomStreams;
+import org.junit.Test;
+
+public class ParallelStudyUpdateTest {
+	private static final int N_STUDIES = 7;
+	private static final double SD = 0.5;
+
+	/**
+	 * Independent normal density for each component, with mean offset * shared[0].
+	 */
+	private static class GaussianBond extends LogDensityBond {
+		private final MCMCParameter d_param;
+		private final MCMCParameter d_shared;
+		private final double d_offset;
+
+		public GaussianBond(MCMCParameter param, MCMCParameter shared, double offset) {
+			d_param = param;
+			d_shared = shared;
+			d_offset = offset;
+			initialize();
+		}
+
+		@Override
+		protected double logDensity() {
+			double sum = 0.0;
+			for (int i = 0; i < d_param.getValue().length; ++i) {
+				final double e = (d_param.getValue(i) - d_offset * d_shared.getValue(0)) / SD;
+				sum += -0.5 * e * e;
+			}
+			return sum;
+		}
+	}
+
+	private List<MCMCParameter> d_params;
+
+	private ParallelStudyUpdate create(int nBatches) {
+		MCMCParameter shared = new MCMCParameter(new double[] {1.0}, new double[] {0.1}, null);
+		RandomStreams streams = new RandomStreams(13L);
+		d_params = new ArrayList<MCMCParameter>();
+		List<List<MCMCUpdate>> studyUpdates = new ArrayList<List<MCMCUpdate>>();
+		for (int i = 0; i < N_STUDIES; ++i) {
+			MCMCParameter param = new MCMCParameter(new double[] {0.0, 0.0}, new double[] {0.1, 0.1}, null);
+			d_params.add(param);
+			MCMCUpdate update = new ComponentMetropolisUpdate(param,
+					Collections.singletonList(new GaussianBond(param, shared, i)), 0.1, 500, streams.createStream(0, i));
+			studyUpdates.add(Collections.singletonList(update));
+		}
+		return new ParallelStudyUpdate(studyUpdates, nBatches);
+	}
+
+	@Test
+	public void testBatchesDoNotChangeResults() {
+		ParallelStudyUpdate sequential = create(1);
+		List<MCMCParameter> expected = d_params;
+		ParallelStudyUpdate parallel = create(3);
+		List<MCMCParameter> actual = d_params;
+		assertEquals(1, sequential.getNumberOfBatches());
+		assertEquals(3, parallel.getNumberOfBatches());
+
+		for (int i = 0; i < 1000; ++i) {
+			sequential.update();
+			parallel.update();
+		}
+		for (int i = 0; i < N_STUDIES; ++i) {
+			assertEquals(expected.get(i).getValue(0), actual.get(i).getValue(0), 0.0);
+			assertEquals(expected.get(i).getValue(1), actual.get(i).getValue(1), 0.0);
+		}
+	}
+
+	@Test
+	public void testMoreBatchesThanStudies() {
+		assertEquals(N_STUDIES, create(100).getNumberOfBatches());
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testNoBatches() {
+		create(0);
+	}
+}
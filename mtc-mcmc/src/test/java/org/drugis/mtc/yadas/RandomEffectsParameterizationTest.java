@@ -0,0 +1,77 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.drugis.mtc.model.Measurement;
+import org.drugis.mtc.model.Network;
+import org.drugis.mtc.model.Study;
+import org.drugis.mtc.model.Treatment;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RandomEffectsParameterizationTest {
+	private static final double EPSILON = 0.000000001;
+
+	private Treatment d_ta;
+	private Treatment d_tb;
+	private Treatment d_tc;
+	private Network d_network;
+
+	@Before
+	public void setUp() {
+		d_ta = new Treatment("A");
+		d_tb = new Treatment("B");
+		d_tc = new Treatment("C");
+		d_network = new Network();
+		d_network.getTreatments().addAll(Arrays.asList(d_ta, d_tb, d_tc));
+		addStudy("1", d_ta, d_tb);
+		addStudy("2", d_ta, d_tb, d_tc);
+	}
+
+	private void addStudy(String id, Treatment ... treatments) {
+		Study study = new Study(id);
+		for (Treatment t : treatments) {
+			study.getMeasurements().add(new Measurement(t, 10, 100));
+		}
+		d_network.getStudies().add(study);
+	}
+
+	@Test
+	public void testStudiesPerComparison() {
+		// AB: 2 studies, AC: 1, BC: 1
+		assertEquals(4.0 / 3.0, RandomEffectsParameterization.getStudiesPerComparison(d_network), EPSILON);
+	}
+
+	@Test
+	public void testResolve() {
+		assertEquals(RandomEffectsParameterization.CENTERED, RandomEffectsParameterization.CENTERED.resolve(d_network));
+		assertEquals(RandomEffectsParameterization.NON_CENTERED, RandomEffectsParameterization.NON_CENTERED.resolve(d_network));
+		assertEquals(RandomEffectsParameterization.NON_CENTERED, RandomEffectsParameterization.AUTOMATIC.resolve(d_network));
+
+		for (int i = 3; i < 10; ++i) {
+			addStudy(Integer.toString(i), d_ta, d_tb, d_tc);
+		}
+		assertEquals(RandomEffectsParameterization.CENTERED, RandomEffectsParameterization.AUTOMATIC.resolve(d_network));
+	}
+}
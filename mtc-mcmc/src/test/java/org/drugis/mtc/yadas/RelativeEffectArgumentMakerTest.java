@@ -20,11 +20,14 @@
 package org.drugis.mtc.yadas;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.drugis.mtc.model.Measurement;
 import org.drugis.mtc.model.Network;
@@ -154,4 +157,49 @@ public class RelativeEffectArgumentMakerTest {
 		RelativeEffectArgumentMaker maker0 = new RelativeEffectArgumentMaker(pmtz, d_s1, 0, 1);
 		assertArrayEquals(basic, maker0.getArgument(new double[][] {basic, incons}), EPSILON);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testGetDependencies() {
+		// basic: AB, AD, BC; inconsistency: ABCDA, ABDA
+		assertEquals(new TreeSet<Integer>(Arrays.asList(0)),
+				new RelativeEffectArgumentMaker(d_consPmtz, d_s1, 0, -1).getDependencies());
+		assertEquals(new TreeSet<Integer>(Arrays.asList(0)),
+				new RelativeEffectArgumentMaker(d_incoPmtz, d_s1, 0, 1).getDependencies());
+		assertEquals(new TreeSet<Integer>(Arrays.asList(0, 1, 2, 4)),
+				new RelativeEffectArgumentMaker(d_incoPmtz, d_s2, 0, 1).getDependencies());
+	}
+
+	@Test
+	public void testOutputBufferReused() {
+		double[] basic = new double[] {-1.0, 1.0, 3.0}; // AB, AD, BC
+		double[] incons = new double[] {-0.5, 0.5}; // ABCDA, ABDA
+
+		RelativeEffectArgumentMaker maker = new RelativeEffectArgumentMaker(d_incoPmtz, d_s2, 0, 1);
+		double[] first = maker.getArgument(new double[][] {basic, incons});
+		assertArrayEquals(new double[] {3.0, 2.5}, first, EPSILON);
+
+		basic[2] = 1.0;
+		incons[0] = 0.0;
+		incons[1] = 0.0;
+		double[] second = maker.getArgument(new double[][] {basic, incons});
+		assertSame(first, second);
+		assertArrayEquals(new double[] {1.0, 2.0}, second, EPSILON);
+	}
+
+	@Test
+	public void testAddAdjoint() {
+		// (2.5 = BC + (ABCDA - ABDA)) and (3.0 = BC) from testGetArgumentInconsistency, transposed
+		RelativeEffectArgumentMaker maker = new RelativeEffectArgumentMaker(d_incoPmtz, d_s2, 0, -1);
+		double[] gradient = new double[] {0.0, 0.0, 0.0, 0.0, 1.0};
+		maker.addAdjoint(new double[] {2.0, 3.0}, gradient);
+
+		double[] params = new double[] {-1.0, 1.0, 3.0, -0.5, 0.5};
+		double[] effects = maker.getArgument(new double[][] {params});
+		double expected = 0.5 + 2.0 * effects[0] + 3.0 * effects[1];
+		double actual = 0.0;
+		for (int i = 0; i < params.length; ++i) {
+			actual += gradient[i] * params[i];
+		}
+		assertEquals(expected, actual, EPSILON);
+	}
+}
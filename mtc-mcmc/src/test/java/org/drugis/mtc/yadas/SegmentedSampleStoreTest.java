@@ -0,0 +1,89 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.DoubleBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SegmentedSampleStoreTest {
+	private SegmentedSampleStore d_store;
+
+	@Before
+	public void setUp() {
+		d_store = new SegmentedSampleStore(2, 3, 2); // chunks of 4 samples
+	}
+
+	private void fill(int from, int to) {
+		for (int i = from; i < to; ++i) {
+			d_store.set(1, 2, i, i);
+		}
+	}
+
+	@Test
+	public void testGetSet() {
+		d_store.reserve(10);
+		assertEquals(10, d_store.getCapacity());
+		fill(0, 10);
+		for (int i = 0; i < 10; ++i) {
+			assertEquals(i, d_store.get(1, 2, i), 0.0);
+			assertEquals(0.0, d_store.get(0, 2, i), 0.0);
+		}
+	}
+
+	@Test
+	public void testGrowPreservesSamples() {
+		d_store.reserve(6);
+		fill(0, 6);
+		d_store.reserve(15);
+		fill(6, 15);
+		d_store.reserve(3);
+		assertEquals(15, d_store.getCapacity());
+		for (int i = 0; i < 15; ++i) {
+			assertEquals(i, d_store.get(1, 2, i), 0.0);
+		}
+	}
+
+	@Test
+	public void testBulkGet() {
+		d_store.reserve(12);
+		fill(0, 12);
+		double[] dst = new double[9];
+		d_store.get(1, 2, 3, 11, dst, 1);
+		assertArrayEquals(new double[] {0, 3, 4, 5, 6, 7, 8, 9, 10}, dst, 0.0);
+	}
+
+	@Test
+	public void testBuffer() {
+		d_store.reserve(12);
+		fill(0, 12);
+		DoubleBuffer single = d_store.getBuffer(1, 2, 3);
+		assertEquals(3, single.remaining());
+		assertEquals(2.0, single.get(2), 0.0);
+		DoubleBuffer multi = d_store.getBuffer(1, 2, 10);
+		assertEquals(10, multi.remaining());
+		assertEquals(9.0, multi.get(9), 0.0);
+		assertEquals(0, d_store.getBuffer(0, 0, 0).remaining());
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.Collections;
+
+import org.drugis.mtc.MCMCResultsEvent;
+import org.drugis.mtc.MCMCResultsListener;
+import org.drugis.mtc.Parameter;
+import org.drugis.mtc.convergence.EffectiveSampleSize;
+import org.drugis.mtc.convergence.GelmanRubinConvergence;
+import org.drugis.mtc.model.Treatment;
+import org.drugis.mtc.parameterization.BasicParameter;
+import org.drugis.mtc.summary.SummaryUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SimulationMonitorTest {
+	private static final double EPSILON = 0.0000001;
+
+	private BasicParameter d_param;
+	private YadasResults d_results;
+	private MCMCParameter[] d_mcmcParams;
+	private ParameterWriter[] d_writers;
+	private int d_events;
+	private int d_monitorEvents;
+
+	@Before
+	public void setUp() {
+		d_param = new BasicParameter(new Treatment("A"), new Treatment("B"));
+		d_results = new YadasResults();
+		d_results.setNumberOfChains(2);
+		d_results.setNumberOfIterations(100);
+		d_results.setDirectParameters(Collections.<Parameter>singletonList(d_param));
+		d_mcmcParams = new MCMCParameter[2];
+		d_writers = new ParameterWriter[2];
+		for (int c = 0; c < 2; ++c) {
+			d_mcmcParams[c] = new MCMCParameter(new double[] { 0.0 }, new double[] { 0.1 }, null);
+			d_writers[c] = d_results.getParameterWriter(d_param, c, d_mcmcParams[c], 0);
+		}
+		d_events = 0;
+		d_monitorEvents = 0;
+		d_results.addResultsListener(new MCMCResultsListener() {
+			public void resultsEvent(MCMCResultsEvent event) {
+				++d_events;
+			}
+		});
+	}
+
+	private SimulationMonitor createMonitor(int interval) {
+		SimulationMonitor monitor = new SimulationMonitor(d_results, interval);
+		monitor.addMonitorListener(new MCMCResultsListener() {
+			public void resultsEvent(MCMCResultsEvent event) {
+				assertEquals(d_results, event.getSource());
+				++d_monitorEvents;
+			}
+		});
+		return monitor;
+	}
+
+	private void write(int c, int n) {
+		for (int i = 0; i < n; ++i) {
+			d_mcmcParams[c].setValue(0, Math.sin(c + 0.3 * d_results.getWatermark() + 0.7 * i));
+			d_writers[c].output();
+			d_results.sampleWritten(c);
+		}
+	}
+
+	@Test
+	public void testWatermark() {
+		assertEquals(0, d_results.getWatermark());
+		write(0, 10);
+		assertEquals(0, d_results.getWatermark());
+		write(1, 4);
+		assertEquals(4, d_results.getWatermark());
+		assertEquals(0, d_results.getNumberOfSamples());
+	}
+
+	@Test
+	public void testUpdate() {
+		SimulationMonitor monitor = createMonitor(10);
+		monitor.setEventDelay(0);
+		assertFalse(monitor.update());
+		assertNull(monitor.getDiagnostic(d_param));
+		assertTrue(Double.isNaN(monitor.getPSRF(d_param)));
+		assertTrue(Double.isNaN(monitor.getEffectiveSampleSize(d_param)));
+
+		write(0, 20);
+		write(1, 8);
+		assertFalse(monitor.update());
+		assertEquals(0, d_results.getNumberOfSamples());
+		assertEquals(0, d_monitorEvents);
+
+		write(1, 12);
+		assertTrue(monitor.update());
+		assertEquals(20, d_results.getNumberOfSamples());
+		assertEquals(1, d_monitorEvents);
+		assertEquals(0, d_events); // no summaries recomputed while sampling
+
+		GelmanRubinConvergence expected = new GelmanRubinConvergence(d_results, d_param);
+		assertEquals(expected.getCorrPSRF(), monitor.getPSRF(d_param), EPSILON);
+		assertEquals(EffectiveSampleSize.calculate(SummaryUtil.getLastHalfSamples(d_results, d_param), 2),
+				monitor.getEffectiveSampleSize(d_param), EPSILON);
+
+		write(0, 30);
+		write(1, 30);
+		assertTrue(monitor.update());
+		assertEquals(50, d_results.getNumberOfSamples());
+		assertEquals(2, d_monitorEvents);
+		assertEquals(0, d_events);
+		expected = new GelmanRubinConvergence(d_results, d_param);
+		assertEquals(expected.getCorrPSRF(), monitor.getPSRF(d_param), EPSILON);
+	}
+
+	@Test
+	public void testThrottle() {
+		SimulationMonitor monitor = createMonitor(1);
+		monitor.setEventDelay(Long.MAX_VALUE / 2);
+		write(0, 10);
+		write(1, 10);
+		assertTrue(monitor.update());
+		write(0, 10);
+		write(1, 10);
+		assertFalse(monitor.update());
+		assertEquals(10, d_results.getNumberOfSamples());
+		assertEquals(1, d_monitorEvents);
+	}
+
+	@Test
+	public void testSimulationFinished() {
+		write(0, 100);
+		write(1, 100);
+		d_results.simulationFinished();
+		SimulationMonitor monitor = createMonitor(1);
+		monitor.setEventDelay(0);
+		assertFalse(monitor.update());
+		assertEquals(100, d_results.getNumberOfSamples());
+	}
+}
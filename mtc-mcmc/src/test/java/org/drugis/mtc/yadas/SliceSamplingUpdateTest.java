@@ -0,0 +1,80 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import gov.lanl.yadas.MCMCParameter;
+
+import java.util.Collections;
+
+import org.apache.commons.math3.random.Well19937c;
+import org.junit.Test;
+
+public class SliceSamplingUpdateTest {
+	private static final double RATE = 1 / 0.3;
+	private static final double UPPER = 2.0;
+
+	/**
+	 * Exponential density with the given rate, truncated to (0, UPPER).
+	 */
+	private static class ExponentialBond extends LogDensityBond {
+		private final MCMCParameter d_param;
+
+		public ExponentialBond(MCMCParameter param) {
+			d_param = param;
+			initialize();
+		}
+
+		@Override
+		protected double logDensity() {
+			final double x = d_param.getValue(0);
+			return x > 0 && x < UPPER ? -RATE * x : Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	@Test
+	public void testTruncatedExponential() {
+		MCMCParameter param = new MCMCParameter(new double[] {1.0}, new double[] {0.1}, null);
+		SliceSamplingUpdate update = new SliceSamplingUpdate(param,
+				Collections.singletonList(new ExponentialBond(param)), 0.0, UPPER, 1.0, 1000, new Well19937c(3));
+
+		for (int i = 0; i < 1000; ++i) {
+			update.update();
+		}
+		final double width = update.getWidth();
+		final int n = 100000;
+		double sum = 0.0;
+		for (int i = 0; i < n; ++i) {
+			update.update();
+			assertTrue(param.getValue(0) > 0.0 && param.getValue(0) < UPPER);
+			sum += param.getValue(0);
+		}
+
+		// mean of the truncated exponential: 1 / rate - UPPER / (exp(rate UPPER) - 1)
+		final double expected = 1 / RATE - UPPER / (Math.exp(RATE * UPPER) - 1);
+		assertEquals(expected, sum / n, 0.005);
+
+		// the width adapts to the scale of the target, and then stays fixed
+		assertEquals(2 * 0.3, width, 0.3);
+		assertEquals(width, update.getWidth(), 0.0);
+		assertTrue(update.getEvaluationsPerUpdate() < 6.0);
+	}
+}
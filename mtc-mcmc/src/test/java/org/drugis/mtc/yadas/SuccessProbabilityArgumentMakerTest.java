@@ -21,6 +21,7 @@ package org.drugis.mtc.yadas;
 
 import static org.drugis.common.stat.Statistics.ilogit;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -51,4 +52,12 @@ public class SuccessProbabilityArgumentMakerTest {
 		SuccessProbabilityArgumentMaker maker = new SuccessProbabilityArgumentMaker(treatments, pmtz, 0, 1);
 		assertArrayEquals(expected, maker.getArgument(data), EPSILON);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testStableInverseLogit() {
+		assertEquals(ilogit(2.5), SuccessProbabilityArgumentMaker.ilogit(2.5), EPSILON);
+		assertEquals(ilogit(-2.5), SuccessProbabilityArgumentMaker.ilogit(-2.5), EPSILON);
+		assertEquals(1.0, SuccessProbabilityArgumentMaker.ilogit(1000.0), 0.0);
+		assertEquals(0.0, SuccessProbabilityArgumentMaker.ilogit(-1000.0), 0.0);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of the GeMTC software for MTC model generation and
+ * analysis. GeMTC is distributed from http://drugis.org/gemtc.
+ * Copyright (C) 2009-2012 Gert van Valkenhoef.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.drugis.mtc.yadas;
+
+import static org.drugis.common.stat.Statistics.ilogit;
+import gov.lanl.yadas.ArgumentMaker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.drugis.mtc.model.Treatment;
+
+import edu.uci.ics.jung.graph.util.Pair;
+
+/**
+ * Micro-benchmark of ThetaArgumentMaker and SuccessProbabilityArgumentMaker
+ * against the previous implementation, which walked the parent chain for
+ * each arm and allocated a new array on every call. Not a unit test: run
+ * the main method with the test classpath.
+ */
+public class ThetaArgumentMakerBenchmark {
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 10;
+	private static final int CALLS = 2000000;
+
+	/**
+	 * The implementation before the arm-to-delta paths were flattened.
+	 */
+	private static class LegacyThetaArgumentMaker implements ArgumentMaker {
+		private final int d_nArms;
+		private final int d_muIdx;
+		private final int d_deltaIdx;
+		private final boolean d_ilogit;
+		private int[] d_parent;
+		private int[] d_treatmentDeltaIndex;
+
+		public LegacyThetaArgumentMaker(List<Treatment> treatments, List<List<Pair<Treatment>>> studyPmtz, int muIdx, int deltaIdx, boolean ilogit) {
+			d_nArms = treatments.size();
+			d_muIdx = muIdx;
+			d_deltaIdx = deltaIdx;
+			d_ilogit = ilogit;
+			d_parent = new int[d_nArms];
+			Arrays.fill(d_parent, -1);
+			d_treatmentDeltaIndex = new int[d_nArms];
+			Arrays.fill(d_treatmentDeltaIndex, -1);
+			int dIdx = 0;
+			for (List<Pair<Treatment>> list : studyPmtz) {
+				for (Pair<Treatment> pair : list) {
+					int tIdx = treatments.indexOf(pair.getSecond());
+					d_parent[tIdx] = treatments.indexOf(pair.getFirst());
+					d_treatmentDeltaIndex[tIdx] = dIdx;
+					++dIdx;
+				}
+			}
+		}
+
+		public double[] getArgument(double[][] data) {
+			double[] rval = new double[d_nArms];
+			for (int i = 0; i < rval.length; ++i) {
+				rval[i] = d_ilogit ? ilogit(theta(i, data)) : theta(i, data);
+			}
+			return rval;
+		}
+
+		private double theta(int tIdx, double[][] data) {
+			double delta = 0.0;
+			while (d_parent[tIdx] != -1) {
+				delta += data[d_deltaIdx][d_treatmentDeltaIndex[tIdx]];
+				tIdx = d_parent[tIdx];
+			}
+			return data[d_muIdx][0] + delta;
+		}
+	}
+
+	public static void main(String[] args) {
+		int nArms = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+
+		// A chain-shaped study parameterization: the worst case for path walking.
+		List<Treatment> treatments = new ArrayList<Treatment>();
+		for (int i = 0; i < nArms; ++i) {
+			treatments.add(new Treatment("T" + i));
+		}
+		List<Pair<Treatment>> pairs = new ArrayList<Pair<Treatment>>();
+		for (int i = 1; i < nArms; ++i) {
+			pairs.add(new Pair<Treatment>(treatments.get(i - 1), treatments.get(i)));
+		}
+		List<List<Pair<Treatment>>> pmtz = new ArrayList<List<Pair<Treatment>>>();
+		pmtz.add(pairs);
+
+		double[][] data = new double[][] { {0.3}, new double[nArms - 1] };
+		for (int i = 0; i < nArms - 1; ++i) {
+			data[1][i] = 0.1 * i - 0.2;
+		}
+
+		System.out.println("Arms: " + nArms + ", calls per round: " + CALLS);
+		report("Theta (legacy)", new LegacyThetaArgumentMaker(treatments, pmtz, 0, 1, false), data);
+		report("Theta", new ThetaArgumentMaker(treatments, pmtz, 0, 1), data);
+		report("SuccessProbability (legacy)", new LegacyThetaArgumentMaker(treatments, pmtz, 0, 1, true), data);
+		report("SuccessProbability", new SuccessProbabilityArgumentMaker(treatments, pmtz, 0, 1), data);
+	}
+
+	private static void report(String name, ArgumentMaker maker, double[][] data) {
+		for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+			run(maker, data);
+		}
+		double best = Double.POSITIVE_INFINITY;
+		double total = 0.0;
+		for (int i = 0; i < ROUNDS; ++i) {
+			double nsPerCall = run(maker, data);
+			best = Math.min(best, nsPerCall);
+			total += nsPerCall;
+		}
+		System.out.println(String.format("%-30s %8.2f ns/call (best %8.2f)", name, total / ROUNDS, best));
+	}
+
+	private static double s_sink;
+
+	private static double run(ArgumentMaker maker, double[][] data) {
+		double sink = 0.0;
+		long start = System.nanoTime();
+		for (int i = 0; i < CALLS; ++i) {
+			data[0][0] = i * 1E-7;
+			sink += maker.getArgument(data)[0];
+		}
+		long end = System.nanoTime();
+		s_sink += sink; // prevent dead-code elimination
+		return (double)(end - start) / CALLS;
+	}
+}
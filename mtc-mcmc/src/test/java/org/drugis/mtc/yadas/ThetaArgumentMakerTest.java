@@ -149,4 +149,20 @@ public class ThetaArgumentMakerTest {
 		
 		new ThetaArgumentMaker(treatments, pmtz, 0, 1);
 	}
-}
\ No newline at end of file
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testAddAdjoint() {
+		List<Treatment> treatments = Arrays.asList(d_ta, d_tb, d_tc, d_td);
+		List<List<Pair<Treatment>>> pmtz = Collections.singletonList(Arrays.asList(
+				new Pair<Treatment>(d_ta, d_tb), new Pair<Treatment>(d_tb, d_tc), new Pair<Treatment>(d_ta, d_td)));
+		ThetaArgumentMaker maker = new ThetaArgumentMaker(treatments, pmtz, 0, 1);
+
+		// theta = mu + (0, d0, d0 + d1, d2), so the adjoint sums along the paths
+		double[] muGradient = {0.5};
+		double[] deltaGradient = {0.0, 0.0, 1.0};
+		maker.addAdjoint(new double[] {1.0, 2.0, 3.0, 4.0}, muGradient, deltaGradient);
+		assertArrayEquals(new double[] {10.5}, muGradient, EPSILON);
+		assertArrayEquals(new double[] {5.0, 3.0, 5.0}, deltaGradient, EPSILON);
+	}
+}
@@ -23,6 +23,8 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import gov.lanl.yadas.MCMCParameter;
 
+import java.nio.DoubleBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -173,6 +175,83 @@ public class YadasResultsTest {
 		}
 	}
 
+	@Test
+	public void testBulkSamples() {
+		MCMCParameter mcmcParam = new MCMCParameter(
+				new double[] {0.0, 1.0},
+				new double[] {0.1, 0.1}, "name");
+		ParameterWriter writer1 = d_results.getParameterWriter(d_param1, 0, mcmcParam, 0);
+		ParameterWriter writer2 = d_results.getParameterWriter(d_param2, 0, mcmcParam, 1);
+		for (int i = 0; i < 10; ++i) {
+			mcmcParam.setValue(new double[]{i + 2, i});
+			writer1.output();
+			writer2.output();
+		}
+		d_results.simulationFinished();
+
+		double[] dst = new double[5];
+		d_results.getSamples(1, 0, 3, 7, dst, 1);
+		assertArrayEquals(new double[] {0.0, 3.0, 4.0, 5.0, 6.0}, dst, 0.0);
+		d_results.getSamples(2, 0, 0, 3, dst, 0);
+		assertArrayEquals(new double[] {2.0, 4.0, 6.0, 5.0, 6.0}, dst, 0.0);
+
+		DoubleBuffer direct = d_results.getSampleBuffer(1, 0);
+		assertEquals(10, direct.limit());
+		assertEquals(7.0, direct.get(7), 0.0);
+		DoubleBuffer derived = d_results.getSampleBuffer(2, 0);
+		assertEquals(10, derived.limit());
+		assertEquals(20.0, derived.get(9), 0.0);
+	}
+
+	@Test(expected=ReadOnlyBufferException.class)
+	public void testSampleBufferReadOnly() {
+		d_results.simulationFinished();
+		d_results.getSampleBuffer(0, 0).put(0, 1.0);
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void testBulkSamplesOutOfBounds() {
+		d_results.simulationFinished();
+		d_results.getSamples(0, 0, 5, 11, new double[6], 0);
+	}
+
+	@Test
+	public void testDerivedCache() {
+		d_results.setDerivedCacheSize(1);
+		MCMCParameter mcmcParam = new MCMCParameter(
+				new double[] {0.0, 1.0},
+				new double[] {0.1, 0.1}, "name");
+		ParameterWriter writer1 = d_results.getParameterWriter(d_param1, 0, mcmcParam, 0);
+		ParameterWriter writer2 = d_results.getParameterWriter(d_param2, 0, mcmcParam, 1);
+		for (int i = 0; i < 10; ++i) {
+			mcmcParam.setValue(new double[]{i + 2, i});
+			writer1.output();
+			writer2.output();
+		}
+		d_results.simulationFinished();
+		assertEquals(20.0, d_results.getSample(2, 0, 9), 0.0);
+		assertEquals(20.0, d_results.getSampleBuffer(2, 0).get(9), 0.0);
+
+		// extending the simulation invalidates the materialized series
+		d_results.setNumberOfIterations(20);
+		for (int i = 10; i < 20; ++i) {
+			mcmcParam.setValue(new double[]{1.0, 1.0});
+			writer1.output();
+			writer2.output();
+		}
+		d_results.simulationFinished();
+		double[] dst = new double[20];
+		d_results.getSamples(2, 0, 0, 20, dst, 0);
+		assertEquals(20.0, dst[9], 0.0);
+		assertEquals(2.0, dst[19], 0.0);
+
+		d_results.clear();
+		d_results.setNumberOfChains(1);
+		d_results.setNumberOfIterations(10);
+		d_results.simulationFinished();
+		assertEquals(0.0, d_results.getSample(2, 0, 9), 0.0);
+	}
+
 	@Test
 	public void testEvent() {
 		MCMCResultsListener mock = EasyMock.createStrictMock(MCMCResultsListener.class);